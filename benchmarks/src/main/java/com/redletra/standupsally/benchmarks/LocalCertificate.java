@@ -0,0 +1,114 @@
+package com.redletra.standupsally.benchmarks;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    A self-signed certificate for localhost, so the stand-ins are reached over TLS as Secret Manager
+    and slack are, and the TLS, ALPN and certificate checking classes the functions load in production
+    are loaded here too. keytool makes it, in another process, so none of its classes are recorded.
+    The functions' clients aren't changed to trust it: the JVM's default trust store is pointed at it
+ */
+class LocalCertificate {
+
+    private static final String ALIAS = "localhost";
+    private static final String PASSWORD = "standup-sally";
+    private static final long KEYTOOL_TIMEOUT_SECONDS = 60;
+
+    private final Path keyStorePath;
+    private final KeyStore keyStore;
+
+    private LocalCertificate(Path keyStorePath, KeyStore keyStore) {
+        this.keyStorePath = keyStorePath;
+        this.keyStore = keyStore;
+    }
+
+    static LocalCertificate generate() throws IOException, InterruptedException, GeneralSecurityException {
+        Path directory = Files.createTempDirectory("standup-sally-tls");
+        directory.toFile().deleteOnExit();
+        Path keyStorePath = directory.resolve("localhost.p12");
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair",
+                "-alias", ALIAS,
+                "-keyalg", "RSA",
+                "-keysize", "2048",
+                "-validity", "1",
+                "-dname", "CN=localhost",
+                "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-keystore", keyStorePath.toString(),
+                "-storetype", "PKCS12",
+                "-storepass", PASSWORD,
+                "-keypass", PASSWORD,
+                "-noprompt")
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(keytool.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!keytool.waitFor(KEYTOOL_TIMEOUT_SECONDS, TimeUnit.SECONDS) || keytool.exitValue() != 0) {
+            keytool.destroyForcibly();
+            throw new IllegalStateException("keytool failed to make a certificate: " + output);
+        }
+        keyStorePath.toFile().deleteOnExit();
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream keyStoreStream = Files.newInputStream(keyStorePath)) {
+            keyStore.load(keyStoreStream, PASSWORD.toCharArray());
+        }
+        return new LocalCertificate(keyStorePath, keyStore);
+    }
+
+    /*
+        trust the certificate in this JVM. Has to be called before anything makes a TLS connection
+     */
+    void trust() {
+        System.setProperty("javax.net.ssl.trustStore", keyStorePath.toString());
+        System.setProperty("javax.net.ssl.trustStorePassword", PASSWORD);
+        System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+    }
+
+    /*
+        the options trusting the certificate in a JVM started from this one
+     */
+    List<String> trustOptions() {
+        return List.of("-Djavax.net.ssl.trustStore=" + keyStorePath,
+                "-Djavax.net.ssl.trustStorePassword=" + PASSWORD,
+                "-Djavax.net.ssl.trustStoreType=PKCS12");
+    }
+
+    SSLContext serverSslContext() throws GeneralSecurityException {
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD.toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return sslContext;
+    }
+
+    InputStream certificateChainPem() throws GeneralSecurityException {
+        return pem("CERTIFICATE", keyStore.getCertificate(ALIAS).getEncoded());
+    }
+
+    /*
+        PKCS#8, as gRPC wants it
+     */
+    InputStream privateKeyPem() throws GeneralSecurityException {
+        return pem("PRIVATE KEY", keyStore.getKey(ALIAS, PASSWORD.toCharArray()).getEncoded());
+    }
+
+    private static InputStream pem(String type, byte[] der) {
+        String pem = "-----BEGIN " + type + "-----\n" +
+                Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(der) +
+                "\n-----END " + type + "-----\n";
+        return new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,86 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.google.cloud.functions.HttpRequest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    A POST with a JSON body, as the functions framework would hand it to a function
+ */
+class LocalHttpRequest implements HttpRequest {
+
+    private final byte[] body;
+    private final Map<String, List<String>> headers;
+
+    LocalHttpRequest(byte[] body, Map<String, List<String>> headers) {
+        this.body = body;
+        this.headers = headers;
+    }
+
+    @Override
+    public String getMethod() {
+        return "POST";
+    }
+
+    @Override
+    public String getUri() {
+        return "http://localhost/";
+    }
+
+    @Override
+    public String getPath() {
+        return "/";
+    }
+
+    @Override
+    public Optional<String> getQuery() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<String, List<String>> getQueryParameters() {
+        return Map.of();
+    }
+
+    @Override
+    public Map<String, HttpPart> getParts() {
+        return Map.of();
+    }
+
+    @Override
+    public Optional<String> getContentType() {
+        return Optional.of("application/json");
+    }
+
+    @Override
+    public long getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public Optional<String> getCharacterEncoding() {
+        return Optional.of(StandardCharsets.UTF_8.name());
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+}
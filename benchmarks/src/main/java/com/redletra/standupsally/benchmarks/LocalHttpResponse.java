@@ -0,0 +1,70 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.google.cloud.functions.HttpResponse;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    Collects what a function responds with
+ */
+class LocalHttpResponse implements HttpResponse {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+    private final Map<String, List<String>> headers = new HashMap<>();
+    private int statusCode = 200;
+    private String contentType;
+
+    @Override
+    public void setStatusCode(int code) {
+        statusCode = code;
+    }
+
+    @Override
+    public void setStatusCode(int code, String message) {
+        statusCode = code;
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    public Optional<String> getContentType() {
+        return Optional.ofNullable(contentType);
+    }
+
+    @Override
+    public void appendHeader(String header, String value) {
+        headers.computeIfAbsent(header, key -> new ArrayList<>()).add(value);
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return body;
+    }
+
+    @Override
+    public BufferedWriter getWriter() {
+        return writer;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+}
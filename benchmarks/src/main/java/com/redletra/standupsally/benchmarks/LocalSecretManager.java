@@ -0,0 +1,182 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import com.google.cloud.secretmanager.v1.*;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+    A Secret Manager stand-in on a local port, speaking the real gRPC protocol over TLS so the
+    functions load the same client, gax, gRPC, netty, TLS and protobuf classes they do in production.
+    Only the methods the functions call are served, from secrets held in memory
+ */
+class LocalSecretManager implements AutoCloseable {
+
+    private static final String SERVICE_NAME = "google.cloud.secretmanager.v1.SecretManagerService";
+
+    // secret id -> payload of each version, version n at index n - 1
+    private final Map<String, List<ByteString>> secretIdToVersions = new HashMap<>();
+    private final Set<String> destroyedVersionNames = new HashSet<>();
+    private final Server server;
+
+    LocalSecretManager(LocalCertificate localCertificate) throws IOException, GeneralSecurityException {
+        server = ServerBuilder.forPort(0)
+                .useTransportSecurity(localCertificate.certificateChainPem(), localCertificate.privateKeyPem())
+                .addService(ServerServiceDefinition.builder(SERVICE_NAME)
+                        .addMethod(unaryMethod("AccessSecretVersion", AccessSecretVersionRequest.getDefaultInstance(),
+                                AccessSecretVersionResponse.getDefaultInstance()), unaryCall(this::accessSecretVersion))
+                        .addMethod(unaryMethod("GetSecretVersion", GetSecretVersionRequest.getDefaultInstance(),
+                                SecretVersion.getDefaultInstance()), unaryCall(this::getSecretVersion))
+                        .addMethod(unaryMethod("AddSecretVersion", AddSecretVersionRequest.getDefaultInstance(),
+                                SecretVersion.getDefaultInstance()), unaryCall(this::addSecretVersion))
+                        .addMethod(unaryMethod("DestroySecretVersion", DestroySecretVersionRequest.getDefaultInstance(),
+                                SecretVersion.getDefaultInstance()), unaryCall(this::destroySecretVersion))
+                        .addMethod(unaryMethod("CreateSecret", CreateSecretRequest.getDefaultInstance(),
+                                Secret.getDefaultInstance()), unaryCall(this::createSecret))
+                        .build())
+                .build()
+                .start();
+    }
+
+    /*
+        add a version to the secret, creating it if need be
+     */
+    synchronized void putSecret(String secretId, ByteString payload) {
+        secretIdToVersions.computeIfAbsent(secretId, key -> new ArrayList<>()).add(payload);
+    }
+
+    int getPort() {
+        return server.getPort();
+    }
+
+    /*
+        clients for the stand-in listening on the port, which may be in another process. The channel is
+        the default TLS one, so the JVM has to trust the stand-in's certificate
+     */
+    static SecretManagerClientHolder clientHolder(int port) {
+        return new SecretManagerClientHolder(() -> SecretManagerServiceClient.create(SecretManagerServiceSettings.newBuilder()
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .setTransportChannelProvider(InstantiatingGrpcChannelProvider.newBuilder()
+                        .setEndpoint("localhost:" + port)
+                        .build())
+                .build()));
+    }
+
+    private synchronized AccessSecretVersionResponse accessSecretVersion(AccessSecretVersionRequest request) {
+        SecretVersionName secretVersionName = resolve(SecretVersionName.parse(request.getName()));
+        return AccessSecretVersionResponse.newBuilder()
+                .setName(secretVersionName.toString())
+                .setPayload(SecretPayload.newBuilder()
+                        .setData(secretIdToVersions.get(secretVersionName.getSecret())
+                                .get(Integer.parseInt(secretVersionName.getSecretVersion()) - 1)))
+                .build();
+    }
+
+    private synchronized SecretVersion getSecretVersion(GetSecretVersionRequest request) {
+        return SecretVersion.newBuilder()
+                .setName(resolve(SecretVersionName.parse(request.getName())).toString())
+                .build();
+    }
+
+    private synchronized SecretVersion addSecretVersion(AddSecretVersionRequest request) {
+        SecretName secretName = SecretName.parse(request.getParent());
+        String secretId = secretName.getSecret();
+        List<ByteString> versions = secretIdToVersions.get(secretId);
+        if (versions == null) {
+            throw Status.NOT_FOUND.withDescription("secret " + secretId).asRuntimeException();
+        }
+        versions.add(request.getPayload().getData());
+        return SecretVersion.newBuilder()
+                .setName(SecretVersionName.of(secretName.getProject(), secretId, String.valueOf(versions.size())).toString())
+                .build();
+    }
+
+    private synchronized SecretVersion destroySecretVersion(DestroySecretVersionRequest request) {
+        if (!destroyedVersionNames.add(request.getName())) {
+            throw Status.FAILED_PRECONDITION.withDescription("already destroyed").asRuntimeException();
+        }
+        return SecretVersion.newBuilder()
+                .setName(request.getName())
+                .setState(SecretVersion.State.DESTROYED)
+                .build();
+    }
+
+    private synchronized Secret createSecret(CreateSecretRequest request) {
+        if (secretIdToVersions.putIfAbsent(request.getSecretId(), new ArrayList<>()) != null) {
+            throw Status.ALREADY_EXISTS.withDescription("secret " + request.getSecretId()).asRuntimeException();
+        }
+        return Secret.newBuilder()
+                .setName(SecretName.of(ProjectName.parse(request.getParent()).getProject(), request.getSecretId()).toString())
+                .build();
+    }
+
+    /*
+        "latest" is the newest version not yet destroyed
+     */
+    private SecretVersionName resolve(SecretVersionName secretVersionName) {
+        List<ByteString> versions = secretIdToVersions.get(secretVersionName.getSecret());
+        if (versions == null || versions.isEmpty()) {
+            throw Status.NOT_FOUND.withDescription("secret " + secretVersionName.getSecret()).asRuntimeException();
+        }
+        if (!secretVersionName.getSecretVersion().equals("latest")) {
+            return secretVersionName;
+        }
+        for (int version = versions.size(); version > 0; version--) {
+            SecretVersionName candidate = SecretVersionName.of(secretVersionName.getProject(),
+                    secretVersionName.getSecret(),
+                    String.valueOf(version));
+            if (!destroyedVersionNames.contains(candidate.toString())) {
+                return candidate;
+            }
+        }
+        throw Status.NOT_FOUND.withDescription("no enabled versions of " + secretVersionName.getSecret()).asRuntimeException();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+
+    private static <Q extends Message, R extends Message> MethodDescriptor<Q, R> unaryMethod(String methodName,
+                                                                                            Q requestPrototype,
+                                                                                            R responsePrototype) {
+        return MethodDescriptor.<Q, R>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, methodName))
+                .setRequestMarshaller(ProtoUtils.marshaller(requestPrototype))
+                .setResponseMarshaller(ProtoUtils.marshaller(responsePrototype))
+                .build();
+    }
+
+    private static <Q, R> ServerCallHandler<Q, R> unaryCall(Function<Q, R> method) {
+        return ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+            try {
+                responseObserver.onNext(method.apply(request));
+                responseObserver.onCompleted();
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.redletra.standupsally.slack.SlackClientHolder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    A slack web api stand-in on a local port, served over TLS. The functions' own OkHttp client is
+    used, with an interceptor sending slack.com requests here, so the slack sdk, OkHttp and TLS
+    classes loaded are the ones used in production
+ */
+class LocalSlack implements AutoCloseable {
+
+    private final HttpsServer server;
+    private final Semaphore postedMessages = new Semaphore(0);
+
+    LocalSlack(LocalCertificate localCertificate, List<String> channelMembers) throws IOException, GeneralSecurityException {
+        server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(localCertificate.serverSslContext()));
+        server.createContext("/api/conversations.members", exchange -> respond(exchange,
+                "{\"ok\": true, \"members\": [" +
+                        channelMembers.stream().map(member -> "\"" + member + "\"").collect(Collectors.joining(", ")) +
+                        "], \"response_metadata\": {\"next_cursor\": \"\"}}"));
+        server.createContext("/api/chat.postMessage", exchange -> {
+            respond(exchange, "{\"ok\": true, \"channel\": \"C0LAN2Q65\", \"ts\": \"1515449522.000016\"}");
+            postedMessages.release();
+        });
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+        clients for the stand-in listening on the port, which may be in another process. They use the
+        JVM's default trust, so it has to trust the stand-in's certificate
+     */
+    static SlackClientHolder clientHolder(int port) {
+        return new SlackClientHolder(() -> new OkHttpClient.Builder()
+                .addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                        .url(chain.request().url().newBuilder()
+                                .scheme("https")
+                                .host("localhost")
+                                .port(port)
+                                .build())
+                        .build()))
+                .build());
+    }
+
+    /*
+        wait for the functions to post this many messages, false if they don't in time
+     */
+    boolean awaitPostedMessages(int messageCount, Duration timeout) throws InterruptedException {
+        return postedMessages.tryAcquire(messageCount, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        // the request body isn't needed, but must be read for the connection to be reused
+        exchange.getRequestBody().readAllBytes();
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bodyBytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bodyBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
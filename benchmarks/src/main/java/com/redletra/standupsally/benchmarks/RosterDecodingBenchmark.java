@@ -0,0 +1,49 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.redletra.standupsally.utils.RosterCodec;
+import com.redletra.standupsally.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Decoding the roster secret payload as SecretUtils does, in the binary format and the older text format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RosterDecodingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int channelCount;
+
+    @Param({"8", "40"})
+    private int membersPerChannel;
+
+    private byte[] binaryPayload;
+    private byte[] textPayload;
+
+    @Setup
+    public void setUp() {
+        Map<String, List<String>> channelIdToUserListMap = RosterFixtures.channelIdToUserListMap(channelCount, membersPerChannel);
+        binaryPayload = RosterCodec.encode(channelIdToUserListMap);
+        textPayload = Utils.generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUserListMap)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> decodeBinary() {
+        return RosterCodec.decode(binaryPayload);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> decodeText() {
+        return RosterCodec.decode(textPayload);
+    }
+}
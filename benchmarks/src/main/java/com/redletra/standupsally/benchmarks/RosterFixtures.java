@@ -0,0 +1,46 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.redletra.standupsally.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Rosters shaped like real ones: slack style channel and user ids, with users spread over
+    several channels as people are in more than one team
+ */
+class RosterFixtures {
+
+    static Map<String, List<String>> channelIdToUserListMap(int channelCount, int membersPerChannel) {
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+        for (int channel = 0; channel < channelCount; channel++) {
+            List<String> userList = new ArrayList<>(membersPerChannel);
+            for (int member = 0; member < membersPerChannel; member++) {
+                userList.add(userId(channel * membersPerChannel / 2 + member));
+            }
+            channelIdToUserListMap.put(channelId(channel), userList);
+        }
+        return channelIdToUserListMap;
+    }
+
+    /*
+        the last runner in each channel, part way through its rotation, stored with their position
+     */
+    static Map<String, String> userForEachChannelWhoLastRanStandup(Map<String, List<String>> channelIdToUserListMap) {
+        Map<String, String> userForEachChannelWhoLastRanStandup = new HashMap<>();
+        channelIdToUserListMap.forEach((channelId, userList) ->
+                userForEachChannelWhoLastRanStandup.put(channelId,
+                        Utils.rotationEntry(userList.get(userList.size() / 2), userList.size() / 2)));
+        return userForEachChannelWhoLastRanStandup;
+    }
+
+    static String channelId(int channel) {
+        return String.format("C%08X", channel);
+    }
+
+    static String userId(int user) {
+        return String.format("U%010X", user);
+    }
+}
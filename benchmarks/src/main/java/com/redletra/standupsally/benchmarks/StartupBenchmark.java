@@ -0,0 +1,106 @@
+package com.redletra.standupsally.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Time to first response of a cold listener: a new JVM is started for every run, and timed from
+    launch until the listener has acknowledged one signed event, Secret Manager lookup included.
+    Each run is made without class data sharing, with the JDK's own archive (the default) and with
+    the archive the appcds profile builds. JMH isn't used, as what matters here is everything before
+    the first call.
+
+    Run it on the classpath the archive was built for, from the project directory:
+    java -cp "$(cat benchmarks/target/appcds/classpath.txt):benchmarks/target/classes" \
+        com.redletra.standupsally.benchmarks.StartupBenchmark [runs]
+ */
+public class StartupBenchmark {
+
+    private static final Path ARCHIVE = Paths.get("benchmarks", "target", "appcds", "standup-sally.jsa");
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        if (!Files.exists(ARCHIVE)) {
+            System.err.println(ARCHIVE + " not found, build it with mvn -f benchmarks/pom.xml -Pappcds package");
+            System.exit(2);
+        }
+
+        LocalCertificate localCertificate = LocalCertificate.generate();
+        try (LocalSecretManager localSecretManager = new LocalSecretManager(localCertificate);
+             LocalSlack localSlack = new LocalSlack(localCertificate, List.of(RosterFixtures.userId(0)))) {
+            ColdStart.seed(localSecretManager, RosterFixtures.channelIdToUserListMap(20, 8));
+            List<String> coldStartArgs = new ArrayList<>(localCertificate.trustOptions());
+            coldStartArgs.addAll(List.of(ColdStart.class.getName(),
+                    "first-response",
+                    String.valueOf(localSecretManager.getPort()),
+                    String.valueOf(localSlack.getPort())));
+
+            // the first run only warms the file cache
+            timeToFirstResponseMillis(List.of(), coldStartArgs);
+            report("no class data sharing", runs, List.of("-Xshare:off"), coldStartArgs);
+            report("jdk archive", runs, List.of(), coldStartArgs);
+            // on rather than auto, so an archive built for another JDK or classpath fails rather than being ignored
+            report("appcds archive", runs, List.of("-Xshare:on", "-XX:SharedArchiveFile=" + ARCHIVE), coldStartArgs);
+        }
+    }
+
+    private static void report(String configuration,
+                               int runs,
+                               List<String> jvmOptions,
+                               List<String> coldStartArgs) throws IOException, InterruptedException {
+        List<Long> timesToFirstResponse = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            timesToFirstResponse.add(timeToFirstResponseMillis(jvmOptions, coldStartArgs));
+        }
+        Collections.sort(timesToFirstResponse);
+        System.out.printf("%-22s time to first response: min %5dms  median %5dms  max %5dms  (%d runs)%n",
+                configuration,
+                timesToFirstResponse.get(0),
+                timesToFirstResponse.get(timesToFirstResponse.size() / 2),
+                timesToFirstResponse.get(timesToFirstResponse.size() - 1),
+                runs);
+    }
+
+    private static long timeToFirstResponseMillis(List<String> jvmOptions,
+                                                  List<String> coldStartArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.addAll(coldStartArgs);
+
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        Long timeToFirstResponseMillis = null;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            // read to the end, so the process never blocks on a full pipe
+            while ((line = reader.readLine()) != null) {
+                if (timeToFirstResponseMillis == null && line.startsWith(ColdStart.FIRST_RESPONSE)) {
+                    timeToFirstResponseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                }
+                output.add(line);
+            }
+        }
+        if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0 || timeToFirstResponseMillis == null) {
+            process.destroyForcibly();
+            throw new IllegalStateException("cold start failed: " + String.join(" ", command) + System.lineSeparator() +
+                    String.join(System.lineSeparator(), output));
+        }
+        return timeToFirstResponseMillis;
+    }
+}
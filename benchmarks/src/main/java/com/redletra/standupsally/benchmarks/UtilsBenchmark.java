@@ -0,0 +1,59 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.redletra.standupsally.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The roster parsing, rotation and serialising done on every event and every daily run
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int channelCount;
+
+    @Param({"8", "40"})
+    private int membersPerChannel;
+
+    private Map<String, List<String>> channelIdToUserListMap;
+    private Map<String, String> userForEachChannelWhoLastRanStandup;
+    private String channelToUsersString;
+    private final String appMentionContent = "<@U032VM4S54Z> remove <@U01LMQ1KAFL>";
+
+    @Setup
+    public void setUp() {
+        channelIdToUserListMap = RosterFixtures.channelIdToUserListMap(channelCount, membersPerChannel);
+        userForEachChannelWhoLastRanStandup = RosterFixtures.userForEachChannelWhoLastRanStandup(channelIdToUserListMap);
+        channelToUsersString = Utils.generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUserListMap);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> convertChannelToUsersStringToMap() {
+        return Utils.convertChannelToUsersStringToMap(channelToUsersString);
+    }
+
+    @Benchmark
+    public String generateSecretStringFromChannelIdToUserHandlesListMap() {
+        return Utils.generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUserListMap);
+    }
+
+    @Benchmark
+    public Map<String, String> getNextUserHandles() {
+        return Utils.getNextUserHandles(channelIdToUserListMap, userForEachChannelWhoLastRanStandup);
+    }
+
+    @Benchmark
+    public Optional<String> getUserFromAppMentionEvent() {
+        return Utils.getUserFromAppMentionEvent(appMentionContent);
+    }
+}
@@ -0,0 +1,46 @@
+package com.redletra.standupsally.benchmarks;
+
+import com.redletra.standupsally.functions.StandupSallyEventListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Slack signature validation, done on every request the listener receives
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateRequestBenchmark {
+
+    // an app mention, and a message with a long block of text
+    @Param({"0", "4000"})
+    private int extraTextLength;
+
+    private StandupSallyEventListener standupSallyEventListener;
+    private byte[] rawBody;
+    private final String slackSigningSecret = "11111111111111111111111111111111";
+    private final String slackSignatureHeader = "v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad";
+    private final String slackRequestTimestamp = "1531420618";
+
+    @Setup
+    public void setUp() {
+        standupSallyEventListener = new StandupSallyEventListener();
+        rawBody = ("{\"token\": \"ZZZZZZWSxiZZZ2yIvs3peJ\", \"team_id\": \"T061EG9R6\", \"api_app_id\": \"A0MDYCDME\"," +
+                " \"event\": {\"type\": \"app_mention\", \"user\": \"U061F7AUR\", \"text\": \"<@U0LAN0Z89> add us " +
+                "x".repeat(extraTextLength) + "\", \"ts\": \"1515449522.000016\", \"channel\": \"C0LAN2Q65\"}," +
+                " \"type\": \"event_callback\", \"event_id\": \"Ev0LAN670R\", \"event_time\": 1515449522000016}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+        the signature won't match, which costs the same as when it does
+     */
+    @Benchmark
+    public boolean validateRequest() {
+        return standupSallyEventListener.validateRequest(rawBody, slackSigningSecret, slackSignatureHeader, slackRequestTimestamp);
+    }
+}
@@ -0,0 +1,121 @@
+package com.redletra.standupsally.events;
+
+import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+    Gathers the welcome and bye bye messages for users joining and leaving a channel in a batch of
+    events and posts them as one message per channel, "Standup Sally says welcome <@a>, <@b>, <@c>",
+    rather than one chat.postMessage per user when a group is added at once.
+    A batch holds the events of the requests which arrived within a short window, see EventBatcher.
+    Nothing is posted until flush, which the listener calls before any of those requests responds,
+    so no feedback is left waiting on an instance which may be frozen once the response is sent.
+    A channel with more than maxUsersPerMessage users is posted as several messages. A user who
+    joins and leaves in the same batch ends up where they started, so neither message is posted
+ */
+public class ChannelFeedbackAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelFeedbackAggregator.class);
+
+    public enum Feedback {
+        WELCOME("welcome"),
+        BYE("bye bye");
+
+        private final String greeting;
+
+        Feedback(String greeting) {
+            this.greeting = greeting;
+        }
+    }
+
+    private final StandupSallySlackApiInvoker standupSallySlackApiInvoker;
+    private final int maxUsersPerMessage;
+
+    // channel id -> pending feedback and the token to post it with
+    private final Map<String, PendingFeedback> channelIdToPendingFeedback = new LinkedHashMap<>();
+
+    public ChannelFeedbackAggregator(StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                                     int maxUsersPerMessage) {
+        this.standupSallySlackApiInvoker = standupSallySlackApiInvoker;
+        this.maxUsersPerMessage = maxUsersPerMessage;
+    }
+
+    public synchronized void submit(String channelId,
+                                    String userId,
+                                    Feedback feedback,
+                                    String slackAuthToken) {
+        PendingFeedback pendingFeedback = channelIdToPendingFeedback.computeIfAbsent(channelId, key -> new PendingFeedback());
+        pendingFeedback.slackAuthToken = slackAuthToken;
+        Feedback earlierFeedback = pendingFeedback.userIdToFeedback.remove(userId);
+        if (earlierFeedback == null || earlierFeedback == feedback) {
+            pendingFeedback.userIdToFeedback.put(userId, feedback);
+        } else if (pendingFeedback.userIdToFeedback.isEmpty()) {
+            // a join and a leave cancel out
+            channelIdToPendingFeedback.remove(channelId);
+        }
+    }
+
+    /*
+        post everything pending, on the calling thread
+     */
+    public void flush() {
+        Map<String, PendingFeedback> feedbackToPost;
+        synchronized (this) {
+            feedbackToPost = new LinkedHashMap<>(channelIdToPendingFeedback);
+            channelIdToPendingFeedback.clear();
+        }
+        feedbackToPost.forEach(this::postQuietly);
+    }
+
+    /*
+        drop everything pending without posting it
+     */
+    public synchronized void discard() {
+        channelIdToPendingFeedback.clear();
+    }
+
+    private void postQuietly(String channelId, PendingFeedback pendingFeedback) {
+        List<Map.Entry<String, Feedback>> userFeedback = new ArrayList<>(pendingFeedback.userIdToFeedback.entrySet());
+        for (int from = 0; from < userFeedback.size(); from += maxUsersPerMessage) {
+            Map<String, Feedback> userIdToFeedback = new LinkedHashMap<>();
+            userFeedback.subList(from, Math.min(from + maxUsersPerMessage, userFeedback.size()))
+                    .forEach(entry -> userIdToFeedback.put(entry.getKey(), entry.getValue()));
+            try {
+                standupSallySlackApiInvoker.appMentionActionFeedback(message(userIdToFeedback),
+                        pendingFeedback.slackAuthToken,
+                        channelId);
+            } catch (RuntimeException e) {
+                logger.warn("failed to post feedback to channel {}", channelId, e);
+            }
+        }
+    }
+
+    /*
+        "Standup Sally says welcome <@a>, <@b>", with a line for each kind of feedback pending
+     */
+    static String message(Map<String, Feedback> userIdToFeedback) {
+        List<String> lines = new ArrayList<>();
+        for (Feedback feedback : Feedback.values()) {
+            List<String> users = userIdToFeedback.entrySet().stream()
+                    .filter(userFeedback -> userFeedback.getValue() == feedback)
+                    .map(userFeedback -> "<@" + userFeedback.getKey() + ">")
+                    .collect(Collectors.toList());
+            if (!users.isEmpty()) {
+                lines.add("Standup Sally says " + feedback.greeting + " " + String.join(", ", users));
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    private static class PendingFeedback {
+        private final Map<String, Feedback> userIdToFeedback = new LinkedHashMap<>();
+        private String slackAuthToken;
+    }
+}
@@ -0,0 +1,118 @@
+package com.redletra.standupsally.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/*
+    Gathers the events of concurrent requests into one batch, so their roster changes are written
+    together and their feedback posted together, rather than once per request.
+    The first request to arrive opens a batch and waits up to window for others to join it, or
+    until maxBatchSize events have, then processes the whole batch on its thread. Every request in
+    the batch waits for that before it returns, so the batch is written and posted before any of
+    them responds: nothing is left pending on an instance whose CPU is throttled once it has
+    responded.
+    One batch is processed at a time, while the next one gathers. Requests only share a batch when
+    the function runs more than one request at a time on an instance, otherwise each batch holds
+    a single event and the window is just added to its response
+ */
+public class EventBatcher<T> {
+
+    public interface BatchProcessor<T> {
+        /*
+            process the batch, returning the events which failed and why, keyed by identity
+         */
+        Map<T, RuntimeException> process(List<T> batch);
+    }
+
+    private final Duration window;
+    private final int maxBatchSize;
+    private final BatchProcessor<T> batchProcessor;
+    private final Object processingLock = new Object();
+
+    // the batch requests are joining, null until the next request opens one
+    private Batch<T> openBatch;
+
+    public EventBatcher(Duration window, int maxBatchSize, BatchProcessor<T> batchProcessor) {
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.batchProcessor = batchProcessor;
+    }
+
+    /*
+        add the event to a batch and return once the batch has been processed, throwing if the
+        event failed
+     */
+    public void submit(T event) {
+        Batch<T> batch;
+        boolean opened;
+        synchronized (this) {
+            opened = openBatch == null;
+            if (opened) {
+                openBatch = new Batch<>();
+            }
+            batch = openBatch;
+            batch.events.add(event);
+            if (batch.events.size() >= maxBatchSize) {
+                // full, so it is processed straight away and later requests open the next batch
+                openBatch = null;
+                notifyAll();
+            }
+        }
+
+        if (opened) {
+            awaitWindow(batch);
+            process(batch);
+        }
+        RuntimeException failure = batch.failures.join().get(event);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized void awaitWindow(Batch<T> batch) {
+        long deadlineNanos = System.nanoTime() + window.toNanos();
+        boolean interrupted = false;
+        long remainingNanos;
+        while (openBatch == batch && (remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+            try {
+                wait(remainingNanos / 1_000_000, (int) (remainingNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                // the batch is processed anyway, the others in it are waiting on it
+                interrupted = true;
+                break;
+            }
+        }
+        // later requests open the next batch
+        if (openBatch == batch) {
+            openBatch = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Batch<T> batch) {
+        List<T> events;
+        synchronized (this) {
+            events = List.copyOf(batch.events);
+        }
+        synchronized (processingLock) {
+            Map<T, RuntimeException> failures = new IdentityHashMap<>();
+            try {
+                failures.putAll(batchProcessor.process(events));
+            } catch (RuntimeException e) {
+                events.forEach(event -> failures.put(event, e));
+            }
+            batch.failures.complete(failures);
+        }
+    }
+
+    private static class Batch<T> {
+        private final List<T> events = new ArrayList<>();
+        private final CompletableFuture<Map<T, RuntimeException>> failures = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,89 @@
+package com.redletra.standupsally.events;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+    LRU store which also appends every processed event id to a local file, and reloads the most
+    recent ids from it on start up, so ids survive the process being restarted on the same disk.
+    The file is rewritten with just the retained ids once it grows to twice the capacity
+ */
+public class FileSlackEventDeduplicationStore implements SlackEventDeduplicationStore {
+
+    private final Path file;
+    private final int capacity;
+    private final LruSlackEventDeduplicationStore lruStore;
+    private final Deque<String> recentEventIds = new ArrayDeque<>();
+    private int linesInFile;
+
+    public FileSlackEventDeduplicationStore(Path file, int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+        this.lruStore = new LruSlackEventDeduplicationStore(capacity);
+        try {
+            if (Files.exists(file)) {
+                List<String> eventIds = Files.readAllLines(file, StandardCharsets.UTF_8);
+                eventIds.subList(Math.max(0, eventIds.size() - capacity), eventIds.size())
+                        .forEach(this::remember);
+                linesInFile = eventIds.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean isProcessed(String eventId) {
+        return lruStore.isProcessed(eventId);
+    }
+
+    @Override
+    public synchronized void markProcessed(Collection<String> eventIds) {
+        List<String> newEventIds = eventIds.stream()
+                .filter(this::remember)
+                .collect(Collectors.toList());
+        if (newEventIds.isEmpty()) {
+            return;
+        }
+        try {
+            if (linesInFile + newEventIds.size() > 2 * capacity) {
+                compact();
+            } else {
+                Files.write(file, newEventIds, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                linesInFile += newEventIds.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean remember(String eventId) {
+        if (lruStore.isProcessed(eventId)) {
+            return false;
+        }
+        lruStore.markProcessed(List.of(eventId));
+        recentEventIds.addLast(eventId);
+        if (recentEventIds.size() > capacity) {
+            recentEventIds.removeFirst();
+        }
+        return true;
+    }
+
+    private void compact() throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, recentEventIds, StandardCharsets.UTF_8);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        linesInFile = recentEventIds.size();
+    }
+}
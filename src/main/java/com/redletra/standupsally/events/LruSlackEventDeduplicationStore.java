@@ -0,0 +1,37 @@
+package com.redletra.standupsally.events;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Keeps the most recently processed event ids in memory, forgetting the least recently seen once
+    capacity is reached. Slack gives up retrying after a few minutes, so only recent ids matter.
+    Only retries which reach the same instance are recognised. A retry which lands on another
+    instance is processed again, which costs a duplicate welcome at worst, as roster changes are
+    idempotent. Sharing the ids between instances would cost a Secret Manager read and write per
+    event, more than the duplicates it saves
+ */
+public class LruSlackEventDeduplicationStore implements SlackEventDeduplicationStore {
+
+    private final Map<String, Boolean> seenEventIds;
+
+    public LruSlackEventDeduplicationStore(int capacity) {
+        this.seenEventIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public synchronized boolean isProcessed(String eventId) {
+        return seenEventIds.containsKey(eventId);
+    }
+
+    @Override
+    public synchronized void markProcessed(Collection<String> eventIds) {
+        eventIds.forEach(eventId -> seenEventIds.put(eventId, Boolean.TRUE));
+    }
+}
@@ -0,0 +1,94 @@
+package com.redletra.standupsally.events;
+
+import com.redletra.standupsally.state.StateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    Gathers the users joining and leaving channels in one batch of events and writes them to the
+    channel id to user list state as a single update, rather than one update (with the Secret Manager
+    store, one new version and one destroy) per event.
+    A batch holds the events of the requests which arrived within a short window, see EventBatcher,
+    and is flushed before any of those requests gets its response: once the response is sent the
+    instance's CPU is throttled and it may be recycled, losing anything pending.
+    If a user joins and then leaves (or leaves and rejoins) within the batch only the later change
+    is kept, so the pair costs at most one no-op check rather than two writes
+ */
+public class RosterUpdateCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RosterUpdateCoalescer.class);
+
+    public enum RosterChange { ADD, REMOVE }
+
+    private final StateStore stateStore;
+
+    // channel id -> user id -> latest change, in the order the users were first seen
+    private Map<String, Map<String, RosterChange>> pendingChanges = new LinkedHashMap<>();
+
+    public RosterUpdateCoalescer(StateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    public synchronized void submit(String channelId,
+                                    String userId,
+                                    RosterChange rosterChange) {
+        pendingChanges.computeIfAbsent(channelId, key -> new LinkedHashMap<>())
+                .put(userId, rosterChange);
+    }
+
+    /*
+        write everything pending now. If the write fails the changes are dropped rather than kept for
+        a later batch: their events are not recorded as processed, so slack retries them
+     */
+    public void flush() {
+        Map<String, Map<String, RosterChange>> changesToWrite;
+        synchronized (this) {
+            if (pendingChanges.isEmpty()) {
+                return;
+            }
+            changesToWrite = pendingChanges;
+            pendingChanges = new LinkedHashMap<>();
+        }
+
+        try {
+            // only the channels which changed are read and rewritten, if the store is sharded
+            stateStore.updateChannelUserLists(changesToWrite.keySet(),
+                    channelIdToUserListMap -> applyChanges(channelIdToUserListMap, changesToWrite));
+        } catch (RuntimeException e) {
+            logger.warn("failed to write roster updates for channels {}: {}", changesToWrite.keySet(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /*
+        apply the changes to the map, returning empty if none of them changed anything. Channels
+        which are not in the map are ignored
+     */
+    static Optional<Map<String, List<String>>> applyChanges(Map<String, List<String>> channelIdToUserListMap,
+                                                           Map<String, Map<String, RosterChange>> changes) {
+        boolean changed = false;
+        for (Map.Entry<String, Map<String, RosterChange>> channelChanges : changes.entrySet()) {
+            List<String> userList = channelIdToUserListMap.get(channelChanges.getKey());
+            if (userList == null) {
+                continue;
+            }
+            for (Map.Entry<String, RosterChange> userChange : channelChanges.getValue().entrySet()) {
+                String userId = userChange.getKey();
+                if (userChange.getValue() == RosterChange.ADD) {
+                    if (!userList.contains(userId)) {
+                        userList.add(userId);
+                        changed = true;
+                    }
+                } else {
+                    changed |= userList.remove(userId);
+                }
+            }
+        }
+        return changed ? Optional.of(channelIdToUserListMap) : Optional.empty();
+    }
+}
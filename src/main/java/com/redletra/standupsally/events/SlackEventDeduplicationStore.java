@@ -0,0 +1,19 @@
+package com.redletra.standupsally.events;
+
+import java.util.Collection;
+
+/*
+    Remembers the event_id of slack events we have already processed, so a slack retry of an
+    event is processed exactly once rather than never. An event is only recorded once it has been
+    processed successfully, so a retry of an event which failed part way is processed again
+ */
+public interface SlackEventDeduplicationStore {
+
+    boolean isProcessed(String eventId);
+
+    /*
+        record the event ids, once the events have been processed. Takes every id of a batch at
+        once, so a store which writes somewhere writes once per batch rather than once per event
+     */
+    void markProcessed(Collection<String> eventIds);
+}
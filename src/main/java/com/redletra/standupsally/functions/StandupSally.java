@@ -4,38 +4,109 @@ import com.google.cloud.functions.HttpFunction;
 import com.google.cloud.functions.HttpRequest;
 import com.google.cloud.functions.HttpResponse;
 import com.google.cloud.secretmanager.v1.*;
+import com.redletra.standupsally.metrics.MetricsRegistry;
+import com.redletra.standupsally.slack.StandupAnnouncementResult;
 import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
+import com.redletra.standupsally.state.StateStore;
+import com.redletra.standupsally.state.StateStores;
 import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
 import com.redletra.standupsally.utils.SecretUtils;
 import com.redletra.standupsally.utils.Utils;
-import org.javatuples.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.time.*;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 public class StandupSally implements HttpFunction {
 
+    private static final Logger logger = LoggerFactory.getLogger(StandupSally.class);
+
     private StandupSallySlackApiInvoker standupSallySlackApiInvoker;
     private SecretUtils secretUtils;
+    private final SecretManagerClientHolder secretManagerClientHolder;
+    private final StateStore stateStore;
+    private final Duration secretPrefetchTimeout;
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.global();
+    // reused across invocations of a warm instance
+    private final ExecutorService secretPrefetchExecutor = Executors.newFixedThreadPool(Constants.SECRET_PREFETCH_THREADS,
+            runnable -> {
+                Thread thread = new Thread(runnable, "secret-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     /*
         for testing
      */
     public StandupSally(SecretUtils secretUtils,
                         StandupSallySlackApiInvoker standupSallySlackApiInvoker) {
+        this(secretUtils, standupSallySlackApiInvoker, new SecretManagerClientHolder());
+    }
+
+    public StandupSally(SecretUtils secretUtils,
+                        StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                        SecretManagerClientHolder secretManagerClientHolder) {
+        this(secretUtils,
+                standupSallySlackApiInvoker,
+                secretManagerClientHolder,
+                StateStores.forDeployment(secretUtils, secretManagerClientHolder));
+    }
+
+    /*
+        secretUtils is only used for the slack credentials, application state lives in the stateStore
+     */
+    public StandupSally(SecretUtils secretUtils,
+                        StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                        SecretManagerClientHolder secretManagerClientHolder,
+                        StateStore stateStore) {
+        this(secretUtils, standupSallySlackApiInvoker, secretManagerClientHolder, stateStore, Constants.SECRET_PREFETCH_TIMEOUT);
+    }
+
+    /*
+        for testing
+     */
+    public StandupSally(SecretUtils secretUtils,
+                        StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                        SecretManagerClientHolder secretManagerClientHolder,
+                        StateStore stateStore,
+                        Duration secretPrefetchTimeout) {
         this.secretUtils = secretUtils;
         this.standupSallySlackApiInvoker = standupSallySlackApiInvoker;
+        this.secretManagerClientHolder = secretManagerClientHolder;
+        this.stateStore = stateStore;
+        this.secretPrefetchTimeout = secretPrefetchTimeout;
     }
 
     public StandupSally() {
-        this.standupSallySlackApiInvoker = new StandupSallySlackApiInvoker();
-        this.secretUtils = new SecretUtils();
+        this(new SecretUtils(), new StandupSallySlackApiInvoker(), new SecretManagerClientHolder());
     }
 
     // uses an HTTP request - would be better to use Pub/Sub
     public void service(final HttpRequest request, final HttpResponse response) throws Exception {
+        long runStartNanos = System.nanoTime();
+        try {
+            runStandup(response);
+        } finally {
+            metricsRegistry.timer("standup_sally.run").recordSince(runStartNanos);
+            // runs are a day apart, so report every run rather than waiting for the interval
+            metricsRegistry.report();
+        }
+    }
+
+    private void runStandup(final HttpResponse response) throws Exception {
 
         Instant nowUtc = Instant.now();
         ZoneId ausSydney = ZoneId.of("Australia/Sydney");
@@ -46,55 +117,107 @@ public class StandupSally implements HttpFunction {
             writer.write("Done- weekend!");
         }
 
-        try (SecretManagerServiceClient client = SecretManagerServiceClient.create()) {
-
-            // slack oauthtoken
-            String slackOauthToken = secretUtils.getSlackToken(client);
+        // the client is shared across invocations, so it is not closed here
+        SecretManagerServiceClient client = secretManagerClientHolder.get();
+        try {
 
+            long prefetchStartNanos = System.nanoTime();
+            // the reads are independent, so fetch them all at once rather than paying for
+            // four round trips one after another
+            Future<String> slackOauthTokenFuture =
+                    secretPrefetchExecutor.submit(() -> secretUtils.getSlackToken(client));
             // channel members eg channeid1=@tom,@steve;channelid2=@dave,@susy,@chris....
             // (secret has payload max of 64Kb so we should be good for a few teams
-            Map<String, List<String>> channelIdToUserListMap = this.secretUtils.getChannelIdToUserListMap(client).getValue0();
-
+            Future<Map<String, List<String>>> channelIdToUserListMapFuture =
+                    secretPrefetchExecutor.submit(stateStore::getChannelIdToUserListMap);
             // get the channel to last slack handle to run standup
-            Pair<Map<String, String>, SecretVersion> lastUserForEachChannelToRunStandupAndSecretVersionPair =
-                    secretUtils.getUserForEachChannelWhoLastRanStandup(client);
+            Future<Map<String, String>> lastUserForEachChannelToRunStandupFuture =
+                    secretPrefetchExecutor.submit(stateStore::getUserForEachChannelWhoLastRanStandup);
+            Future<LocalDate> sprintStartDateFuture =
+                    secretPrefetchExecutor.submit(stateStore::getSprintStartDate);
+
+            try {
+                awaitAll(List.of(slackOauthTokenFuture,
+                        channelIdToUserListMapFuture,
+                        lastUserForEachChannelToRunStandupFuture,
+                        sprintStartDateFuture),
+                        secretPrefetchTimeout);
+            } finally {
+                metricsRegistry.timer("standup_sally.secret_prefetch").recordSince(prefetchStartNanos);
+            }
+
+            // slack oauthtoken
+            String slackOauthToken = slackOauthTokenFuture.get();
 
-            Map<String, String> channelIdToUserWhoLastRanStandupMap = lastUserForEachChannelToRunStandupAndSecretVersionPair.getValue0();
-            // need this because we will have to delete the old version after we update the user who will run standup today
-            SecretVersion channelIdToUserWhoLastRanStandupSecretVersion = lastUserForEachChannelToRunStandupAndSecretVersionPair.getValue1();
+            Map<String, List<String>> channelIdToUserListMap = channelIdToUserListMapFuture.get();
 
-            if(Utils.notFirstMondayOfSprint(this.secretUtils.getSprintStartDate(client), LocalDate.now(ZoneId.of("Australia/Sydney")))) {
-                Map<String, String> nextUserHandleForEachChannelToRunStandup = Utils.getNextUserHandles(channelIdToUserListMap,
+            Map<String, String> channelIdToUserWhoLastRanStandupMap = lastUserForEachChannelToRunStandupFuture.get();
+
+            List<StandupAnnouncementResult> failedAnnouncements = List.of();
+            if(Utils.notFirstMondayOfSprint(sprintStartDateFuture.get(), LocalDate.now(ZoneId.of("Australia/Sydney")))) {
+                // stored with each runner's position, so tomorrow's run can find the next runner without searching
+                Map<String, String> nextRotationEntryForEachChannel = Utils.getNextRotationEntries(channelIdToUserListMap,
                         channelIdToUserWhoLastRanStandupMap);
 
-                updateLastUserSecret(client,
-                        nextUserHandleForEachChannelToRunStandup,
-                        channelIdToUserWhoLastRanStandupSecretVersion);
+                updateLastUserSecret(nextRotationEntryForEachChannel);
+
+                Map<String, String> nextUserHandleForEachChannelToRunStandup = new HashMap<>();
+                nextRotationEntryForEachChannel.forEach((channelId, rotationEntry) ->
+                        nextUserHandleForEachChannelToRunStandup.put(channelId, Utils.userHandleFromRotationEntry(rotationEntry)));
 
-                standupSallySlackApiInvoker.informStandupRunner(nextUserHandleForEachChannelToRunStandup, slackOauthToken);
+                Map<String, StandupAnnouncementResult> channelIdToAnnouncementResult = metricsRegistry.time("standup_sally.inform_standup_runner", () ->
+                        standupSallySlackApiInvoker.informStandupRunner(nextUserHandleForEachChannelToRunStandup, slackOauthToken));
+                failedAnnouncements = channelIdToAnnouncementResult.values().stream()
+                        .filter(result -> !result.isSuccess())
+                        .collect(Collectors.toList());
             }
 
             final BufferedWriter writer = response.getWriter();
-            writer.write("Done!");
+            if (failedAnnouncements.isEmpty()) {
+                writer.write("Done!");
+            } else {
+                // the rotation has already moved on, so the run is not failed (and retried) over these.
+                // They are logged as errors so they can be alerted on, and those channels told by hand
+                logger.error("failed to tell {} channels who is running standup: {}", failedAnnouncements.size(), failedAnnouncements);
+                metricsRegistry.counter("standup_sally.failed_announcements").add(failedAnnouncements.size());
+                writer.write("Done! Failed to announce in " + failedAnnouncements);
+            }
 
+        } catch (Exception e) {
+            secretManagerClientHolder.resetIfUnavailable(e);
+            throw e;
+        }
+    }
 
+    /*
+        wait for all the futures to complete within the timeout. If one fails or they don't all
+        complete in time, every one still running is cancelled, which interrupts its Secret Manager
+        call (the futures come from ExecutorService.submit, CompletableFuture.cancel wouldn't)
+     */
+    private static void awaitAll(List<Future<?>> futures, Duration timeout) throws ExecutionException,
+            InterruptedException,
+            TimeoutException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Future<?> future : futures) {
+                future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
         }
     }
 
     /*
       for each channel id in the map nextUserHandleToRunStandup, update the secret which stores the
-      last user to run standup in each channel
+      last user to run standup in each channel. Channels added to the secret by the event listener
+      since we read it are left alone
      */
-    void updateLastUserSecret(SecretManagerServiceClient client,
-                                      Map<String, String> channelIdToNextUserHandleToRunStandupMap,
-                                      SecretVersion lastUserToRunStandupSecretVersionName) {
-
-        //generate the new secret string from map nextUserHandleToRunStandup
-        String channelIdToUserHandleToRunStandupSecretString = Utils.generateSecretStringFromChannelIdToLastUserToRunStandupMap(channelIdToNextUserHandleToRunStandupMap);
-        this.secretUtils.createNewSecretVersionAndDeleteOld(channelIdToUserHandleToRunStandupSecretString,
-                client,
-                lastUserToRunStandupSecretVersionName,
-                Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME);
+    void updateLastUserSecret(Map<String, String> channelIdToNextUserHandleToRunStandupMap) {
+        this.stateStore.updateUserForEachChannelWhoLastRanStandup(channelIdToLastUserToRunStandupMap -> {
+            channelIdToLastUserToRunStandupMap.putAll(channelIdToNextUserHandleToRunStandupMap);
+            return Optional.of(channelIdToLastUserToRunStandupMap);
+        });
     }
 
 }
@@ -4,92 +4,187 @@ import com.google.cloud.functions.HttpFunction;
 import com.google.cloud.functions.HttpRequest;
 import com.google.cloud.functions.HttpResponse;
 import com.google.cloud.secretmanager.v1.*;
-import com.google.common.io.BaseEncoding;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.redletra.standupsally.events.ChannelFeedbackAggregator;
+import com.redletra.standupsally.events.ChannelFeedbackAggregator.Feedback;
+import com.redletra.standupsally.events.EventBatcher;
+import com.redletra.standupsally.events.LruSlackEventDeduplicationStore;
+import com.redletra.standupsally.events.RosterUpdateCoalescer;
+import com.redletra.standupsally.events.RosterUpdateCoalescer.RosterChange;
+import com.redletra.standupsally.events.SlackEventDeduplicationStore;
+import com.redletra.standupsally.metrics.MetricsRegistry;
+import com.redletra.standupsally.metrics.Timer;
+import com.redletra.standupsally.slack.ChannelMembershipCache;
 import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
-import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.state.StateStore;
+import com.redletra.standupsally.state.StateStores;
 import com.redletra.standupsally.utils.InvalidAppRequestException;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
 import com.redletra.standupsally.utils.SecretUtils;
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.redletra.standupsally.utils.SlackEventProcessingException;
+import com.redletra.standupsally.utils.SlackRequestPreValidator;
+import com.redletra.standupsally.utils.SlackSignatureVerifier;
 import com.redletra.standupsally.utils.Utils;
-import org.javatuples.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.redletra.standupsally.utils.Constants.*;
-import static com.redletra.standupsally.utils.Utils.generateSecretStringFromChannelIdToUserHandlesListMap;
 
 public class StandupSallyEventListener implements HttpFunction {
 
+    private static final Logger logger = LoggerFactory.getLogger(StandupSallyEventListener.class);
+
     private static final Gson gson = new Gson();
     private final SecretUtils secretUtils;
     private final StandupSallySlackApiInvoker standupSallySlackApiInvoker;
+    private final SecretManagerClientHolder secretManagerClientHolder;
+    private final SlackEventDeduplicationStore slackEventDeduplicationStore;
+    private final RosterUpdateCoalescer rosterUpdateCoalescer;
+    private final StateStore stateStore;
+    private final SlackRequestPreValidator slackRequestPreValidator;
+    private final ChannelMembershipCache channelMembershipCache;
+    private final ChannelFeedbackAggregator channelFeedbackAggregator;
+    private final EventBatcher<JsonObject> eventBatcher;
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.global();
+    /*
+        map of slack event type to a Consumer which process the event, and to the timer for it.
+        Both are built once, not looked up per event
+     */
+    private final Map<String, BiConsumer<JsonObject, SecretManagerServiceClient>> eventProcessorMap;
+    private final Map<String, Timer> eventTimers;
+    private volatile SlackSignatureVerifier slackSignatureVerifier;
 
     public StandupSallyEventListener() {
-        this.standupSallySlackApiInvoker = new StandupSallySlackApiInvoker();
-        this.secretUtils = new SecretUtils();
+        this(new SecretUtils(), new StandupSallySlackApiInvoker());
     }
 
     public StandupSallyEventListener(SecretUtils secretUtils, StandupSallySlackApiInvoker standupSallySlackApiInvoker) {
+        this(secretUtils, standupSallySlackApiInvoker, new SecretManagerClientHolder());
+    }
+
+    private StandupSallyEventListener(SecretUtils secretUtils,
+                                      StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                                      SecretManagerClientHolder secretManagerClientHolder) {
+        this(secretUtils,
+                standupSallySlackApiInvoker,
+                secretManagerClientHolder,
+                StateStores.forDeployment(secretUtils, secretManagerClientHolder),
+                new LruSlackEventDeduplicationStore(PROCESSED_SLACK_EVENT_IDS_CAPACITY));
+    }
+
+    /*
+        secretUtils is only used for the slack credentials, application state lives in the stateStore
+     */
+    public StandupSallyEventListener(SecretUtils secretUtils,
+                                     StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                                     SecretManagerClientHolder secretManagerClientHolder,
+                                     StateStore stateStore,
+                                     SlackEventDeduplicationStore slackEventDeduplicationStore) {
+        this(secretUtils,
+                standupSallySlackApiInvoker,
+                secretManagerClientHolder,
+                stateStore,
+                slackEventDeduplicationStore,
+                SLACK_EVENT_BATCH_WINDOW);
+    }
+
+    /*
+        for testing, with how long a batch of events waits for concurrent requests' events
+     */
+    public StandupSallyEventListener(SecretUtils secretUtils,
+                                     StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                                     SecretManagerClientHolder secretManagerClientHolder,
+                                     StateStore stateStore,
+                                     SlackEventDeduplicationStore slackEventDeduplicationStore,
+                                     Duration slackEventBatchWindow) {
         this.standupSallySlackApiInvoker = standupSallySlackApiInvoker;
         this.secretUtils = secretUtils;
+        this.secretManagerClientHolder = secretManagerClientHolder;
+        this.stateStore = stateStore;
+        this.slackEventDeduplicationStore = slackEventDeduplicationStore;
+        this.rosterUpdateCoalescer = new RosterUpdateCoalescer(stateStore);
+        this.eventProcessorMap = Map.of("member_joined_channel", this::processMemberJoinedEvent,
+                "app_mention", this::processAppMentionEvent,
+                "member_left_channel", this::processMemberLeftEvent);
+        this.eventTimers = eventProcessorMap.keySet()
+                .stream()
+                .collect(Collectors.toUnmodifiableMap(Function.identity(),
+                        typeValue -> metricsRegistry.timer("listener.event." + typeValue)));
+        this.slackRequestPreValidator = new SlackRequestPreValidator(eventProcessorMap.keySet());
+        this.channelMembershipCache = new ChannelMembershipCache(standupSallySlackApiInvoker);
+        this.channelFeedbackAggregator = new ChannelFeedbackAggregator(standupSallySlackApiInvoker,
+                CHANNEL_FEEDBACK_MAX_USERS_PER_MESSAGE);
+        this.eventBatcher = new EventBatcher<>(slackEventBatchWindow,
+                SLACK_EVENT_BATCH_MAX_SIZE,
+                this::processEventCallbacks);
     }
 
     /*
-        map of slack event type to a Consumer which process the event
+        check the request was signed by slack, over the raw request body
      */
-    private final Map<String, BiConsumer<JsonObject, SecretManagerServiceClient>> eventProcessorMap
-            = Map.of("member_joined_channel", this::processMemberJoinedEvent,
-                    "app_mention", this::processAppMentionEvent,
-                    "member_left_channel", this::processMemberLeftEvent);
-
-    public boolean validateRequest(JsonObject body,
+    public boolean validateRequest(byte[] rawBody,
                                    String slackSigningSecret,
                                    String slackSignatureHeader,
                                    String slackRequestTimestamp) {
-
-        String baseString = Constants.SLACK_VERSION_NUMBER + ":" + slackRequestTimestamp + ":" + body.toString();
-        SecretKeySpec secretKeySpec = new SecretKeySpec(slackSigningSecret.getBytes(), Constants.HMAC_ALGORITHM);
-        try {
-            Mac mac = Mac.getInstance(Constants.HMAC_ALGORITHM);
-            mac.init(secretKeySpec);
-            String calculatedSignature = "v0=" + BaseEncoding.base16().encode(mac.doFinal(baseString.getBytes(StandardCharsets.UTF_8))).toLowerCase();
-
-            return calculatedSignature.equals(slackSignatureHeader);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return false;
-        } catch (InvalidKeyException e) {
-            return false;
+        SlackSignatureVerifier verifier = slackSignatureVerifier;
+        // the signing secret rarely changes, so the verifier and its keyed Macs are kept until it does
+        if (verifier == null || !verifier.getSlackSigningSecret().equals(slackSigningSecret)) {
+            verifier = new SlackSignatureVerifier(slackSigningSecret);
+            slackSignatureVerifier = verifier;
         }
+        return verifier.verify(rawBody, slackRequestTimestamp, slackSignatureHeader);
     }
 
     @Override
     public void service(HttpRequest httpRequest, HttpResponse httpResponse) throws Exception {
+        long requestStartNanos = System.nanoTime();
+        try {
+            handleRequest(httpRequest, httpResponse);
+        } finally {
+            // everything before slack's 3 second deadline, the stages are timed separately
+            metricsRegistry.timer("listener.request").recordSince(requestStartNanos);
+            metricsRegistry.reportIfDue();
+        }
+    }
+
+    private void handleRequest(HttpRequest httpRequest, HttpResponse httpResponse) throws Exception {
+
+        // set when the event could not be processed, so slack retries it
+        AtomicBoolean failed = new AtomicBoolean();
 
         BufferedWriter writer = httpResponse.getWriter();
-        BufferedReader reader = httpRequest.getReader();
-        System.out.println("begin request " + LocalDateTime.now());
-        JsonObject body = gson.fromJson(reader, JsonObject.class);
+        logger.debug("begin request");
+        Utils.debugHeaders(httpRequest);
+        long bodyParseStartNanos = System.nanoTime();
+        // read once, the raw bytes are what slack signed
+        byte[] rawBody = httpRequest.getInputStream().readAllBytes();
+        JsonObject body = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(rawBody), StandardCharsets.UTF_8), JsonObject.class);
+        metricsRegistry.timer("listener.body_parse").recordSince(bodyParseStartNanos);
         // challenge request
-        if( body.has("challenge")) {
-            System.out.println("has challenge request");
+        if(body != null && body.has("challenge")) {
+            logger.info("has challenge request");
             JsonElement challenge = body.get("challenge");
             httpResponse.setStatusCode(200);
             httpResponse.setContentType("text/plain");
@@ -98,71 +193,181 @@ public class StandupSallyEventListener implements HttpFunction {
         } else {
             // slack expects response within 3 seconds. Otherwise it will consider
             // it a fail and resend the request. Ideally we would send a response immediately
-            // and process request in a separate thread. However, this doesn't seem to work in
-            // GCP for some reason. So just do it in the main thread and ignore any slack retry attempts
-            // If we do not ignore the retries we can get data corruption in the GCP secrets.
-            if (!Utils.getSlackRetryNumHeader(httpRequest).isPresent()) {
-
-                Optional<String> slackSignature = Utils.getSlackSignatureHeader(httpRequest);
-                slackSignature.ifPresentOrElse(slackSignatureHeader -> {
-                    Utils.getSlackTimestampHeader(httpRequest)
-                        .ifPresentOrElse(slackReqTimestampHeader -> {
-                            try {
-                                System.out.println("call processRequest");
-                                processRequest(body,
+            // and process request in a separate thread. However this doesn't work in GCP: once the
+            // response is sent the instance's CPU is throttled, and it may be recycled with the work
+            // unfinished. So the event is processed before we respond, together with the events of
+            // any concurrent requests (see EventBatcher), and the response waits on Secret Manager
+            // and slack. Acknowledging straight away would take a second function, triggered from a
+            // queue such as Pub/Sub, to do the processing.
+            // An event that fails is answered with an error so slack retries it. Its event_id is only
+            // recorded once it has been processed, so a retry is dropped if the original got through
+            Utils.getSlackRetryNumHeader(httpRequest)
+                    .ifPresent(slackRetryNum -> logger.info("slack retry {} detected", slackRetryNum));
+
+            Optional<String> slackSignature = Utils.getSlackSignatureHeader(httpRequest);
+            slackSignature.ifPresentOrElse(slackSignatureHeader -> {
+                Utils.getSlackTimestampHeader(httpRequest)
+                    .ifPresentOrElse(slackReqTimestampHeader -> {
+                        // shed junk, stale and replayed requests before any Secret Manager work
+                        Optional<String> rejectionReason = metricsRegistry.time("listener.pre_validation", () ->
+                                slackRequestPreValidator.rejectionReason(body,
                                         slackSignatureHeader,
-                                        slackReqTimestampHeader);
-                            } catch (Exception e) {
-                                System.out.println("process request thread caught exception " + e.getMessage());
-                                e.printStackTrace();
-                            }
-                        }, () -> System.out.println("no slack request timestamp found"));
-
-                }, () -> System.out.println("no slack signature found"));
-            } else {
-                System.out.println("Slack retry detected....end here");
-            }
+                                        slackReqTimestampHeader));
+                        if (rejectionReason.isPresent()) {
+                            logger.info("rejected request, {}", rejectionReason.get());
+                            metricsRegistry.counter("listener.rejected").increment();
+                            return;
+                        }
+                        try {
+                            logger.debug("call processRequest");
+                            processRequest(rawBody,
+                                    body,
+                                    slackSignatureHeader,
+                                    slackReqTimestampHeader);
+                        } catch (InvalidAppRequestException e) {
+                            logger.error("process request caught exception", e);
+                        } catch (Exception e) {
+                            logger.error("process request caught exception", e);
+                            failed.set(true);
+                        }
+                    }, () -> logger.info("no slack request timestamp found"));
+
+            }, () -> logger.info("no slack signature found"));
         }
-        httpResponse.setStatusCode(200);
-        System.out.println("Return from event processing " + LocalDateTime.now());
+        httpResponse.setStatusCode(failed.get() ? 500 : 200);
+        logger.debug("return from event processing");
 
     }
 
     /*
-       process the slack event for which we have subscribed
+       validate the slack request, then process the event for which we have subscribed
      */
-    void processRequest(JsonObject body,
-                                String slackSignatureHeader,
-                                String slackRequestTimestampHeader) throws IOException {
+    void processRequest(byte[] rawBody,
+                        JsonObject body,
+                        String slackSignatureHeader,
+                        String slackRequestTimestampHeader) throws IOException, InterruptedException {
         //validate
-        try (SecretManagerServiceClient client = SecretManagerServiceClient.create()) {
+        // the client is shared across invocations, so it is not closed here
+        SecretManagerServiceClient client = secretManagerClientHolder.get();
+        try {
 
-            System.out.println("body is " + body);
+            // bodies carry message text, and are only rendered when debugging
+            logger.debug("body is {}", body);
             // get the signing secret used to calculate the signature
-            SecretVersionName signingSecretSecretVersionName = SecretVersionName.of(PROJECT_ID, SLACK_SIGNING_SECRET_NAME, "latest");
-            AccessSecretVersionResponse signingSecretSecretVersionResponse = client.accessSecretVersion(signingSecretSecretVersionName);
-            String slackSigningSecret = signingSecretSecretVersionResponse.getPayload().getData().toStringUtf8();
+            String slackSigningSecret = secretUtils.getSlackSigningSecret(client);
 
-            if (validateRequest(body,
+            boolean validRequest = metricsRegistry.time("listener.signature_validation", () -> validateRequest(rawBody,
                     slackSigningSecret,
                     slackSignatureHeader,
-                    slackRequestTimestampHeader)) {
-                System.out.println("valid request");
+                    slackRequestTimestampHeader));
+            if (validRequest) {
+                logger.debug("valid request");
                 if (body.has("event")) {
-                    System.out.println("request has event");
-                    JsonObject event = body.getAsJsonObject("event");
-                    if(event.has("type")) {
-                        JsonElement typeElem = event.get("type");
-                        String typeValue = typeElem.getAsString();
-                        System.out.println("event type is " + typeValue);
-                        eventProcessorMap.get(typeValue).accept(event, client);
-                    }
+                    logger.debug("request has event, process it");
+                    eventBatcher.submit(body);
                 }
 
             } else {
-                System.out.println("invalid request");
+                logger.warn("invalid request");
+                metricsRegistry.counter("listener.invalid_signature").increment();
                 throw new InvalidAppRequestException();
             }
+        } catch (RuntimeException e) {
+            secretManagerClientHolder.resetIfUnavailable(e);
+            throw e;
+        }
+    }
+
+    /*
+       process a batch of event callbacks, skipping any whose event_id has already been processed,
+       then write their roster changes together and post their feedback together. An event which
+       fails part way doesn't hold up the others, anything it submitted is written with them, which
+       its retry repeats harmlessly. The event_ids are only recorded, all in one call, once all of
+       that has succeeded
+     */
+    private Map<JsonObject, RuntimeException> processEventCallbacks(List<JsonObject> eventCallbacks) {
+        Map<JsonObject, RuntimeException> failures = new IdentityHashMap<>();
+        // the first callback with each event_id in the batch, a second one shares its outcome
+        Map<String, JsonObject> eventIdToEventCallback = new HashMap<>();
+        Map<JsonObject, JsonObject> duplicateToEventCallback = new IdentityHashMap<>();
+        List<JsonObject> processedEventCallbacks = new ArrayList<>();
+        for (JsonObject eventCallback : eventCallbacks) {
+            Optional<String> eventId = eventId(eventCallback);
+            if (eventId.isPresent() && eventIdToEventCallback.containsKey(eventId.get())) {
+                logger.info("event {} is twice in this batch, process it once", eventId.get());
+                duplicateToEventCallback.put(eventCallback, eventIdToEventCallback.get(eventId.get()));
+                metricsRegistry.counter("listener.duplicate_events").increment();
+                continue;
+            }
+            if (eventId.isPresent() && slackEventDeduplicationStore.isProcessed(eventId.get())) {
+                logger.info("event {} already processed, ignore", eventId.get());
+                metricsRegistry.counter("listener.duplicate_events").increment();
+                continue;
+            }
+            eventId.ifPresent(id -> eventIdToEventCallback.put(id, eventCallback));
+            try {
+                processEvent(eventCallback.getAsJsonObject("event"));
+                processedEventCallbacks.add(eventCallback);
+            } catch (RuntimeException e) {
+                failures.put(eventCallback, new SlackEventProcessingException(
+                        "event " + eventId.orElse("without id") + " was not processed", e));
+            }
+        }
+        metricsRegistry.counter("listener.batched_events").add(eventCallbacks.size());
+        metricsRegistry.counter("listener.batches").increment();
+
+        try {
+            flushRosterUpdates();
+        } catch (RuntimeException e) {
+            // the feedback was dropped with the roster write, so every event in the batch is retried
+            processedEventCallbacks.forEach(eventCallback -> failures.put(eventCallback, new SlackEventProcessingException(
+                    "event " + eventId(eventCallback).orElse("without id") + " was not processed", e)));
+            processedEventCallbacks.clear();
+        }
+        duplicateToEventCallback.forEach((duplicate, eventCallback) -> {
+            if (failures.containsKey(eventCallback)) {
+                failures.put(duplicate, failures.get(eventCallback));
+            }
+        });
+
+        slackEventDeduplicationStore.markProcessed(processedEventCallbacks.stream()
+                .map(StandupSallyEventListener::eventId)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList()));
+        return failures;
+    }
+
+    private static Optional<String> eventId(JsonObject eventCallback) {
+        return eventCallback.has("event_id") ?
+                Optional.of(eventCallback.get("event_id").getAsString()) :
+                Optional.empty();
+    }
+
+    /*
+       process a slack event, on the request thread
+     */
+    void processEvent(JsonObject event) {
+        if(event.has("type")) {
+            JsonElement typeElem = event.get("type");
+            String typeValue = typeElem.getAsString();
+            logger.debug("event type is {}", typeValue);
+            BiConsumer<JsonObject, SecretManagerServiceClient> eventProcessor = eventProcessorMap.get(typeValue);
+            if (eventProcessor == null) {
+                logger.info("no processor for event type {}", typeValue);
+                return;
+            }
+            long eventStartNanos = System.nanoTime();
+            try {
+                eventProcessor.accept(event, secretManagerClientHolder.get());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                secretManagerClientHolder.resetIfUnavailable(e);
+                throw e;
+            } finally {
+                // these are where the Secret Manager and slack calls are made
+                eventTimers.get(typeValue).recordSince(eventStartNanos);
+            }
         }
     }
 
@@ -203,40 +408,42 @@ public class StandupSallyEventListener implements HttpFunction {
     void addChannelUsersToSally(String channelId,
                                         SecretManagerServiceClient client,
                                         String sallyUser) {
-        Pair<Map<String, List<String>>, SecretVersion> channelIdToUserListMap = this.secretUtils.getChannelIdToUserListMap(client);
-        Map<String, List<String>> channelIdToUserList = channelIdToUserListMap.getValue0();
-        SecretVersion channelIdToUserListSecretVersion = channelIdToUserListMap.getValue1();
-
         //look up members of channel (don't incude sally user herself)
         String slackOauthToken = secretUtils.getSlackToken(client);
-        List<String> slackUsersForChannelArray = this.standupSallySlackApiInvoker.
-                getSlackUsersForChannel(channelId, slackOauthToken)
-                .stream()
-                    .filter(user -> !("<@"+user+">").equals(sallyUser))
-                    .collect(Collectors.toList());
+        List<String> slackUsersForChannelArray;
+        try {
+            // served from the cache, which joins and leaves keep up to date, see ChannelMembershipCache
+            slackUsersForChannelArray = this.channelMembershipCache.
+                    getMembers(channelId, slackOauthToken)
+                    .stream()
+                        .filter(user -> !("<@"+user+">").equals(sallyUser))
+                        .collect(Collectors.toList());
+        } catch (SlackApiCallException e) {
+            // don't register part of the channel, let them know so they can ask again
+            logger.warn("failed to look up members of channel {}: {}", channelId, e.getMessage());
+            this.standupSallySlackApiInvoker.appMentionActionFeedback("Standup Sally couldn't look up the members of this channel, please try again",
+                    slackOauthToken,
+                    channelId);
+            return;
+        }
+        if (slackUsersForChannelArray.isEmpty()) {
+            this.standupSallySlackApiInvoker.appMentionActionFeedback("Standup Sally found nobody in this channel to add",
+                    slackOauthToken,
+                    channelId);
+            return;
+        }
 
         //add them to the channel to user list secret
-        channelIdToUserList.put(channelId, slackUsersForChannelArray);
-        String newChannelIdToUserHandlesMap = generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUserList);
-        this.secretUtils.createNewSecretVersionAndDeleteOld(newChannelIdToUserHandlesMap,
-                client,
-                channelIdToUserListSecretVersion,
-                CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME);
-
-        //add the first user in the list as the person to next run standup for the channel
-        Pair<Map<String, String>, SecretVersion> userForEachChannelWhoLastRanStandup = this.secretUtils.getUserForEachChannelWhoLastRanStandup(client);
+        this.stateStore.updateChannelUserLists(Set.of(channelId), channelIdToUserList -> {
+            channelIdToUserList.put(channelId, slackUsersForChannelArray);
+            return Optional.of(channelIdToUserList);
+        });
 
         //set the person to run standup as the first person in the list
-        Map<String, String> userForEachChannelWhoLastRanStandupMap = userForEachChannelWhoLastRanStandup.getValue0();
-        userForEachChannelWhoLastRanStandupMap.put(channelId, slackUsersForChannelArray.get(0));
-
-        String updatedSecretValue = Utils.generateSecretStringFromChannelIdToLastUserToRunStandupMap(userForEachChannelWhoLastRanStandupMap);
-        this.secretUtils.createNewSecretVersionAndDeleteOld(
-                updatedSecretValue,
-                client,
-                userForEachChannelWhoLastRanStandup.getValue1(),
-                LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME
-        );
+        this.stateStore.updateUserForEachChannelWhoLastRanStandup(userForEachChannelWhoLastRanStandupMap -> {
+            userForEachChannelWhoLastRanStandupMap.put(channelId, Utils.rotationEntry(slackUsersForChannelArray.get(0), 0));
+            return Optional.of(userForEachChannelWhoLastRanStandupMap);
+        });
 
         String message = "Standup Sally added " + Utils.generateSlackUsersString(slackUsersForChannelArray) + " for standup duties";
         this.standupSallySlackApiInvoker.appMentionActionFeedback(message,
@@ -251,6 +458,7 @@ public class StandupSallyEventListener implements HttpFunction {
                                           SecretManagerServiceClient client) {
         String channelToRemoveUserFrom = memberLeftChannelEvent.get("channel").getAsString();
         String userIdToRemove = memberLeftChannelEvent.get("user").getAsString();
+        channelMembershipCache.memberLeft(channelToRemoveUserFrom, userIdToRemove);
 
         removeUserFromChannel(userIdToRemove,
                 channelToRemoveUserFrom,
@@ -265,86 +473,45 @@ public class StandupSallyEventListener implements HttpFunction {
                               SecretManagerServiceClient client) {
         String channelToAddUserTo = memberJoinedChannelEvent.get("channel").getAsString();
         String userIdToAdd = memberJoinedChannelEvent.get("user").getAsString();
+        channelMembershipCache.memberJoined(channelToAddUserTo, userIdToAdd);
         addUserToChannel(userIdToAdd,
                 channelToAddUserTo,
                 client);
     }
 
-    /*
-        either remove or add a user from a channels list of users. Use the supplied
-        Function to supply Add or Remove functionality. If the user does not exist
-        in the channel do not do anything
-     */
-    void updateUserIdInChannel(String channelToAddOrRemoveUserFrom,
-                                       SecretManagerServiceClient client,
-                                       Function<List<String>, List<String>> howToProcessAdditionOrDeletionFromList) {
-        Pair<Map<String, List<String>>, SecretVersion> pair = this.secretUtils.getChannelIdToUserListMap(client);
-        Map<String, List<String>> channelIdToUserListMap = pair.getValue0();
-        SecretVersion slackChannelIdToMemberHandlesSecretVersion = pair.getValue1();
-        Optional.ofNullable(channelIdToUserListMap.get(channelToAddOrRemoveUserFrom))
-                .map(howToProcessAdditionOrDeletionFromList)
-                .map(userListWithNewUser -> {
-                    channelIdToUserListMap.replace(channelToAddOrRemoveUserFrom, userListWithNewUser);
-                    return channelIdToUserListMap;
-                }).ifPresent(updatedChannelIdToUserListMap ->
-                    updateChannelIdToUserListSecret(client,
-                            updatedChannelIdToUserListMap,
-                            slackChannelIdToMemberHandlesSecretVersion)
-                );
-    }
-    /*
-       update the secret CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME with new value, then delete the old secret value
-     */
-    private void updateChannelIdToUserListSecret(SecretManagerServiceClient client,
-                                                 Map<String, List<String>> updatedChannelIdToUserListMap,
-                                                 SecretVersion slackChannelIdToMemberHandlesSecretVersion) {
-        String newChannelIdToUserListMapString = generateSecretStringFromChannelIdToUserHandlesListMap(updatedChannelIdToUserListMap);
-        this.secretUtils.createNewSecretVersionAndDeleteOld(newChannelIdToUserListMapString,
-                client,
-                slackChannelIdToMemberHandlesSecretVersion,
-                CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME);
-    }
-
     void addUserToChannel(String userIdToAdd,
                           String channelToAddUserTo,
                           SecretManagerServiceClient client) {
-        Function<List<String>, List<String>> howToProcessAddition = userListForChannel -> {
-            if (!userListForChannel.contains(userIdToAdd)) {
-                userListForChannel.add(userIdToAdd);
-                return userListForChannel;
-            } else {
-                return null;
-            }
-        };
-
-        updateUserIdInChannel(channelToAddUserTo,
-                client,
-                howToProcessAddition);
+        // written to the secret together with any other joins and leaves in this batch of events,
+        // see EventBatcher. If the user is already in the channel's list nothing changes
+        rosterUpdateCoalescer.submit(channelToAddUserTo, userIdToAdd, RosterChange.ADD);
         String slackAuthToken = this.secretUtils.getSlackToken(client);
-        this.standupSallySlackApiInvoker.appMentionActionFeedback("Standup Sally says welcome <@" +userIdToAdd +">",
-                slackAuthToken,
-                channelToAddUserTo);
+        // welcomed together with anyone else joining the channel in this batch of events
+        channelFeedbackAggregator.submit(channelToAddUserTo, userIdToAdd, Feedback.WELCOME, slackAuthToken);
     }
 
     void removeUserFromChannel(String userToRemoveFromStandupSally,
                                String channelId,
                                SecretManagerServiceClient client) {
-        Function<List<String>, List<String>> howToProcessRemovalOfUser = userListForChannel -> {
-            if(userListForChannel.contains(userToRemoveFromStandupSally)) {
-                userListForChannel.remove(userToRemoveFromStandupSally);
-                return userListForChannel;
-            } else {
-                return null;
-            }
-        };
-
-        updateUserIdInChannel(channelId,
-                client,
-                howToProcessRemovalOfUser);
+        // written to the secret together with any other joins and leaves in this batch of events,
+        // see EventBatcher. If the user is not in the channel's list nothing changes
+        rosterUpdateCoalescer.submit(channelId, userToRemoveFromStandupSally, RosterChange.REMOVE);
         String slackAuthToken = this.secretUtils.getSlackToken(client);
-        this.standupSallySlackApiInvoker.appMentionActionFeedback("Standup Sally says bye bye <@" +userToRemoveFromStandupSally +">",
-                slackAuthToken,
-                channelId);
+        channelFeedbackAggregator.submit(channelId, userToRemoveFromStandupSally, Feedback.BYE, slackAuthToken);
+    }
+
+    /*
+        write the joins and leaves gathered from the batch of events, then post their feedback. If the roster
+        can't be written nobody is told they were added or removed, the event is retried instead
+     */
+    void flushRosterUpdates() {
+        try {
+            rosterUpdateCoalescer.flush();
+        } catch (RuntimeException e) {
+            channelFeedbackAggregator.discard();
+            throw e;
+        }
+        channelFeedbackAggregator.flush();
     }
 
 }
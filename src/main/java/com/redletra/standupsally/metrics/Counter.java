@@ -0,0 +1,23 @@
+package com.redletra.standupsally.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    count of something happening, reported and reset each reporting interval
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    long sumThenReset() {
+        return count.sumThenReset();
+    }
+}
@@ -0,0 +1,150 @@
+package com.redletra.standupsally.metrics;
+
+import com.google.gson.Gson;
+import com.redletra.standupsally.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+    Timers, counters and gauges for where a request's time goes, cheap enough to leave on: a
+    recording is a few atomic increments and nothing is written until a report.
+
+    Reports are one JSON log line per metric, which Cloud Logging turns into structured entries
+    and which can be grepped or parsed locally; logback.xml writes them out as they are.
+    A function instance's CPU is throttled between invocations, so rather than a background thread
+    the functions call reportIfDue() as they finish and a report is written at most once per
+    reportInterval. Timers and counters cover the interval
+    since the last report
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry(Constants.METRICS_REPORT_INTERVAL,
+            Clock.systemUTC(),
+            logger::info);
+
+    private static final Gson gson = new Gson();
+
+    private final Duration reportInterval;
+    private final Clock clock;
+    private final Consumer<String> reportSink;
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final AtomicLong lastReportMillis;
+
+    /*
+        the registry every part of a function instance records to
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public MetricsRegistry(Duration reportInterval, Clock clock, Consumer<String> reportSink) {
+        this.reportInterval = reportInterval;
+        this.clock = clock;
+        this.reportSink = reportSink;
+        this.lastReportMillis = new AtomicLong(clock.millis());
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /*
+        a value read at each report, eg a queue depth
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /*
+        time the supplier, whether it returns or throws
+     */
+    public <T> T time(String name, Supplier<T> supplier) {
+        long startNanos = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            timer(name).recordSince(startNanos);
+        }
+    }
+
+    public void time(String name, Runnable runnable) {
+        long startNanos = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            timer(name).recordSince(startNanos);
+        }
+    }
+
+    public void reportIfDue() {
+        long now = clock.millis();
+        long lastReport = lastReportMillis.get();
+        // only one caller wins the interval
+        if (now - lastReport >= reportInterval.toMillis() && lastReportMillis.compareAndSet(lastReport, now)) {
+            writeReport();
+        }
+    }
+
+    public void report() {
+        lastReportMillis.set(clock.millis());
+        writeReport();
+    }
+
+    private void writeReport() {
+        timers.forEach((name, timer) -> {
+            Timer.Snapshot snapshot = timer.snapshotThenReset();
+            if (snapshot.count > 0) {
+                Map<String, Object> line = metricLine(name, "timer");
+                line.put("count", snapshot.count);
+                line.put("sum_us", snapshot.sumMicros);
+                line.put("p50_us", snapshot.percentileMicros(50));
+                line.put("p90_us", snapshot.percentileMicros(90));
+                line.put("p99_us", snapshot.percentileMicros(99));
+                line.put("max_us", snapshot.maxMicros);
+                reportSink.accept(gson.toJson(line));
+            }
+        });
+        counters.forEach((name, counter) -> {
+            long count = counter.sumThenReset();
+            if (count > 0) {
+                Map<String, Object> line = metricLine(name, "counter");
+                line.put("count", count);
+                reportSink.accept(gson.toJson(line));
+            }
+        });
+        gauges.forEach((name, value) -> {
+            Map<String, Object> line = metricLine(name, "gauge");
+            line.put("value", value.getAsLong());
+            reportSink.accept(gson.toJson(line));
+        });
+    }
+
+    private Map<String, Object> metricLine(String name, String type) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("severity", "INFO");
+        line.put("message", "metric " + name);
+        line.put("metric", name);
+        line.put("type", type);
+        line.put("interval_end", clock.instant().toString());
+        return line;
+    }
+}
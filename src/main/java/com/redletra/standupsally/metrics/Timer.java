@@ -0,0 +1,102 @@
+package com.redletra.standupsally.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Histogram of how long something took, reported and reset each reporting interval.
+    Durations are counted in buckets four to each power of two microseconds, so recording is a
+    couple of array increments and percentiles are within 25% of the true value
+ */
+public class Timer {
+
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = 4 + (MAX_EXPONENT - 1) * 4;
+
+    private final AtomicReference<Histogram> histogram = new AtomicReference<>(new Histogram());
+
+    public void record(long nanos) {
+        histogram.get().record(Math.max(1, nanos / 1000));
+    }
+
+    /*
+        record the time since startNanos, a System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    Snapshot snapshotThenReset() {
+        return histogram.getAndSet(new Histogram()).snapshot();
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < 4) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int subBucket = (int) (micros >> (exponent - 2)) & 3;
+        return 4 + (exponent - 2) * 4 + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int index) {
+        if (index < 4) {
+            return index;
+        }
+        int exponent = (index - 4) / 4 + 2;
+        int subBucket = (index - 4) % 4;
+        return ((4L + subBucket + 1) << (exponent - 2)) - 1;
+    }
+
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLongArray countSumMax = new AtomicLongArray(3);
+
+        void record(long micros) {
+            buckets.incrementAndGet(Math.min(bucketIndex(micros), BUCKET_COUNT - 1));
+            countSumMax.incrementAndGet(0);
+            countSumMax.addAndGet(1, micros);
+            long max;
+            while ((max = countSumMax.get(2)) < micros && !countSumMax.compareAndSet(2, max, micros)) {
+                // lost a race with another recording, try again
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new Snapshot(counts, countSumMax.get(0), countSumMax.get(1), countSumMax.get(2));
+        }
+    }
+
+    static class Snapshot {
+        private final long[] bucketCounts;
+        final long count;
+        final long sumMicros;
+        final long maxMicros;
+
+        private Snapshot(long[] bucketCounts, long count, long sumMicros, long maxMicros) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /*
+            upper bound of the bucket holding the given percentile, never more than the max seen
+         */
+        long percentileMicros(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketUpperBoundMicros(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+    }
+}
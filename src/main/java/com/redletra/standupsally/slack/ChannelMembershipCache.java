@@ -0,0 +1,101 @@
+package com.redletra.standupsally.slack;
+
+import com.redletra.standupsally.utils.Constants;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Members of each channel, fetched once from conversations.members and then kept up to date from
+    the member_joined_channel and member_left_channel events the listener receives anyway, so looking
+    up a channel's members doesn't need a round trip to Slack.
+
+    Slack delivers each event to one function instance, so an instance can miss changes another one
+    handled. Each channel is therefore fetched again once its members are older than reconcileInterval.
+    A fetch which overlapped a join or leave isn't cached, it may or may not include the change
+ */
+public class ChannelMembershipCache {
+
+    private final StandupSallySlackApiInvoker standupSallySlackApiInvoker;
+    private final Duration reconcileInterval;
+    private final Clock clock;
+    private final Map<String, ChannelMembers> channelIdToMembers = new HashMap<>();
+    // joins and leaves seen for each channel, only so a fetch can tell whether one happened while it ran
+    private final Map<String, Long> channelIdToChanges = new HashMap<>();
+
+    public ChannelMembershipCache(StandupSallySlackApiInvoker standupSallySlackApiInvoker) {
+        this(standupSallySlackApiInvoker, Constants.CHANNEL_MEMBERSHIP_RECONCILE_INTERVAL, Clock.systemUTC());
+    }
+
+    public ChannelMembershipCache(StandupSallySlackApiInvoker standupSallySlackApiInvoker,
+                                  Duration reconcileInterval,
+                                  Clock clock) {
+        this.standupSallySlackApiInvoker = standupSallySlackApiInvoker;
+        this.reconcileInterval = reconcileInterval;
+        this.clock = clock;
+    }
+
+    /*
+        the channel's members in the order slack listed them, with anyone who has joined since at
+        the end. Throws SlackApiCallException if they have to be fetched and can't be
+     */
+    public List<String> getMembers(String channelId, String slackAuthToken) {
+        long changesBeforeFetch;
+        synchronized (this) {
+            ChannelMembers channelMembers = channelIdToMembers.get(channelId);
+            if (channelMembers != null && clock.instant().isBefore(channelMembers.fetchedAt.plus(reconcileInterval))) {
+                return new ArrayList<>(channelMembers.members);
+            }
+            changesBeforeFetch = channelIdToChanges.getOrDefault(channelId, 0L);
+        }
+
+        // fetched outside the lock, so a slow channel doesn't hold up events for the others
+        Instant fetchedAt = clock.instant();
+        List<String> members = standupSallySlackApiInvoker.getSlackUsersForChannel(channelId, slackAuthToken);
+        synchronized (this) {
+            ChannelMembers cachedMembers = channelIdToMembers.get(channelId);
+            // a concurrent fetch which started later is at least as current as this one
+            boolean newerCached = cachedMembers != null && cachedMembers.fetchedAt.isAfter(fetchedAt);
+            if (!newerCached && channelIdToChanges.getOrDefault(channelId, 0L) == changesBeforeFetch) {
+                channelIdToMembers.put(channelId, new ChannelMembers(new LinkedHashSet<>(members), fetchedAt));
+            }
+        }
+        return new ArrayList<>(members);
+    }
+
+    /*
+        channels which haven't been fetched yet are left alone, the fetch will include the change
+     */
+    public synchronized void memberJoined(String channelId, String userId) {
+        ChannelMembers channelMembers = channelIdToMembers.get(channelId);
+        if (channelMembers != null) {
+            channelMembers.members.add(userId);
+        }
+        channelIdToChanges.merge(channelId, 1L, Long::sum);
+    }
+
+    public synchronized void memberLeft(String channelId, String userId) {
+        ChannelMembers channelMembers = channelIdToMembers.get(channelId);
+        if (channelMembers != null) {
+            channelMembers.members.remove(userId);
+        }
+        channelIdToChanges.merge(channelId, 1L, Long::sum);
+    }
+
+    private static class ChannelMembers {
+        private final Set<String> members;
+        private final Instant fetchedAt;
+
+        private ChannelMembers(Set<String> members, Instant fetchedAt) {
+            this.members = members;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
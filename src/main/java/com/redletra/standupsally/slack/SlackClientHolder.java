@@ -0,0 +1,100 @@
+package com.redletra.standupsally.slack;
+
+import com.redletra.standupsally.utils.Constants;
+import com.slack.api.Slack;
+import com.slack.api.SlackConfig;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.util.http.SlackHttpClient;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    Holds one HTTP client for every Slack call a function instance makes, so connections to
+    slack.com are pooled and kept alive between calls and invocations rather than a TLS handshake
+    per message. The Slack SDK methods client and the direct conversations.members calls share it.
+    Responses are gzipped, which OkHttp asks for and decompresses itself.
+    The client is created lazily on first use and shut down when the JVM exits
+ */
+public class SlackClientHolder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlackClientHolder.class);
+
+    /*
+        builds the OkHttpClient, or a stand-in for testing
+     */
+    public interface HttpClientFactory {
+        OkHttpClient create();
+    }
+
+    private final HttpClientFactory httpClientFactory;
+    private OkHttpClient httpClient;
+    private Slack slack;
+    private MethodsClient methodsClient;
+    private boolean shutdownHookRegistered;
+
+    public SlackClientHolder() {
+        this(SlackClientHolder::createHttpClient);
+    }
+
+    public SlackClientHolder(HttpClientFactory httpClientFactory) {
+        this.httpClientFactory = httpClientFactory;
+    }
+
+    public synchronized OkHttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = httpClientFactory.create();
+            if (!shutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread(this::close, "slack-client-shutdown"));
+                shutdownHookRegistered = true;
+            }
+        }
+        return httpClient;
+    }
+
+    public synchronized MethodsClient methods() {
+        if (methodsClient == null) {
+            slack = Slack.getInstance(new SlackConfig(), new SlackHttpClient(httpClient()));
+            methodsClient = slack.methods();
+        }
+        return methodsClient;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (slack != null) {
+            try {
+                slack.close();
+            } catch (Exception e) {
+                logger.warn("failed to close slack client: {}", e.getMessage());
+            }
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.dispatcher().executorService().shutdown();
+                httpClient.connectionPool().evictAll();
+            } catch (RuntimeException e) {
+                logger.warn("failed to close slack http client: {}", e.getMessage());
+            }
+        }
+        slack = null;
+        methodsClient = null;
+        httpClient = null;
+    }
+
+    private static OkHttpClient createHttpClient() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(Constants.SLACK_HTTP_MAX_IDLE_CONNECTIONS,
+                        Constants.SLACK_HTTP_KEEP_ALIVE.toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(Constants.SLACK_HTTP_CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(Constants.SLACK_HTTP_READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(Constants.SLACK_HTTP_READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .callTimeout(Constants.SLACK_HTTP_CALL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                // retries are left to SlackRateLimiter, which knows which calls may have reached slack
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.redletra.standupsally.slack;
+
+import com.redletra.standupsally.metrics.MetricsRegistry;
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.redletra.standupsally.utils.SlackRateLimitedException;
+import com.slack.api.methods.SlackApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Paces slack web api calls to the rate each method's tier allows, so a burst of announcements
+    goes out as fast as slack accepts rather than some of them being refused.
+    A 429 pauses the whole tier for as long as its Retry-After header asks, then the call is
+    retried; network errors and 5xx responses are retried with jittered exponential back off.
+    chat.postMessage isn't idempotent, a 5xx or a dropped connection may come after the message was
+    posted, so it is only retried when slack refused it (429) or the connection was never made.
+    A call is never retried past the deadline its caller gives, it fails with SlackApiCallException
+ */
+public class SlackRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlackRateLimiter.class);
+
+    /*
+        slack's rate limit tiers, per workspace. chat.postMessage has its own limit of about one
+        message per second per channel, with several hundred a minute allowed across channels
+     */
+    public enum Tier {
+        TIER_2(20, 5, true),
+        TIER_3(50, 10, true),
+        TIER_4(100, 20, true),
+        POST_MESSAGE(300, 20, false);
+
+        private final int callsPerMinute;
+        private final int burst;
+        // whether a call which may have reached slack can safely be made again
+        private final boolean idempotent;
+
+        Tier(int callsPerMinute, int burst, boolean idempotent) {
+            this.callsPerMinute = callsPerMinute;
+            this.burst = burst;
+            this.idempotent = idempotent;
+        }
+    }
+
+    /*
+        one attempt at a slack call
+     */
+    public interface SlackCall<T> {
+        T call() throws IOException, SlackApiException;
+    }
+
+    private final Map<Tier, TokenBucket> tierToBucket = new EnumMap<>(Tier.class);
+    private final int maxAttempts;
+    private final Duration baseBackOff;
+    // calls waiting for their tier to allow them
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.global();
+
+    public SlackRateLimiter() {
+        this(Constants.SLACK_CALL_MAX_ATTEMPTS, Constants.SLACK_CALL_BASE_BACKOFF);
+        metricsRegistry.gauge("slack.queue_depth", queueDepth::get);
+    }
+
+    public SlackRateLimiter(int maxAttempts, Duration baseBackOff) {
+        this.maxAttempts = maxAttempts;
+        this.baseBackOff = baseBackOff;
+        for (Tier tier : Tier.values()) {
+            tierToBucket.put(tier, new TokenBucket(tier.callsPerMinute, tier.burst));
+        }
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public <T> T call(Tier tier,
+                      Instant deadline,
+                      String description,
+                      SlackCall<T> slackCall) {
+        TokenBucket bucket = tierToBucket.get(tier);
+        for (int attempt = 1; ; attempt++) {
+            waitUntilAllowed(bucket, deadline, description);
+            Exception failure;
+            // rate limited calls wait on their paused tier instead
+            boolean backOff = false;
+            try {
+                return slackCall.call();
+            } catch (SlackRateLimitedException e) {
+                pauseFor(bucket, e.getRetryAfter(), description);
+                failure = e;
+            } catch (SlackApiException e) {
+                int status = e.getResponse() == null ? 0 : e.getResponse().code();
+                if (status == 429) {
+                    pauseFor(bucket, retryAfter(e.getResponse().header("Retry-After")), description);
+                } else if (status >= 500 && tier.idempotent) {
+                    backOff = true;
+                } else {
+                    throw new SlackApiCallException(description + " failed: " + e.getMessage(), e);
+                }
+                failure = e;
+            } catch (IOException e) {
+                if (!tier.idempotent && !neverSent(e)) {
+                    throw new SlackApiCallException(description + " failed, and may have reached slack: " + e.getMessage(), e);
+                }
+                backOff = true;
+                failure = e;
+            }
+            if (attempt >= maxAttempts) {
+                throw new SlackApiCallException(description + " failed after " + attempt + " attempts: " + failure.getMessage(), failure);
+            }
+            metricsRegistry.counter("slack.retries").increment();
+            if (backOff) {
+                backOff(attempt, deadline, description);
+            }
+        }
+    }
+
+    /*
+        seconds from a Retry-After header, a second if it is missing or unreadable
+     */
+    public static Duration retryAfter(String retryAfterHeader) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfterHeader.trim())));
+        } catch (NullPointerException | NumberFormatException e) {
+            return Duration.ofSeconds(1);
+        }
+    }
+
+    /*
+        failures which happen before a request is written: the host couldn't be resolved or the
+        connection was refused or unreachable
+     */
+    private static boolean neverSent(IOException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException
+                    || cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void pauseFor(TokenBucket bucket, Duration retryAfter, String description) {
+        // jittered, so instances limited at the same moment don't all come back at once
+        Duration pause = retryAfter.plusMillis(ThreadLocalRandom.current().nextLong(Constants.SLACK_RATE_LIMIT_JITTER.toMillis() + 1));
+        logger.info("{} rate limited, pausing for {}ms", description, pause.toMillis());
+        metricsRegistry.counter("slack.rate_limited").increment();
+        bucket.pauseFor(pause);
+    }
+
+    private void waitUntilAllowed(TokenBucket bucket, Instant deadline, String description) {
+        queueDepth.incrementAndGet();
+        try {
+            long waitNanos = bucket.reserve();
+            try {
+                sleep(waitNanos, deadline, description);
+            } catch (SlackApiCallException e) {
+                // the call is never made, so it mustn't hold back the calls queued behind it
+                bucket.refund();
+                throw e;
+            }
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+    }
+
+    /*
+        exponential back off with full jitter
+     */
+    private void backOff(int attempt, Instant deadline, String description) {
+        long maxBackOffNanos = baseBackOff.toNanos() << Math.min(attempt - 1, 10);
+        sleep(ThreadLocalRandom.current().nextLong(maxBackOffNanos + 1), deadline, description);
+    }
+
+    private static void sleep(long nanos, Instant deadline, String description) {
+        if (nanos <= 0) {
+            return;
+        }
+        if (Instant.now().plusNanos(nanos).isAfter(deadline)) {
+            throw new SlackApiCallException(description + " could not be made before its deadline");
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlackApiCallException(description + " interrupted while waiting", e);
+        }
+    }
+}
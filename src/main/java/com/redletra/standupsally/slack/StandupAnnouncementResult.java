@@ -0,0 +1,48 @@
+package com.redletra.standupsally.slack;
+
+import java.util.Optional;
+
+/*
+    outcome of telling one channel who is running standup today
+ */
+public class StandupAnnouncementResult {
+
+    private final String channelId;
+    private final String userId;
+    private final String error;
+
+    private StandupAnnouncementResult(String channelId, String userId, String error) {
+        this.channelId = channelId;
+        this.userId = userId;
+        this.error = error;
+    }
+
+    public static StandupAnnouncementResult success(String channelId, String userId) {
+        return new StandupAnnouncementResult(channelId, userId, null);
+    }
+
+    public static StandupAnnouncementResult failure(String channelId, String userId, String error) {
+        return new StandupAnnouncementResult(channelId, userId, error);
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Optional<String> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    @Override
+    public String toString() {
+        return channelId + "=" + (isSuccess() ? "ok" : error);
+    }
+}
@@ -1,109 +1,284 @@
 package com.redletra.standupsally.slack;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.slack.api.Slack;
+import com.google.gson.stream.JsonReader;
+import com.redletra.standupsally.metrics.MetricsRegistry;
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.redletra.standupsally.utils.SlackRateLimitedException;
 import com.slack.api.methods.MethodsClient;
-import com.slack.api.methods.SlackApiException;
 import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.eclipse.jetty.util.UrlEncoded;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
+import java.io.Reader;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 public class StandupSallySlackApiInvoker {
 
-    Logger logger = LoggerFactory.getLogger(StandupSallySlackApiInvoker.class);
+    private static final Logger logger = LoggerFactory.getLogger(StandupSallySlackApiInvoker.class);
+
+    // bounds the number of announcements in flight, reused across invocations of a warm instance
+    private final ExecutorService announcementExecutor;
+    private final SlackClientHolder slackClientHolder;
+    // every call goes through this, so the instance stays within slack's rate limits
+    private final SlackRateLimiter slackRateLimiter;
+    private final Duration announcementTimeout;
+    // slack calls are timed from being queued to their final attempt, as slack.<method>
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.global();
+
+    public StandupSallySlackApiInvoker() {
+        this(Constants.SLACK_ANNOUNCEMENT_CONCURRENCY);
+    }
+
+    public StandupSallySlackApiInvoker(int announcementConcurrency) {
+        this(announcementConcurrency, new SlackClientHolder());
+    }
+
+    public StandupSallySlackApiInvoker(int announcementConcurrency, SlackClientHolder slackClientHolder) {
+        this(announcementConcurrency, slackClientHolder, new SlackRateLimiter());
+    }
+
+    public StandupSallySlackApiInvoker(int announcementConcurrency,
+                                       SlackClientHolder slackClientHolder,
+                                       SlackRateLimiter slackRateLimiter) {
+        this(announcementConcurrency, slackClientHolder, slackRateLimiter, Constants.SLACK_ANNOUNCEMENT_TIMEOUT);
+    }
+
+    /*
+        for testing
+     */
+    public StandupSallySlackApiInvoker(int announcementConcurrency,
+                                       SlackClientHolder slackClientHolder,
+                                       SlackRateLimiter slackRateLimiter,
+                                       Duration announcementTimeout) {
+        this.slackClientHolder = slackClientHolder;
+        this.slackRateLimiter = slackRateLimiter;
+        this.announcementTimeout = announcementTimeout;
+        this.announcementExecutor = Executors.newFixedThreadPool(announcementConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "standup-announcement");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /*
-      for each channel, let it know who should be running the next standup
+      for each channel, let it know who should be running the next standup. Channels are
+      announced in parallel, and the outcome for every channel is returned
      */
-    public void informStandupRunner(Map<String, String> channelIdsToNextUserToRunStandup, String slackOAuthToken) {
-        MethodsClient client = Slack.getInstance().methods();
+    public Map<String, StandupAnnouncementResult> informStandupRunner(Map<String, String> channelIdsToNextUserToRunStandup, String slackOAuthToken) {
+        MethodsClient client = slackClientHolder.methods();
+        // announcements held back by rate limiting are given up on in time to report them
+        Instant deadline = Instant.now().plus(announcementTimeout);
+
+        Map<String, Future<StandupAnnouncementResult>> channelIdToAnnouncementFuture = new HashMap<>();
+        channelIdsToNextUserToRunStandup.forEach((channelId, nextUserIdToRunStandup) ->
+                channelIdToAnnouncementFuture.put(channelId, announcementExecutor.submit(() ->
+                        announceStandupRunner(client, channelId, nextUserIdToRunStandup, slackOAuthToken, deadline))));
 
-        channelIdsToNextUserToRunStandup.forEach((channelId, nextUserIdToRunStandup) -> {
+        Map<String, StandupAnnouncementResult> channelIdToAnnouncementResult = new HashMap<>();
+        channelIdToAnnouncementFuture.forEach((channelId, announcementFuture) -> {
+            String nextUserIdToRunStandup = channelIdsToNextUserToRunStandup.get(channelId);
+            StandupAnnouncementResult result;
             try {
-                // Call the chat.postMessage method using the built-in WebClient
-                String message = "Standup Sally says today it's <@" + nextUserIdToRunStandup + ">'s turn to rule standup";
-                ChatPostMessageResponse result = client.chatPostMessage(r -> r
-                        // The token you used to initialize your app
-                        .token(slackOAuthToken)
-                        .channel(channelId)
-                        .text(message)
-                );
-                // Print result, which includes information about the message (like TS)
-                logger.info("result {}" + result);
-            } catch (IOException | SlackApiException e) {
-                logger.info("error: {}" + e.getMessage());
+                result = announcementFuture.get(Math.max(0, Duration.between(Instant.now(), deadline).toNanos()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // interrupts the announcement if it is still in flight or waiting on the rate limiter
+                announcementFuture.cancel(true);
+                result = StandupAnnouncementResult.failure(channelId, nextUserIdToRunStandup, "timed out");
+            } catch (ExecutionException e) {
+                result = StandupAnnouncementResult.failure(channelId, nextUserIdToRunStandup, e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                announcementFuture.cancel(true);
+                result = StandupAnnouncementResult.failure(channelId, nextUserIdToRunStandup, "interrupted");
             }
+            channelIdToAnnouncementResult.put(channelId, result);
         });
 
+        List<StandupAnnouncementResult> failures = channelIdToAnnouncementResult.values().stream()
+                .filter(result -> !result.isSuccess())
+                .collect(Collectors.toList());
+        if (failures.isEmpty()) {
+            logger.info("announced standup runner in {} channels", channelIdToAnnouncementResult.size());
+        } else {
+            logger.info("failed to announce standup runner in {} of {} channels: {}",
+                    failures.size(), channelIdToAnnouncementResult.size(), failures);
+        }
+        return channelIdToAnnouncementResult;
     }
 
-    public void appMentionActionFeedback(String message,
-                                         String slackOAuthToken,
-                                         String channelId) {
-        MethodsClient client = Slack.getInstance().methods();
+    private StandupAnnouncementResult announceStandupRunner(MethodsClient client,
+                                                            String channelId,
+                                                            String nextUserIdToRunStandup,
+                                                            String slackOAuthToken,
+                                                            Instant deadline) {
+        try {
+            // Call the chat.postMessage method using the built-in WebClient
+            String message = "Standup Sally says today it's <@" + nextUserIdToRunStandup + ">'s turn to rule standup";
+            ChatPostMessageResponse result = metricsRegistry.time("slack.chat.postMessage", () ->
+                    slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, deadline,
+                    "chat.postMessage to channel " + channelId, () -> client.chatPostMessage(r -> r
+                    // The token you used to initialize your app
+                    .token(slackOAuthToken)
+                    .channel(channelId)
+                    .text(message)
+            )));
+            return result.isOk() ?
+                    StandupAnnouncementResult.success(channelId, nextUserIdToRunStandup) :
+                    StandupAnnouncementResult.failure(channelId, nextUserIdToRunStandup, result.getError());
+        } catch (SlackApiCallException e) {
+            return StandupAnnouncementResult.failure(channelId, nextUserIdToRunStandup, e.getMessage());
+        }
+    }
+
+    /*
+      post the message to the channel, returning whether slack accepted it. A failure is logged and
+      counted, as slack.feedback_failed, rather than thrown: the change it reports has been made
+     */
+    public boolean appMentionActionFeedback(String message,
+                                            String slackOAuthToken,
+                                            String channelId) {
+        MethodsClient client = slackClientHolder.methods();
 
+        String error;
         try {
-            ChatPostMessageResponse result = client.chatPostMessage(r -> r
+            ChatPostMessageResponse result = metricsRegistry.time("slack.chat.postMessage", () ->
+                    slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE,
+                    Instant.now().plus(Constants.SLACK_EVENT_FEEDBACK_DEADLINE),
+                    "chat.postMessage to channel " + channelId, () -> client.chatPostMessage(r -> r
                     // The token you used to initialize your app
                     .token(slackOAuthToken)
                     .channel(channelId)
                     .text(message)
-            );
-        } catch (IOException | SlackApiException e) {
-            logger.info("error: {}" + e.getMessage());
+            )));
+            if (result.isOk()) {
+                return true;
+            }
+            error = result.getError();
+        } catch (SlackApiCallException e) {
+            error = e.getMessage();
         }
+        logger.warn("failed to post feedback to channel {}: {}", channelId, error);
+        metricsRegistry.counter("slack.feedback_failed").increment();
+        return false;
+    }
 
+    /*
+        slack calls waiting for their rate limit tier to allow them
+     */
+    public int getSlackCallQueueDepth() {
+        return slackRateLimiter.getQueueDepth();
     }
 
+    /*
+        every member of the channel, following next_cursor through as many pages as it takes.
+        Throws SlackApiCallException if any page can't be read, rather than returning part of the channel
+     */
     public List<String> getSlackUsersForChannel (String channelId, String slackAuthToken) {
+        return getSlackUsersForChannel(channelId, slackAuthToken, Constants.SLACK_CONVERSATION_MEMBERS_PAGE_SIZE);
+    }
 
-        URL url = null;
-        try {
-            url = new URL("https://slack.com/api/conversations.members?channel=" + channelId);
-
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            con.setRequestProperty("Authorization", "Bearer " + slackAuthToken);
-            int status = con.getResponseCode();
-            if (200 == status) {
-                BufferedReader in = new BufferedReader(
-                        new InputStreamReader(con.getInputStream()));
-                String inputLine;
-                StringBuffer content = new StringBuffer();
-                while ((inputLine = in.readLine()) != null) {
-                    content.append(inputLine);
+    public List<String> getSlackUsersForChannel (String channelId, String slackAuthToken, int pageSize) {
+        List<String> slackUsersForChannel = new ArrayList<>();
+        Instant deadline = Instant.now().plus(Constants.SLACK_EVENT_CONVERSATION_MEMBERS_DEADLINE);
+        String cursor = "";
+        do {
+            String url = "https://slack.com/api/conversations.members?channel=" + channelId + "&limit=" + pageSize +
+                    (cursor.isEmpty() ? "" : "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header("Authorization", "Bearer " + slackAuthToken)
+                    .get()
+                    .build();
+            cursor = metricsRegistry.time("slack.conversations.members", () ->
+                    slackRateLimiter.call(SlackRateLimiter.Tier.TIER_4, deadline,
+                    "conversations.members for channel " + channelId, () -> {
+                // a page which fails part way through is retried whole, so its members are only kept once it is read
+                List<String> pageMembers = new ArrayList<>();
+                String nextCursor;
+                try (Response response = slackClientHolder.httpClient().newCall(request).execute()) {
+                    ResponseBody responseBody = response.body();
+                    if (response.code() == 429) {
+                        throw new SlackRateLimitedException("conversations.members for channel " + channelId + " rate limited",
+                                SlackRateLimiter.retryAfter(response.header("Retry-After")));
+                    }
+                    if (response.code() >= 500) {
+                        throw new IOException("conversations.members for channel " + channelId + " failed with http status " + response.code());
+                    }
+                    if (!response.isSuccessful() || responseBody == null) {
+                        throw new SlackApiCallException("conversations.members for channel " + channelId + " failed with http status " + response.code());
+                    }
+                    nextCursor = readConversationMembersPage(responseBody.charStream(), pageMembers);
                 }
-                in.close();
-                JsonObject jsonObject = new Gson().fromJson(content.toString(), JsonObject.class);
-                JsonArray members = jsonObject.getAsJsonArray("members");
-                List <String> slackUsersForChannel = new ArrayList<>();
-                for (JsonElement userElement : members) {
-                    slackUsersForChannel.add(userElement.getAsString());
+                slackUsersForChannel.addAll(pageMembers);
+                return nextCursor;
+            }));
+        } while (!cursor.isEmpty());
+        return slackUsersForChannel;
+    }
+
+    /*
+        stream one page of a conversations.members response, adding its members to the list, and
+        return the cursor for the next page, empty if this was the last
+     */
+    static String readConversationMembersPage(Reader page, List<String> members) throws IOException {
+        boolean ok = false;
+        String error = "unknown error";
+        String nextCursor = "";
+        try (JsonReader reader = new JsonReader(page)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "ok":
+                        ok = reader.nextBoolean();
+                        break;
+                    case "error":
+                        error = reader.nextString();
+                        break;
+                    case "members":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            members.add(reader.nextString());
+                        }
+                        reader.endArray();
+                        break;
+                    case "response_metadata":
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (reader.nextName().equals("next_cursor")) {
+                                nextCursor = reader.nextString();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        break;
+                    default:
+                        reader.skipValue();
                 }
-                return slackUsersForChannel;
             }
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        } catch (ProtocolException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+            reader.endObject();
+        }
+        if (!ok) {
+            throw new SlackApiCallException("conversations.members failed: " + error);
         }
-        return Collections.emptyList();
+        return nextCursor;
     }
 
 }
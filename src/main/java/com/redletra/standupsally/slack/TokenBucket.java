@@ -0,0 +1,66 @@
+package com.redletra.standupsally.slack;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/*
+    Token bucket refilled at callsPerMinute, holding at most burst tokens. Tokens are reserved
+    rather than waited for, so callers are served in the order they asked whatever order their
+    threads wake up in, and the bucket can be paused when slack says we are over its limit
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    TokenBucket(int callsPerMinute, int burst) {
+        this(callsPerMinute, burst, System::nanoTime);
+    }
+
+    TokenBucket(int callsPerMinute, int burst, LongSupplier nanoTime) {
+        this.capacity = burst;
+        this.tokensPerNano = callsPerMinute / (double) Duration.ofMinutes(1).toNanos();
+        this.nanoTime = nanoTime;
+        this.tokens = burst;
+        this.lastRefillNanos = nanoTime.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /*
+        take a token, returning how many nanoseconds to wait before making the call it allows
+     */
+    synchronized long reserve() {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        tokens -= 1;
+        long waitForToken = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        return Math.max(waitForToken, pausedUntilNanos - now);
+    }
+
+    /*
+        give back a reserved token whose call was never made
+     */
+    synchronized void refund() {
+        refill(nanoTime.getAsLong());
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /*
+        hold every call back for at least this long, and start again from an empty bucket
+     */
+    synchronized void pauseFor(Duration pause) {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        tokens = Math.min(tokens, 0);
+        pausedUntilNanos = Math.max(pausedUntilNanos, now + pause.toNanos());
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,58 @@
+package com.redletra.standupsally.state;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Maps channel ids to shards 0..shardCount-1. Each shard owns virtualNodes points on a ring of
+    hashes and a channel belongs to the shard owning the first point at or after the channel's hash,
+    so going from n to n+1 shards only moves about 1/(n+1) of the channels, all of them to the new shard
+ */
+public class ConsistentHashRing {
+
+    // MessageDigest isn't thread safe, and looking one up for every channel id costs more than the hash
+    private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is always available", e);
+        }
+    });
+
+    private final int shardCount;
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("need at least one shard, got " + shardCount);
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+                ring.putIfAbsent(hash("shard-" + shard + "-" + virtualNode), shard);
+            }
+        }
+    }
+
+    public int shardFor(String channelId) {
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(hash(channelId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /*
+        first 8 bytes of the md5 of the key. Data placement must agree across instances and
+        releases, so this can never change
+     */
+    private static long hash(String key) {
+        byte[] digest = md5.get().digest(key.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+}
@@ -0,0 +1,116 @@
+package com.redletra.standupsally.state;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/*
+    Mutation log in a local directory, for tests and local runs: a log file of "sequence record"
+    lines, and a snapshot file replaced atomically on compaction, whose first line is the sequence it
+    covers so numbering carries on from there after reopening. Records must not contain newlines.
+    Only one instance per directory should be open at a time
+ */
+public class FileMutationLog implements MutationLog {
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final TreeMap<Long, String> records = new TreeMap<>();
+    private long latestSequence;
+
+    public FileMutationLog(Path directory) {
+        this.logFile = directory.resolve("log");
+        this.snapshotFile = directory.resolve("snapshot");
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(logFile)) {
+                for (String line : Files.readAllLines(logFile, StandardCharsets.UTF_8)) {
+                    int separator = line.indexOf(' ');
+                    records.put(Long.parseLong(line.substring(0, separator)), line.substring(separator + 1));
+                }
+            }
+            if (Files.exists(snapshotFile)) {
+                String firstLine = Files.readAllLines(snapshotFile, StandardCharsets.UTF_8).get(0);
+                latestSequence = Long.parseLong(firstLine);
+            }
+            if (!records.isEmpty()) {
+                latestSequence = Math.max(latestSequence, records.lastKey());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long append(String record) {
+        long sequence = latestSequence + 1;
+        try {
+            Files.write(logFile, (sequence + " " + record + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        records.put(sequence, record);
+        latestSequence = sequence;
+        return sequence;
+    }
+
+    @Override
+    public synchronized long latestSequence() {
+        return latestSequence;
+    }
+
+    @Override
+    public synchronized Optional<String> read(long sequence) {
+        return Optional.ofNullable(records.get(sequence));
+    }
+
+    @Override
+    public synchronized Optional<String> readSnapshot() {
+        try {
+            if (!Files.exists(snapshotFile)) {
+                return Optional.empty();
+            }
+            String contents = Files.readString(snapshotFile, StandardCharsets.UTF_8);
+            return Optional.of(contents.substring(contents.indexOf('\n') + 1).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void compact(String snapshot, long throughSequence) {
+        try {
+            // a late compaction mustn't replace a snapshot covering more
+            if (snapshotSequence() < throughSequence) {
+                replace(snapshotFile, List.of(Long.toString(throughSequence), snapshot));
+            }
+            records.headMap(throughSequence, true).clear();
+            replace(logFile, records.entrySet()
+                    .stream()
+                    .map(record -> record.getKey() + " " + record.getValue())
+                    .collect(Collectors.toList()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long snapshotSequence() throws IOException {
+        return Files.exists(snapshotFile) ?
+                Long.parseLong(Files.readAllLines(snapshotFile, StandardCharsets.UTF_8).get(0)) :
+                0;
+    }
+
+    private static void replace(Path file, List<String> lines) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, lines, StandardCharsets.UTF_8);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
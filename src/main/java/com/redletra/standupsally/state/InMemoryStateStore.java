@@ -0,0 +1,62 @@
+package com.redletra.standupsally.state;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/*
+    State held in memory, for tests and for load testing the functions locally
+ */
+public class InMemoryStateStore implements StateStore {
+
+    private Map<String, List<String>> channelIdToUserListMap;
+    private Map<String, String> userForEachChannelWhoLastRanStandup;
+    private final LocalDate sprintStartDate;
+
+    public InMemoryStateStore(Map<String, List<String>> channelIdToUserListMap,
+                              Map<String, String> userForEachChannelWhoLastRanStandup,
+                              LocalDate sprintStartDate) {
+        this.channelIdToUserListMap = copyOf(channelIdToUserListMap);
+        this.userForEachChannelWhoLastRanStandup = new HashMap<>(userForEachChannelWhoLastRanStandup);
+        this.sprintStartDate = sprintStartDate;
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getChannelIdToUserListMap() {
+        return copyOf(channelIdToUserListMap);
+    }
+
+    @Override
+    public synchronized Map<String, String> getUserForEachChannelWhoLastRanStandup() {
+        return new HashMap<>(userForEachChannelWhoLastRanStandup);
+    }
+
+    @Override
+    public LocalDate getSprintStartDate() {
+        return sprintStartDate;
+    }
+
+    @Override
+    public synchronized boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        Optional<Map<String, List<String>>> updatedMap = mutation.apply(copyOf(channelIdToUserListMap));
+        updatedMap.ifPresent(map -> channelIdToUserListMap = copyOf(map));
+        return updatedMap.isPresent();
+    }
+
+    @Override
+    public synchronized boolean updateUserForEachChannelWhoLastRanStandup(Function<Map<String, String>, Optional<Map<String, String>>> mutation) {
+        Optional<Map<String, String>> updatedMap = mutation.apply(new HashMap<>(userForEachChannelWhoLastRanStandup));
+        updatedMap.ifPresent(map -> userForEachChannelWhoLastRanStandup = new HashMap<>(map));
+        return updatedMap.isPresent();
+    }
+
+    private static Map<String, List<String>> copyOf(Map<String, List<String>> channelIdToUserListMap) {
+        Map<String, List<String>> copy = new HashMap<>();
+        channelIdToUserListMap.forEach((channelId, userList) -> copy.put(channelId, new ArrayList<>(userList)));
+        return copy;
+    }
+}
@@ -0,0 +1,221 @@
+package com.redletra.standupsally.state;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.redletra.standupsally.utils.Constants;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Event sourced state: every change is appended to a MutationLog as a small record of what changed
+    (eg one user joining one channel) instead of rewriting the whole roster, and the state is loaded
+    as the latest snapshot plus the records after it. Every compactionInterval records a new snapshot
+    is written and the records it covers are discarded.
+
+    Records are JSON with the time they were written, so the log is also a history of who was added,
+    removed and picked to run standup, which can be replayed with replay().
+
+    Concurrent writers never conflict, the log orders their records. A mutation is still given the
+    current state, but only the difference it makes to that state is recorded and applied in log order,
+    so two instances adding different users to a channel both get their user added.
+
+    Given a seed state store, eg the Secret Manager store when switching over, an empty log is first
+    seeded with that store's state. If several instances find the log empty at once only the seed at
+    the start of the log is applied, the others are ignored
+ */
+public class LogStructuredStateStore implements StateStore {
+
+    private static final Type MUTATION_RECORD_TYPE = new TypeToken<MutationRecord>() {}.getType();
+
+    private final MutationLog mutationLog;
+    private final Supplier<LocalDate> sprintStartDateSupplier;
+    private final int compactionInterval;
+    private final Optional<StateStore> seedStateStore;
+    private final Gson gson = new Gson();
+
+    // state as of appliedSequence, -1 until loaded
+    private Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+    private Map<String, String> userForEachChannelWhoLastRanStandup = new HashMap<>();
+    private long appliedSequence = -1;
+    private long snapshotSequence;
+
+    public LogStructuredStateStore(MutationLog mutationLog, Supplier<LocalDate> sprintStartDateSupplier) {
+        this(mutationLog, sprintStartDateSupplier, Optional.empty(), Constants.STATE_LOG_COMPACTION_INTERVAL);
+    }
+
+    public LogStructuredStateStore(MutationLog mutationLog, Supplier<LocalDate> sprintStartDateSupplier, StateStore seedStateStore) {
+        this(mutationLog, sprintStartDateSupplier, Optional.of(seedStateStore), Constants.STATE_LOG_COMPACTION_INTERVAL);
+    }
+
+    /*
+        for testing
+     */
+    public LogStructuredStateStore(MutationLog mutationLog, Supplier<LocalDate> sprintStartDateSupplier, int compactionInterval) {
+        this(mutationLog, sprintStartDateSupplier, Optional.empty(), compactionInterval);
+    }
+
+    private LogStructuredStateStore(MutationLog mutationLog,
+                                    Supplier<LocalDate> sprintStartDateSupplier,
+                                    Optional<StateStore> seedStateStore,
+                                    int compactionInterval) {
+        this.mutationLog = mutationLog;
+        this.sprintStartDateSupplier = sprintStartDateSupplier;
+        this.seedStateStore = seedStateStore;
+        this.compactionInterval = compactionInterval;
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getChannelIdToUserListMap() {
+        catchUp();
+        return copyOf(channelIdToUserListMap);
+    }
+
+    @Override
+    public synchronized Map<String, String> getUserForEachChannelWhoLastRanStandup() {
+        catchUp();
+        return new HashMap<>(userForEachChannelWhoLastRanStandup);
+    }
+
+    @Override
+    public LocalDate getSprintStartDate() {
+        return sprintStartDateSupplier.get();
+    }
+
+    @Override
+    public synchronized boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        catchUp();
+        Optional<Map<String, List<String>>> updatedMap = mutation.apply(copyOf(channelIdToUserListMap));
+        return updatedMap.isPresent() &&
+                append(StateMutation.diffChannelIdToUserListMap(channelIdToUserListMap, updatedMap.get()));
+    }
+
+    @Override
+    public synchronized boolean updateUserForEachChannelWhoLastRanStandup(Function<Map<String, String>, Optional<Map<String, String>>> mutation) {
+        catchUp();
+        Optional<Map<String, String>> updatedMap = mutation.apply(new HashMap<>(userForEachChannelWhoLastRanStandup));
+        return updatedMap.isPresent() &&
+                append(StateMutation.diffUserForEachChannelWhoLastRanStandup(userForEachChannelWhoLastRanStandup, updatedMap.get()));
+    }
+
+    /*
+        the records still in the log from fromSequence on, oldest first, for working out how the
+        rotation got where it is
+     */
+    public List<String> replay(long fromSequence) {
+        List<String> history = new ArrayList<>();
+        long latestSequence = mutationLog.latestSequence();
+        for (long sequence = Math.max(1, fromSequence); sequence <= latestSequence; sequence++) {
+            long currentSequence = sequence;
+            mutationLog.read(sequence).ifPresent(record -> {
+                MutationRecord mutationRecord = gson.fromJson(record, MUTATION_RECORD_TYPE);
+                history.add(currentSequence + " " + mutationRecord.at + " " + mutationRecord.mutations);
+            });
+        }
+        return history;
+    }
+
+    private boolean append(List<StateMutation> mutations) {
+        if (mutations.isEmpty()) {
+            return false;
+        }
+        mutationLog.append(gson.toJson(new MutationRecord(Instant.now().toString(), mutations, false)));
+        // applies our record, and any appended by other instances before it, in log order
+        catchUp();
+        if (appliedSequence - snapshotSequence >= compactionInterval) {
+            mutationLog.compact(gson.toJson(new Snapshot(appliedSequence, channelIdToUserListMap, userForEachChannelWhoLastRanStandup)),
+                    appliedSequence);
+            snapshotSequence = appliedSequence;
+        }
+        return true;
+    }
+
+    private void catchUp() {
+        if (appliedSequence < 0) {
+            loadSnapshot();
+            seedIfEmpty();
+        }
+        long latestSequence = mutationLog.latestSequence();
+        while (appliedSequence < latestSequence) {
+            Optional<String> record = mutationLog.read(appliedSequence + 1);
+            if (record.isEmpty()) {
+                // compacted by another instance since we last caught up, the snapshot covers it
+                long previousAppliedSequence = appliedSequence;
+                loadSnapshot();
+                if (appliedSequence <= previousAppliedSequence) {
+                    throw new IllegalStateException("state log record " + (previousAppliedSequence + 1) + " is missing and not covered by the snapshot");
+                }
+                continue;
+            }
+            MutationRecord mutationRecord = gson.fromJson(record.get(), MUTATION_RECORD_TYPE);
+            // a seed after the start of the log is from an instance which found it empty too late
+            if (!mutationRecord.seed || appliedSequence == 0) {
+                mutationRecord.mutations.forEach(stateMutation ->
+                        stateMutation.applyTo(channelIdToUserListMap, userForEachChannelWhoLastRanStandup));
+            }
+            appliedSequence++;
+        }
+    }
+
+    private void seedIfEmpty() {
+        if (seedStateStore.isEmpty() || appliedSequence > 0 || mutationLog.latestSequence() > 0) {
+            return;
+        }
+        List<StateMutation> mutations = new ArrayList<>();
+        seedStateStore.get().getChannelIdToUserListMap().forEach((channelId, userList) ->
+                mutations.add(StateMutation.setChannel(channelId, userList)));
+        seedStateStore.get().getUserForEachChannelWhoLastRanStandup().forEach((channelId, rotationEntry) ->
+                mutations.add(StateMutation.setLastRunner(channelId, rotationEntry)));
+        if (!mutations.isEmpty()) {
+            mutationLog.append(gson.toJson(new MutationRecord(Instant.now().toString(), mutations, true)));
+        }
+    }
+
+    private void loadSnapshot() {
+        Optional<Snapshot> snapshot = mutationLog.readSnapshot().map(json -> gson.fromJson(json, Snapshot.class));
+        channelIdToUserListMap = snapshot.map(s -> copyOf(s.channelIdToUserListMap)).orElseGet(HashMap::new);
+        userForEachChannelWhoLastRanStandup = snapshot.map(s -> new HashMap<>(s.userForEachChannelWhoLastRanStandup)).orElseGet(HashMap::new);
+        appliedSequence = snapshot.map(s -> s.sequence).orElse(0L);
+        snapshotSequence = appliedSequence;
+    }
+
+    private static Map<String, List<String>> copyOf(Map<String, List<String>> channelIdToUserListMap) {
+        Map<String, List<String>> copy = new HashMap<>();
+        channelIdToUserListMap.forEach((channelId, userList) -> copy.put(channelId, new ArrayList<>(userList)));
+        return copy;
+    }
+
+    private static class MutationRecord {
+        private final String at;
+        private final List<StateMutation> mutations;
+        private final boolean seed;
+
+        private MutationRecord(String at, List<StateMutation> mutations, boolean seed) {
+            this.at = at;
+            this.mutations = mutations;
+            this.seed = seed;
+        }
+    }
+
+    private static class Snapshot {
+        private final long sequence;
+        private final Map<String, List<String>> channelIdToUserListMap;
+        private final Map<String, String> userForEachChannelWhoLastRanStandup;
+
+        private Snapshot(long sequence,
+                         Map<String, List<String>> channelIdToUserListMap,
+                         Map<String, String> userForEachChannelWhoLastRanStandup) {
+            this.sequence = sequence;
+            this.channelIdToUserListMap = channelIdToUserListMap;
+            this.userForEachChannelWhoLastRanStandup = userForEachChannelWhoLastRanStandup;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.redletra.standupsally.state;
+
+import com.redletra.standupsally.utils.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/*
+    State kept in a memory-mapped local file, so several local processes (eg a load test driving both
+    functions) can share it at memory speed. Updates hold an exclusive file lock for the read-modify-write.
+    Only one store per file should be open in a JVM, as file locks are held per JVM.
+
+    File layout: magic, roster length, last user length, then the roster and last user maps in the
+    same text format as the secrets. The sprint start date is configuration so it is not stored
+ */
+public class MappedFileStateStore implements StateStore, AutoCloseable {
+
+    private static final int MAGIC = 0x53535331;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    private final FileChannel fileChannel;
+    private final LocalDate sprintStartDate;
+    private MappedByteBuffer mappedState;
+
+    public MappedFileStateStore(Path file, LocalDate sprintStartDate) {
+        this.sprintStartDate = sprintStartDate;
+        try {
+            this.fileChannel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try (FileLock lock = fileChannel.lock()) {
+                this.mappedState = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileChannel.size(), INITIAL_CAPACITY));
+                if (mappedState.getInt(0) != MAGIC) {
+                    writeState(new byte[0], new byte[0]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getChannelIdToUserListMap() {
+        try (FileLock lock = fileChannel.lock(0, Long.MAX_VALUE, true)) {
+            return decodeChannelIdToUserListMap(readRoster());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, String> getUserForEachChannelWhoLastRanStandup() {
+        try (FileLock lock = fileChannel.lock(0, Long.MAX_VALUE, true)) {
+            return decodeUserForEachChannelWhoLastRanStandup(readLastUsers());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public LocalDate getSprintStartDate() {
+        return sprintStartDate;
+    }
+
+    @Override
+    public synchronized boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        try (FileLock lock = fileChannel.lock()) {
+            Optional<Map<String, List<String>>> updatedMap = mutation.apply(decodeChannelIdToUserListMap(readRoster()));
+            if (updatedMap.isPresent()) {
+                writeState(Utils.generateSecretStringFromChannelIdToUserHandlesListMap(updatedMap.get()).getBytes(StandardCharsets.UTF_8),
+                        readLastUsers().getBytes(StandardCharsets.UTF_8));
+            }
+            return updatedMap.isPresent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean updateUserForEachChannelWhoLastRanStandup(Function<Map<String, String>, Optional<Map<String, String>>> mutation) {
+        try (FileLock lock = fileChannel.lock()) {
+            Optional<Map<String, String>> updatedMap = mutation.apply(decodeUserForEachChannelWhoLastRanStandup(readLastUsers()));
+            if (updatedMap.isPresent()) {
+                writeState(readRoster().getBytes(StandardCharsets.UTF_8),
+                        Utils.generateSecretStringFromChannelIdToLastUserToRunStandupMap(updatedMap.get()).getBytes(StandardCharsets.UTF_8));
+            }
+            return updatedMap.isPresent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        fileChannel.close();
+    }
+
+    private String readRoster() throws IOException {
+        remapIfGrown();
+        return readString(HEADER_BYTES, mappedState.getInt(Integer.BYTES));
+    }
+
+    private String readLastUsers() throws IOException {
+        remapIfGrown();
+        return readString(HEADER_BYTES + mappedState.getInt(Integer.BYTES), mappedState.getInt(2 * Integer.BYTES));
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = mappedState.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeState(byte[] roster, byte[] lastUsers) throws IOException {
+        int requiredCapacity = HEADER_BYTES + roster.length + lastUsers.length;
+        if (requiredCapacity > mappedState.capacity()) {
+            mappedState = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(requiredCapacity, 2L * mappedState.capacity()));
+        }
+        ByteBuffer view = mappedState.duplicate();
+        view.position(HEADER_BYTES);
+        view.put(roster);
+        view.put(lastUsers);
+        mappedState.putInt(Integer.BYTES, roster.length);
+        mappedState.putInt(2 * Integer.BYTES, lastUsers.length);
+        mappedState.putInt(0, MAGIC);
+        mappedState.force();
+    }
+
+    /*
+        another process may have grown the file since we mapped it
+     */
+    private void remapIfGrown() throws IOException {
+        if (fileChannel.size() > mappedState.capacity()) {
+            mappedState = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileChannel.size());
+        }
+    }
+
+    private static Map<String, List<String>> decodeChannelIdToUserListMap(String roster) {
+        return roster.isEmpty() ? new HashMap<>() : Utils.convertChannelToUsersStringToMap(roster);
+    }
+
+    private static Map<String, String> decodeUserForEachChannelWhoLastRanStandup(String lastUsers) {
+        return lastUsers.isEmpty() ? new HashMap<>() : Utils.convertChannelIdToUserHandleStringToMap(lastUsers);
+    }
+}
@@ -0,0 +1,36 @@
+package com.redletra.standupsally.state;
+
+import java.util.Optional;
+
+/*
+    Append-only log of state records plus a snapshot of the state up to some record, for
+    LogStructuredStateStore. Records and snapshots are opaque strings to the log
+ */
+public interface MutationLog {
+
+    /*
+        append a record, returning its sequence number. Sequence numbers start at 1 and increase by
+        one with each record, across every writer of the log
+     */
+    long append(String record);
+
+    /*
+        sequence number of the newest record, 0 if there are none
+     */
+    long latestSequence();
+
+    /*
+        the record, or empty if compaction has discarded it
+     */
+    Optional<String> read(long sequence);
+
+    Optional<String> readSnapshot();
+
+    /*
+        store a snapshot of the state as of throughSequence, then discard the records it covers.
+        The snapshot is always stored before any record is discarded, and readSnapshot returns the
+        snapshot covering the most records even if several instances compact at once, so a reader
+        which finds a record missing can rely on the snapshot covering it
+     */
+    void compact(String snapshot, long throughSequence);
+}
@@ -0,0 +1,58 @@
+package com.redletra.standupsally.state;
+
+import java.util.OptionalInt;
+
+/*
+    How many secrets the roster is split over, eg shards=8. While resharding the previous shard
+    count is kept too, eg shards=8;previous=4, so channels not yet moved can still be found
+ */
+public class RosterShardLayout {
+
+    public static final RosterShardLayout UNSHARDED = new RosterShardLayout(1, OptionalInt.empty());
+
+    private final int shardCount;
+    private final OptionalInt previousShardCount;
+
+    public RosterShardLayout(int shardCount, OptionalInt previousShardCount) {
+        this.shardCount = shardCount;
+        this.previousShardCount = previousShardCount;
+    }
+
+    public static RosterShardLayout parse(String rosterShardLayout) {
+        int shardCount = 1;
+        OptionalInt previousShardCount = OptionalInt.empty();
+        for (String entry : rosterShardLayout.trim().split(";")) {
+            String[] keyAndValue = entry.split("=");
+            if (keyAndValue.length != 2) {
+                throw new IllegalArgumentException("invalid roster shard layout " + rosterShardLayout);
+            }
+            if (keyAndValue[0].equals("shards")) {
+                shardCount = Integer.parseInt(keyAndValue[1]);
+            } else if (keyAndValue[0].equals("previous")) {
+                previousShardCount = OptionalInt.of(Integer.parseInt(keyAndValue[1]));
+            }
+        }
+        return new RosterShardLayout(shardCount, previousShardCount);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public OptionalInt getPreviousShardCount() {
+        return previousShardCount;
+    }
+
+    public boolean isResharding() {
+        return previousShardCount.isPresent();
+    }
+
+    public boolean isUnsharded() {
+        return shardCount == 1 && !isResharding();
+    }
+
+    @Override
+    public String toString() {
+        return "shards=" + shardCount + (previousShardCount.isPresent() ? ";previous=" + previousShardCount.getAsInt() : "");
+    }
+}
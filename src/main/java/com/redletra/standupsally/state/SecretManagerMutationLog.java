@@ -0,0 +1,187 @@
+package com.redletra.standupsally.state;
+
+import com.google.api.gax.rpc.FailedPreconditionException;
+import com.google.api.gax.rpc.NotFoundException;
+import com.google.cloud.secretmanager.v1.*;
+import com.google.protobuf.ByteString;
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/*
+    Mutation log kept in Secret Manager. Each record is a version of the log secret, so the version
+    number is the sequence number, and appending costs one small addSecretVersion with no read and no
+    conflict with other writers. Snapshots are versions of a second secret, each prefixed with the
+    sequence it covers. Compaction destroys the log versions a snapshot covers, which keeps the number
+    of active versions (and the bill) down.
+
+    Instances can compact at the same time, and the newest snapshot version isn't necessarily the one
+    covering the most records. So the snapshot read is the enabled version covering the most, and a
+    compaction only destroys what its own snapshot provably covers: log records up to its sequence,
+    and snapshots covering fewer records than its own. The snapshot covering the most is never
+    destroyed, so a missing record is always covered by the snapshot a reader finds
+ */
+public class SecretManagerMutationLog implements MutationLog {
+
+    private final SecretUtils secretUtils;
+    private final SecretManagerClientHolder secretManagerClientHolder;
+
+    public SecretManagerMutationLog(SecretUtils secretUtils, SecretManagerClientHolder secretManagerClientHolder) {
+        this.secretUtils = secretUtils;
+        this.secretManagerClientHolder = secretManagerClientHolder;
+    }
+
+    @Override
+    public long append(String record) {
+        SecretManagerServiceClient client = client();
+        SecretName logSecretName = SecretName.of(Constants.PROJECT_ID, Constants.STATE_LOG_SECRET_NAME);
+        SecretPayload payload = SecretPayload.newBuilder().setData(ByteString.copyFromUtf8(record)).build();
+        try {
+            return versionNumber(client.addSecretVersion(logSecretName, payload));
+        } catch (NotFoundException e) {
+            // first record ever
+            secretUtils.createSecretIfMissing(client, Constants.STATE_LOG_SECRET_NAME);
+            return versionNumber(client.addSecretVersion(logSecretName, payload));
+        }
+    }
+
+    @Override
+    public long latestSequence() {
+        try {
+            return versionNumber(client().getSecretVersion(
+                    SecretVersionName.of(Constants.PROJECT_ID, Constants.STATE_LOG_SECRET_NAME, "latest")));
+        } catch (NotFoundException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public Optional<String> read(long sequence) {
+        try {
+            return Optional.of(client().accessSecretVersion(
+                            SecretVersionName.of(Constants.PROJECT_ID, Constants.STATE_LOG_SECRET_NAME, String.valueOf(sequence)))
+                    .getPayload()
+                    .getData()
+                    .toStringUtf8());
+        } catch (FailedPreconditionException | NotFoundException e) {
+            // destroyed by compaction
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<String> readSnapshot() {
+        return enabledSnapshots(client())
+                .stream()
+                .max(SnapshotVersion.COVERAGE)
+                .map(snapshotVersion -> snapshotVersion.snapshot);
+    }
+
+    @Override
+    public void compact(String snapshot, long throughSequence) {
+        SecretManagerServiceClient client = client();
+        secretUtils.createSecretIfMissing(client, Constants.STATE_SNAPSHOT_SECRET_NAME);
+        SecretVersion snapshotSecretVersion = client.addSecretVersion(
+                SecretName.of(Constants.PROJECT_ID, Constants.STATE_SNAPSHOT_SECRET_NAME),
+                SecretPayload.newBuilder().setData(ByteString.copyFromUtf8(throughSequence + "\n" + snapshot)).build());
+        SnapshotVersion ownSnapshot = new SnapshotVersion(versionNumber(snapshotSecretVersion), throughSequence, snapshot);
+
+        // a snapshot from a concurrent compaction which covers more than ours is left for that compaction
+        for (SnapshotVersion snapshotVersion : enabledSnapshots(client)) {
+            if (SnapshotVersion.COVERAGE.compare(snapshotVersion, ownSnapshot) < 0) {
+                destroy(client, SecretVersionName.of(Constants.PROJECT_ID,
+                        Constants.STATE_SNAPSHOT_SECRET_NAME,
+                        String.valueOf(snapshotVersion.versionNumber)));
+            }
+        }
+        // one list call finds what is still enabled, rather than one destroy attempt per sequence number
+        for (SecretVersion logVersion : enabledVersions(client, Constants.STATE_LOG_SECRET_NAME)) {
+            if (versionNumber(logVersion) <= throughSequence) {
+                destroy(client, SecretVersionName.parse(logVersion.getName()));
+            }
+        }
+    }
+
+    /*
+        every enabled snapshot, usually just the one
+     */
+    private List<SnapshotVersion> enabledSnapshots(SecretManagerServiceClient client) {
+        List<SnapshotVersion> snapshotVersions = new ArrayList<>();
+        for (SecretVersion secretVersion : enabledVersions(client, Constants.STATE_SNAPSHOT_SECRET_NAME)) {
+            try {
+                String payload = client.accessSecretVersion(SecretVersionName.parse(secretVersion.getName()))
+                        .getPayload()
+                        .getData()
+                        .toStringUtf8();
+                int separator = payload.indexOf('\n');
+                snapshotVersions.add(new SnapshotVersion(versionNumber(secretVersion),
+                        Long.parseLong(payload.substring(0, separator)),
+                        payload.substring(separator + 1)));
+            } catch (FailedPreconditionException | NotFoundException e) {
+                // destroyed by a compaction covering more since it was listed
+            }
+        }
+        return snapshotVersions;
+    }
+
+    private List<SecretVersion> enabledVersions(SecretManagerServiceClient client, String secretNameLabel) {
+        ListSecretVersionsRequest listSecretVersionsRequest = ListSecretVersionsRequest.newBuilder()
+                .setParent(SecretName.of(Constants.PROJECT_ID, secretNameLabel).toString())
+                .setFilter("state:ENABLED")
+                .build();
+        List<SecretVersion> secretVersions = new ArrayList<>();
+        try {
+            client.listSecretVersions(listSecretVersionsRequest).iterateAll().forEach(secretVersions::add);
+        } catch (NotFoundException e) {
+            // nothing written yet
+        }
+        return secretVersions;
+    }
+
+    private void destroy(SecretManagerServiceClient client, SecretVersionName secretVersionName) {
+        try {
+            client.destroySecretVersion(DestroySecretVersionRequest.newBuilder()
+                    .setName(secretVersionName.toString())
+                    .build());
+        } catch (FailedPreconditionException | NotFoundException e) {
+            // another instance compacted at the same time
+        }
+    }
+
+    private long versionNumber(SecretVersion secretVersion) {
+        return Long.parseLong(SecretVersionName.parse(secretVersion.getName()).getSecretVersion());
+    }
+
+    private SecretManagerServiceClient client() {
+        try {
+            return secretManagerClientHolder.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class SnapshotVersion {
+
+        // covering more records wins, then the newer version, so no two snapshots are ever equal
+        private static final Comparator<SnapshotVersion> COVERAGE = Comparator
+                .<SnapshotVersion>comparingLong(snapshotVersion -> snapshotVersion.throughSequence)
+                .thenComparingLong(snapshotVersion -> snapshotVersion.versionNumber);
+
+        private final long versionNumber;
+        private final long throughSequence;
+        private final String snapshot;
+
+        private SnapshotVersion(long versionNumber, long throughSequence, String snapshot) {
+            this.versionNumber = versionNumber;
+            this.throughSequence = throughSequence;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.redletra.standupsally.state;
+
+import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/*
+    State kept in GCP Secret Manager, one secret per piece of state (see Constants)
+ */
+public class SecretManagerStateStore implements StateStore {
+
+    protected final SecretUtils secretUtils;
+    private final SecretManagerClientHolder secretManagerClientHolder;
+
+    public SecretManagerStateStore(SecretUtils secretUtils, SecretManagerClientHolder secretManagerClientHolder) {
+        this.secretUtils = secretUtils;
+        this.secretManagerClientHolder = secretManagerClientHolder;
+    }
+
+    @Override
+    public Map<String, List<String>> getChannelIdToUserListMap() {
+        return secretUtils.getChannelIdToUserListMap(client()).getValue0();
+    }
+
+    @Override
+    public Map<String, String> getUserForEachChannelWhoLastRanStandup() {
+        return secretUtils.getUserForEachChannelWhoLastRanStandup(client()).getValue0();
+    }
+
+    @Override
+    public LocalDate getSprintStartDate() {
+        return secretUtils.getSprintStartDate(client());
+    }
+
+    @Override
+    public boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        return secretUtils.updateChannelIdToUserListMap(client(), mutation);
+    }
+
+    @Override
+    public boolean updateUserForEachChannelWhoLastRanStandup(Function<Map<String, String>, Optional<Map<String, String>>> mutation) {
+        return secretUtils.updateUserForEachChannelWhoLastRanStandup(client(), mutation);
+    }
+
+    protected SecretManagerServiceClient client() {
+        try {
+            return secretManagerClientHolder.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
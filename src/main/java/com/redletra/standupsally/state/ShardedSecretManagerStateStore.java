@@ -0,0 +1,314 @@
+package com.redletra.standupsally.state;
+
+import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+    Secret Manager state with the roster split over several secrets by consistent hashing of the
+    channel id, so a join or leave only reads and rewrites the secret holding that channel, and the
+    roster is no longer limited to one 64Kb payload.
+
+    Shard 0 is the original roster secret and shard n is channelIdToMemberSlackHandles-shard-n.
+    The layout is kept in its own secret. If there is no layout the roster is unsharded and this
+    behaves exactly like SecretManagerStateStore.
+
+    Resharding is online: the layout first records both the new and the previous shard count, and
+    while it does a channel missing from its new shard is read from its previous shard, and moved
+    to the new shard the first time it is written. reshard then moves every remaining channel and
+    drops the previous shard count from the layout
+ */
+public class ShardedSecretManagerStateStore extends SecretManagerStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSecretManagerStateStore.class);
+
+    private final Duration layoutPropagationDelay;
+    private final Map<Integer, ConsistentHashRing> rings = new ConcurrentHashMap<>();
+    // the layout secret as last read and parsed, it only changes when resharding
+    private volatile Map.Entry<String, RosterShardLayout> parsedLayout = new AbstractMap.SimpleImmutableEntry<>("", RosterShardLayout.UNSHARDED);
+
+    public ShardedSecretManagerStateStore(SecretUtils secretUtils, SecretManagerClientHolder secretManagerClientHolder) {
+        this(secretUtils, secretManagerClientHolder, Constants.ROSTER_SHARD_LAYOUT_CACHE_TTL);
+    }
+
+    /*
+        for testing
+     */
+    public ShardedSecretManagerStateStore(SecretUtils secretUtils,
+                                          SecretManagerClientHolder secretManagerClientHolder,
+                                          Duration layoutPropagationDelay) {
+        super(secretUtils, secretManagerClientHolder);
+        this.layoutPropagationDelay = layoutPropagationDelay;
+    }
+
+    public static String shardSecretName(int shard) {
+        return shard == 0 ?
+                Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME :
+                Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME + "-shard-" + shard;
+    }
+
+    /*
+        every channel, read from every shard (the daily run needs them all)
+     */
+    @Override
+    public Map<String, List<String>> getChannelIdToUserListMap() {
+        RosterShardLayout layout = layout();
+        if (layout.isUnsharded()) {
+            return super.getChannelIdToUserListMap();
+        }
+        SecretManagerServiceClient client = client();
+        ConsistentHashRing ring = ring(layout.getShardCount());
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+        for (int shard = 0; shard < shardsInUse(layout); shard++) {
+            int currentShard = shard;
+            readShard(client, shard).forEach((channelId, userList) -> {
+                // while resharding a channel can briefly be in its previous shard as well, its new shard wins
+                if (ring.shardFor(channelId) == currentShard) {
+                    channelIdToUserListMap.put(channelId, userList);
+                } else {
+                    channelIdToUserListMap.putIfAbsent(channelId, userList);
+                }
+            });
+        }
+        return channelIdToUserListMap;
+    }
+
+    /*
+        the mutation needs to see every channel, so this reads every shard but only rewrites the shards
+        holding channels the mutation changed. Unlike the single secret this is not atomic across shards,
+        and channels the mutation drops are not removed
+     */
+    @Override
+    public boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        if (layout().isUnsharded()) {
+            return super.updateChannelIdToUserListMap(mutation);
+        }
+        Map<String, List<String>> channelIdToUserListMap = getChannelIdToUserListMap();
+        Map<String, List<String>> originalChannelIdToUserListMap = copyOf(channelIdToUserListMap);
+        Optional<Map<String, List<String>>> updatedMap = mutation.apply(channelIdToUserListMap);
+        if (updatedMap.isEmpty()) {
+            return false;
+        }
+        Map<String, List<String>> changedChannels = new HashMap<>();
+        updatedMap.get().forEach((channelId, userList) -> {
+            if (!userList.equals(originalChannelIdToUserListMap.get(channelId))) {
+                changedChannels.put(channelId, userList);
+            }
+        });
+        return !changedChannels.isEmpty() && updateChannelUserLists(changedChannels.keySet(), channels -> {
+            channels.putAll(changedChannels);
+            return Optional.of(channels);
+        });
+    }
+
+    @Override
+    public boolean updateChannelUserLists(Set<String> channelIds,
+                                          Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        RosterShardLayout layout = layout();
+        if (layout.isUnsharded()) {
+            return super.updateChannelIdToUserListMap(mutation);
+        }
+        SecretManagerServiceClient client = client();
+        ConsistentHashRing ring = ring(layout.getShardCount());
+        Map<Integer, Set<String>> channelIdsByShard = channelIds.stream()
+                .collect(Collectors.groupingBy(ring::shardFor, TreeMap::new, Collectors.toSet()));
+
+        boolean changed = false;
+        for (Map.Entry<Integer, Set<String>> shardChannelIds : channelIdsByShard.entrySet()) {
+            int shard = shardChannelIds.getKey();
+            // channels which may still be waiting to be moved here from their previous shard
+            Map<String, List<String>> previousShardChannels = layout.isResharding() ?
+                    readFromPreviousShards(client, shard, shardChannelIds.getValue(), ring(layout.getPreviousShardCount().getAsInt())) :
+                    Map.of();
+            Set<String> movedChannelIds = new HashSet<>();
+
+            changed |= secretUtils.updateChannelIdToUserListMap(client, shardSecretName(shard), shardMap -> {
+                movedChannelIds.clear();
+                Map<String, List<String>> channels = new HashMap<>();
+                for (String channelId : shardChannelIds.getValue()) {
+                    List<String> userList = shardMap.containsKey(channelId) ?
+                            shardMap.get(channelId) :
+                            previousShardChannels.get(channelId);
+                    if (userList != null) {
+                        channels.put(channelId, new ArrayList<>(userList));
+                    }
+                }
+                Optional<Map<String, List<String>>> updatedChannels = mutation.apply(channels);
+                if (updatedChannels.isEmpty()) {
+                    return Optional.empty();
+                }
+                updatedChannels.get().forEach((channelId, userList) -> {
+                    // anything else the mutation added belongs to another shard
+                    if (shardChannelIds.getValue().contains(channelId)) {
+                        shardMap.put(channelId, userList);
+                        if (previousShardChannels.containsKey(channelId)) {
+                            movedChannelIds.add(channelId);
+                        }
+                    }
+                });
+                return Optional.of(shardMap);
+            });
+
+            if (!movedChannelIds.isEmpty()) {
+                removeFromShards(client, movedChannelIds, ring(layout.getPreviousShardCount().getAsInt()), shard);
+            }
+        }
+        return changed;
+    }
+
+    /*
+        split the roster over newShardCount secrets, moving channels while both functions keep running.
+        If an earlier reshard to the same count was interrupted, this finishes it
+     */
+    public void reshard(int newShardCount) {
+        RosterShardLayout layout = layout();
+        if (layout.isResharding() && layout.getShardCount() != newShardCount) {
+            throw new IllegalStateException("already resharding to " + layout.getShardCount() + " shards, finish that first");
+        }
+        if (!layout.isResharding() && layout.getShardCount() == newShardCount) {
+            return;
+        }
+        SecretManagerServiceClient client = client();
+        for (int shard = 1; shard < newShardCount; shard++) {
+            secretUtils.createChannelIdToUserListSecretIfMissing(client, shardSecretName(shard));
+        }
+
+        RosterShardLayout reshardingLayout = new RosterShardLayout(newShardCount,
+                OptionalInt.of(layout.getPreviousShardCount().orElse(layout.getShardCount())));
+        if (!layout.isResharding()) {
+            logger.info("resharding roster from {} to {}", layout, reshardingLayout);
+            secretUtils.updateRosterShardLayout(client, reshardingLayout.toString());
+            // instances which cached the old layout keep writing channels to their old shard until it expires
+            sleep(layoutPropagationDelay);
+        }
+
+        ConsistentHashRing ring = ring(newShardCount);
+        for (int shard = 0; shard < shardsInUse(reshardingLayout); shard++) {
+            int currentShard = shard;
+            Map<String, List<String>> channelsToMove = readShard(client, shard).entrySet()
+                    .stream()
+                    .filter(channel -> ring.shardFor(channel.getKey()) != currentShard)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (channelsToMove.isEmpty()) {
+                continue;
+            }
+            logger.info("moving {} channels out of roster shard {}", channelsToMove.size(), shard);
+            channelsToMove.keySet()
+                    .stream()
+                    .collect(Collectors.groupingBy(ring::shardFor, Collectors.toSet()))
+                    .forEach((newShard, channelIds) -> secretUtils.updateChannelIdToUserListMap(client, shardSecretName(newShard), shardMap -> {
+                        boolean changed = false;
+                        for (String channelId : channelIds) {
+                            // a channel already written to its new shard is newer than the copy being moved
+                            changed |= shardMap.putIfAbsent(channelId, channelsToMove.get(channelId)) == null;
+                        }
+                        return changed ? Optional.of(shardMap) : Optional.empty();
+                    }));
+            removeChannelsFromShard(client, channelsToMove.keySet(), shard);
+        }
+
+        RosterShardLayout finalLayout = new RosterShardLayout(newShardCount, OptionalInt.empty());
+        secretUtils.updateRosterShardLayout(client, finalLayout.toString());
+        // shards beyond newShardCount are left in place, empty
+        logger.info("roster resharded to {}", finalLayout);
+    }
+
+    /*
+        the cached layout secret, only parsed again when its content changes
+     */
+    private RosterShardLayout layout() {
+        Optional<String> rosterShardLayout = secretUtils.getRosterShardLayout(client());
+        if (rosterShardLayout.isEmpty()) {
+            return RosterShardLayout.UNSHARDED;
+        }
+        Map.Entry<String, RosterShardLayout> lastParsedLayout = parsedLayout;
+        if (!lastParsedLayout.getKey().equals(rosterShardLayout.get())) {
+            lastParsedLayout = new AbstractMap.SimpleImmutableEntry<>(rosterShardLayout.get(), RosterShardLayout.parse(rosterShardLayout.get()));
+            parsedLayout = lastParsedLayout;
+        }
+        return lastParsedLayout.getValue();
+    }
+
+    private ConsistentHashRing ring(int shardCount) {
+        return rings.computeIfAbsent(shardCount, count -> new ConsistentHashRing(count, Constants.ROSTER_SHARD_VIRTUAL_NODES));
+    }
+
+    /*
+        when shrinking, the previous layout has more shards than the new one
+     */
+    private int shardsInUse(RosterShardLayout layout) {
+        return Math.max(layout.getShardCount(), layout.getPreviousShardCount().orElse(0));
+    }
+
+    private Map<String, List<String>> readShard(SecretManagerServiceClient client, int shard) {
+        return secretUtils.getChannelIdToUserListMap(client, shardSecretName(shard)).getValue0();
+    }
+
+    private Map<String, List<String>> readFromPreviousShards(SecretManagerServiceClient client,
+                                                             int shard,
+                                                             Set<String> channelIds,
+                                                             ConsistentHashRing previousRing) {
+        Map<String, List<String>> previousShardChannels = new HashMap<>();
+        channelIds.stream()
+                .filter(channelId -> previousRing.shardFor(channelId) != shard)
+                .collect(Collectors.groupingBy(previousRing::shardFor, Collectors.toSet()))
+                .forEach((previousShard, previousShardChannelIds) -> {
+                    Map<String, List<String>> previousShardMap = readShard(client, previousShard);
+                    previousShardChannelIds.stream()
+                            .filter(previousShardMap::containsKey)
+                            .forEach(channelId -> previousShardChannels.put(channelId, previousShardMap.get(channelId)));
+                });
+        return previousShardChannels;
+    }
+
+    private void removeFromShards(SecretManagerServiceClient client,
+                                  Set<String> channelIds,
+                                  ConsistentHashRing previousRing,
+                                  int newShard) {
+        channelIds.stream()
+                .collect(Collectors.groupingBy(previousRing::shardFor, Collectors.toSet()))
+                .forEach((previousShard, previousShardChannelIds) -> {
+                    if (previousShard != newShard) {
+                        removeChannelsFromShard(client, previousShardChannelIds, previousShard);
+                    }
+                });
+    }
+
+    private void removeChannelsFromShard(SecretManagerServiceClient client, Set<String> channelIds, int shard) {
+        secretUtils.updateChannelIdToUserListMap(client, shardSecretName(shard), shardMap ->
+                shardMap.keySet().removeAll(channelIds) ? Optional.of(shardMap) : Optional.empty());
+    }
+
+    private static Map<String, List<String>> copyOf(Map<String, List<String>> channelIdToUserListMap) {
+        Map<String, List<String>> copy = new HashMap<>();
+        channelIdToUserListMap.forEach((channelId, userList) -> copy.put(channelId, new ArrayList<>(userList)));
+        return copy;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while resharding", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.redletra.standupsally.state;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+    One change to the roster or rotation state, as recorded in the mutation log. Joins and leaves
+    are recorded as the single user added or removed, so a record is the size of the change
+ */
+public class StateMutation {
+
+    public enum Type { ADD_USER, REMOVE_USER, SET_CHANNEL, REMOVE_CHANNEL, SET_LAST_RUNNER, CLEAR_LAST_RUNNER }
+
+    private final Type type;
+    private final String channelId;
+    private final String userId;
+    private final List<String> users;
+    private final String rotationEntry;
+
+    private StateMutation(Type type, String channelId, String userId, List<String> users, String rotationEntry) {
+        this.type = type;
+        this.channelId = channelId;
+        this.userId = userId;
+        this.users = users;
+        this.rotationEntry = rotationEntry;
+    }
+
+    public static StateMutation addUser(String channelId, String userId) {
+        return new StateMutation(Type.ADD_USER, channelId, userId, null, null);
+    }
+
+    public static StateMutation removeUser(String channelId, String userId) {
+        return new StateMutation(Type.REMOVE_USER, channelId, userId, null, null);
+    }
+
+    public static StateMutation setChannel(String channelId, List<String> users) {
+        return new StateMutation(Type.SET_CHANNEL, channelId, null, new ArrayList<>(users), null);
+    }
+
+    public static StateMutation removeChannel(String channelId) {
+        return new StateMutation(Type.REMOVE_CHANNEL, channelId, null, null, null);
+    }
+
+    public static StateMutation setLastRunner(String channelId, String rotationEntry) {
+        return new StateMutation(Type.SET_LAST_RUNNER, channelId, null, null, rotationEntry);
+    }
+
+    public static StateMutation clearLastRunner(String channelId) {
+        return new StateMutation(Type.CLEAR_LAST_RUNNER, channelId, null, null, null);
+    }
+
+    /*
+        Like RosterUpdateCoalescer.applyChanges, adding to or removing from a channel which doesn't
+        exist does nothing, so replaying the log in order always gives the same state
+     */
+    public void applyTo(Map<String, List<String>> channelIdToUserListMap,
+                        Map<String, String> userForEachChannelWhoLastRanStandup) {
+        switch (type) {
+            case ADD_USER:
+                List<String> userList = channelIdToUserListMap.get(channelId);
+                if (userList != null && !userList.contains(userId)) {
+                    userList.add(userId);
+                }
+                break;
+            case REMOVE_USER:
+                if (channelIdToUserListMap.containsKey(channelId)) {
+                    channelIdToUserListMap.get(channelId).remove(userId);
+                }
+                break;
+            case SET_CHANNEL:
+                channelIdToUserListMap.put(channelId, new ArrayList<>(users));
+                break;
+            case REMOVE_CHANNEL:
+                channelIdToUserListMap.remove(channelId);
+                break;
+            case SET_LAST_RUNNER:
+                userForEachChannelWhoLastRanStandup.put(channelId, rotationEntry);
+                break;
+            case CLEAR_LAST_RUNNER:
+                userForEachChannelWhoLastRanStandup.remove(channelId);
+                break;
+        }
+    }
+
+    /*
+        the mutations which turn one roster into another. A channel which only lost users and had
+        users appended is recorded as those users, anything else as the channel's whole new list
+     */
+    public static List<StateMutation> diffChannelIdToUserListMap(Map<String, List<String>> before,
+                                                                Map<String, List<String>> after) {
+        List<StateMutation> mutations = new ArrayList<>();
+        after.forEach((channelId, usersAfter) -> {
+            List<String> usersBefore = before.get(channelId);
+            if (usersBefore == null) {
+                mutations.add(setChannel(channelId, usersAfter));
+            } else if (!usersBefore.equals(usersAfter)) {
+                Set<String> usersAfterSet = new HashSet<>(usersAfter);
+                Set<String> usersBeforeSet = new HashSet<>(usersBefore);
+                List<StateMutation> channelMutations = new ArrayList<>();
+                List<String> replayedUsers = new ArrayList<>();
+                for (String user : usersBefore) {
+                    if (usersAfterSet.contains(user)) {
+                        replayedUsers.add(user);
+                    } else {
+                        channelMutations.add(removeUser(channelId, user));
+                    }
+                }
+                for (String user : usersAfter) {
+                    if (!usersBeforeSet.contains(user)) {
+                        replayedUsers.add(user);
+                        channelMutations.add(addUser(channelId, user));
+                    }
+                }
+                if (replayedUsers.equals(usersAfter)) {
+                    mutations.addAll(channelMutations);
+                } else {
+                    // reordered, or duplicate users
+                    mutations.add(setChannel(channelId, usersAfter));
+                }
+            }
+        });
+        before.keySet()
+                .stream()
+                .filter(channelId -> !after.containsKey(channelId))
+                .forEach(channelId -> mutations.add(removeChannel(channelId)));
+        return mutations;
+    }
+
+    public static List<StateMutation> diffUserForEachChannelWhoLastRanStandup(Map<String, String> before,
+                                                                             Map<String, String> after) {
+        List<StateMutation> mutations = new ArrayList<>();
+        after.forEach((channelId, rotationEntry) -> {
+            if (!rotationEntry.equals(before.get(channelId))) {
+                mutations.add(setLastRunner(channelId, rotationEntry));
+            }
+        });
+        before.keySet()
+                .stream()
+                .filter(channelId -> !after.containsKey(channelId))
+                .forEach(channelId -> mutations.add(clearLastRunner(channelId)));
+        return mutations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StateMutation that = (StateMutation) o;
+        return type == that.type &&
+                Objects.equals(channelId, that.channelId) &&
+                Objects.equals(userId, that.userId) &&
+                Objects.equals(users, that.users) &&
+                Objects.equals(rotationEntry, that.rotationEntry);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, channelId, userId, users, rotationEntry);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + channelId + " " + Objects.toString(userId != null ? userId : users != null ? users : rotationEntry, "");
+    }
+}
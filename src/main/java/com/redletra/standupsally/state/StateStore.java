@@ -0,0 +1,46 @@
+package com.redletra.standupsally.state;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+    Application state shared by both functions: the users in each channel, the user in each
+    channel who last ran standup, and the monday the current sprint started on.
+    Getters return copies which the caller is free to change
+ */
+public interface StateStore {
+
+    Map<String, List<String>> getChannelIdToUserListMap();
+
+    Map<String, String> getUserForEachChannelWhoLastRanStandup();
+
+    LocalDate getSprintStartDate();
+
+    /*
+        Read-modify-write of the channel id to user list map. The mutation is given a copy of the
+        current map and returns the updated map, or an empty Optional if nothing needs to change.
+        The mutation may be applied more than once if the state is updated concurrently.
+        Returns true if the state was changed
+     */
+    boolean updateChannelIdToUserListMap(Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation);
+
+    /*
+        Read-modify-write of just the given channels' user lists, for stores which can do that without
+        touching every channel. The mutation is given a map holding whichever of the channels exist, and
+        may be applied to groups of those channels separately, so it must only change the channels it is
+        given (or add one of channelIds). By default this is the same as updateChannelIdToUserListMap
+     */
+    default boolean updateChannelUserLists(Set<String> channelIds,
+                                           Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        return updateChannelIdToUserListMap(mutation);
+    }
+
+    /*
+        Read-modify-write of the channel id to user who last ran standup map, see updateChannelIdToUserListMap
+     */
+    boolean updateUserForEachChannelWhoLastRanStandup(Function<Map<String, String>, Optional<Map<String, String>>> mutation);
+}
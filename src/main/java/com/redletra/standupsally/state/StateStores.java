@@ -0,0 +1,49 @@
+package com.redletra.standupsally.state;
+
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+
+import java.util.Optional;
+
+/*
+    The state store both functions use when deployed, chosen by the STANDUP_SALLY_STATE_STORE
+    environment variable:
+      secret-manager   the roster and rotation in their own secrets, the roster sharded if it has a
+                       layout (the default)
+      mutation-log     an append-only log of changes plus snapshots, seeded from the secrets the
+                       first time it is used, see LogStructuredStateStore
+    Both functions must be deployed with the same value
+ */
+public class StateStores {
+
+    public static final String SECRET_MANAGER = "secret-manager";
+    public static final String MUTATION_LOG = "mutation-log";
+
+    private StateStores() {
+    }
+
+    public static StateStore forDeployment(SecretUtils secretUtils, SecretManagerClientHolder secretManagerClientHolder) {
+        return forDeployment(Optional.ofNullable(System.getenv(Constants.STATE_STORE_ENVIRONMENT_VARIABLE)),
+                secretUtils,
+                secretManagerClientHolder);
+    }
+
+    static StateStore forDeployment(Optional<String> stateStoreName,
+                                    SecretUtils secretUtils,
+                                    SecretManagerClientHolder secretManagerClientHolder) {
+        ShardedSecretManagerStateStore secretManagerStateStore = new ShardedSecretManagerStateStore(secretUtils, secretManagerClientHolder);
+        switch (stateStoreName.orElse(SECRET_MANAGER)) {
+            case SECRET_MANAGER:
+                return secretManagerStateStore;
+            case MUTATION_LOG:
+                // the sprint start date is set by hand, so it stays in its secret
+                return new LogStructuredStateStore(new SecretManagerMutationLog(secretUtils, secretManagerClientHolder),
+                        secretManagerStateStore::getSprintStartDate,
+                        secretManagerStateStore);
+            default:
+                throw new IllegalArgumentException("unknown state store " + stateStoreName.get() +
+                        ", expected " + SECRET_MANAGER + " or " + MUTATION_LOG);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.redletra.standupsally.utils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+import com.google.gson.Gson;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Lays a log event out as one line of JSON, which Cloud Logging turns into a structured entry with
+    the right severity rather than one INFO text entry per line. A stack trace goes in the message,
+    so Error Reporting picks it up
+ */
+public class CloudLoggingLayout extends LayoutBase<ILoggingEvent> {
+
+    private static final Gson gson = new Gson();
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("severity", severity(event.getLevel()));
+        String message = event.getFormattedMessage();
+        if (event.getThrowableProxy() != null) {
+            message = message + CoreConstants.LINE_SEPARATOR + ThrowableProxyUtil.asString(event.getThrowableProxy());
+        }
+        entry.put("message", message);
+        entry.put("time", Instant.ofEpochMilli(event.getTimeStamp()).toString());
+        entry.put("logger", event.getLoggerName());
+        entry.put("thread", event.getThreadName());
+        return gson.toJson(entry) + CoreConstants.LINE_SEPARATOR;
+    }
+
+    /*
+        Cloud Logging's names for the levels
+     */
+    static String severity(Level level) {
+        switch (level.toInt()) {
+            case Level.ERROR_INT:
+                return "ERROR";
+            case Level.WARN_INT:
+                return "WARNING";
+            case Level.INFO_INT:
+                return "INFO";
+            default:
+                return "DEBUG";
+        }
+    }
+}
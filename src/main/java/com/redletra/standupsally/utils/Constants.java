@@ -1,5 +1,6 @@
 package com.redletra.standupsally.utils;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,4 +16,81 @@ public class Constants {
     public static final String SLACK_VERSION_NUMBER = "v0";
     public static final String HMAC_ALGORITHM = "HmacSHA256";
 
+    // event requests with an x-slack-request-timestamp further than this from now are rejected as stale or replayed
+    public static final Duration SLACK_REQUEST_MAX_AGE = Duration.ofMinutes(5);
+
+    // how long the first event of a batch waits for concurrent requests' events, see EventBatcher.
+    // Added to the response to every request, so it is kept well inside slack's 3 seconds
+    public static final Duration SLACK_EVENT_BATCH_WINDOW = Duration.ofMillis(200);
+    // a batch is processed without waiting out the window once it holds this many events, as many
+    // users as one feedback message names
+    public static final int SLACK_EVENT_BATCH_MAX_SIZE = 20;
+
+    // processed slack event ids each instance remembers, so retries are only processed once.
+    // Slack stops retrying after about 5 minutes, see LruSlackEventDeduplicationStore
+    public static final int PROCESSED_SLACK_EVENT_IDS_CAPACITY = 1_000;
+
+    // how long a warm instance trusts its cached copy of each secret which only changes by hand.
+    // The roster and last runner secrets are cached until their version changes, see SecretCache
+    public static final Duration SLACK_CREDENTIALS_CACHE_TTL = Duration.ofMinutes(30);
+    public static final Duration SPRINT_START_DATE_CACHE_TTL = Duration.ofHours(1);
+
+    // the daily run reads its secrets concurrently, and gives up if they are not all back in time
+    public static final int SECRET_PREFETCH_THREADS = 4;
+    public static final Duration SECRET_PREFETCH_TIMEOUT = Duration.ofSeconds(20);
+
+    // attempts at a read-modify-write of a secret before giving up on concurrent writers
+    public static final int SECRET_UPDATE_MAX_ATTEMPTS = 5;
+    public static final Duration SECRET_UPDATE_BASE_BACKOFF = Duration.ofMillis(100);
+
+    // welcome and bye bye messages for a channel in a batch of events are posted together, this many users to a message
+    public static final int CHANNEL_FEEDBACK_MAX_USERS_PER_MESSAGE = 20;
+
+    // encoded rosters at least this big are deflated before being written to the secret
+    public static final int ROSTER_COMPRESSION_THRESHOLD_BYTES = 256;
+
+    // the roster can be split over several secrets by channel id, see ShardedSecretManagerStateStore
+    public static final String ROSTER_SHARD_LAYOUT_SECRET_NAME = "channelIdToMemberSlackHandlesShardLayout";
+    public static final Duration ROSTER_SHARD_LAYOUT_CACHE_TTL = Duration.ofMinutes(1);
+    public static final int ROSTER_SHARD_VIRTUAL_NODES = 64;
+
+    // which state store the deployed functions use, see StateStores
+    public static final String STATE_STORE_ENVIRONMENT_VARIABLE = "STANDUP_SALLY_STATE_STORE";
+
+    // roster and rotation changes as an append-only log plus snapshot, see LogStructuredStateStore
+    public static final String STATE_LOG_SECRET_NAME = "standupSallyStateLog";
+    public static final String STATE_SNAPSHOT_SECRET_NAME = "standupSallyStateSnapshot";
+    // records appended since the last snapshot before the log is compacted into a new one
+    public static final int STATE_LOG_COMPACTION_INTERVAL = 50;
+
+    // maximum number of chat.postMessage calls in flight during the daily announcement
+    public static final int SLACK_ANNOUNCEMENT_CONCURRENCY = 8;
+    public static final Duration SLACK_ANNOUNCEMENT_TIMEOUT = Duration.ofSeconds(40);
+
+    // the pooled http client shared by every slack call, see SlackClientHolder
+    public static final int SLACK_HTTP_MAX_IDLE_CONNECTIONS = SLACK_ANNOUNCEMENT_CONCURRENCY;
+    public static final Duration SLACK_HTTP_KEEP_ALIVE = Duration.ofMinutes(5);
+    public static final Duration SLACK_HTTP_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration SLACK_HTTP_READ_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration SLACK_HTTP_CALL_TIMEOUT = Duration.ofSeconds(20);
+
+    // members asked for per conversations.members page, slack recommends no more than 200
+    public static final int SLACK_CONVERSATION_MEMBERS_PAGE_SIZE = 200;
+
+    // slack calls are paced to their rate limit tier and retried, see SlackRateLimiter
+    public static final int SLACK_CALL_MAX_ATTEMPTS = 5;
+    public static final Duration SLACK_CALL_BASE_BACKOFF = Duration.ofMillis(500);
+    public static final Duration SLACK_RATE_LIMIT_JITTER = Duration.ofMillis(250);
+    // how long feedback messages and channel member lookups may keep waiting and retrying. They are
+    // made while handling an event, so they leave room for the rest of it inside slack's 3 seconds.
+    // The daily announcement has SLACK_ANNOUNCEMENT_TIMEOUT instead
+    public static final Duration SLACK_EVENT_FEEDBACK_DEADLINE = Duration.ofMillis(800);
+    public static final Duration SLACK_EVENT_CONVERSATION_MEMBERS_DEADLINE = Duration.ofMillis(1200);
+
+    // channel members are kept up to date from join and leave events, and fetched again after this long
+    public static final Duration CHANNEL_MEMBERSHIP_RECONCILE_INTERVAL = Duration.ofMinutes(15);
+
+    // timers and counters are written to the log at most this often, see MetricsRegistry
+    public static final Duration METRICS_REPORT_INTERVAL = Duration.ofSeconds(60);
+
 }
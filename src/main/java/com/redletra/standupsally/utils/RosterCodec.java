@@ -0,0 +1,172 @@
+package com.redletra.standupsally.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/*
+    Compact binary encoding of the channel id to user list map, so many more channels fit in the
+    64Kb secret payload than with the channeid1=@tom,@steve;channelid2=... text format.
+
+    Layout: 0x00, format version, flags, then the (optionally deflated) body:
+    varint user count, each distinct user id once as varint length + utf-8 bytes,
+    varint channel count, then for each channel its id as varint length + utf-8 bytes,
+    a varint member count and a varint dictionary index per member.
+
+    A channel id never starts with 0x00, so a payload without the header is the old text
+    format and is decoded as such. The next write of the roster then migrates it to binary
+ */
+public class RosterCodec {
+
+    private static final byte MAGIC = 0x00;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_DEFLATED = 0x01;
+    private static final int HEADER_BYTES = 3;
+
+    public static byte[] encode(Map<String, List<String>> channelIdToUserListMap) {
+        // each user id is written once, channels refer to users by their index in order of first appearance
+        Map<String, Integer> userIndexes = new LinkedHashMap<>();
+        channelIdToUserListMap.values().forEach(userList ->
+                userList.forEach(user -> userIndexes.putIfAbsent(user, userIndexes.size())));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarint(body, userIndexes.size());
+        userIndexes.keySet().forEach(user -> writeString(body, user));
+        writeVarint(body, channelIdToUserListMap.size());
+        channelIdToUserListMap.forEach((channelId, userList) -> {
+            writeString(body, channelId);
+            writeVarint(body, userList.size());
+            userList.forEach(user -> writeVarint(body, userIndexes.get(user)));
+        });
+
+        byte[] bodyBytes = body.toByteArray();
+        byte flags = 0;
+        if (bodyBytes.length >= Constants.ROSTER_COMPRESSION_THRESHOLD_BYTES) {
+            byte[] deflatedBodyBytes = deflate(bodyBytes);
+            // small or already dense rosters can come out bigger, keep whichever is smaller
+            if (deflatedBodyBytes.length < bodyBytes.length) {
+                bodyBytes = deflatedBodyBytes;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(HEADER_BYTES + bodyBytes.length);
+        encoded.write(MAGIC);
+        encoded.write(FORMAT_VERSION);
+        encoded.write(flags);
+        encoded.write(bodyBytes, 0, bodyBytes.length);
+        return encoded.toByteArray();
+    }
+
+    /*
+        decode either format, returning a mutable map of mutable lists
+     */
+    public static Map<String, List<String>> decode(byte[] encoded) {
+        if (!isBinary(encoded)) {
+            return Utils.convertChannelToUsersStringToMap(new String(encoded, StandardCharsets.UTF_8));
+        }
+        if (encoded[1] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("unsupported roster format version " + encoded[1]);
+        }
+
+        ByteBuffer body = (encoded[2] & FLAG_DEFLATED) != 0 ?
+                ByteBuffer.wrap(inflate(encoded)) :
+                ByteBuffer.wrap(encoded, HEADER_BYTES, encoded.length - HEADER_BYTES);
+        try {
+            int userCount = readVarint(body);
+            String[] users = new String[userCount];
+            for (int i = 0; i < userCount; i++) {
+                users[i] = readString(body);
+            }
+
+            int channelCount = readVarint(body);
+            Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+            for (int i = 0; i < channelCount; i++) {
+                String channelId = readString(body);
+                int memberCount = readVarint(body);
+                List<String> userList = new ArrayList<>(memberCount);
+                for (int j = 0; j < memberCount; j++) {
+                    userList.add(users[readVarint(body)]);
+                }
+                channelIdToUserListMap.put(channelId, userList);
+            }
+            return channelIdToUserListMap;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("corrupt roster payload", e);
+        }
+    }
+
+    public static boolean isBinary(byte[] encoded) {
+        return encoded.length >= HEADER_BYTES && encoded[0] == MAGIC;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("corrupt roster payload, varint too long");
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                deflated.write(buffer, 0, length);
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] encoded) {
+        try (InputStream inflater = new InflaterInputStream(
+                new ByteArrayInputStream(encoded, HEADER_BYTES, encoded.length - HEADER_BYTES))) {
+            return inflater.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("corrupt roster payload", e);
+        }
+    }
+}
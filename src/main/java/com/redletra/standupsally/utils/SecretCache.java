@@ -0,0 +1,80 @@
+package com.redletra.standupsally.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+    Read-through cache of decoded secret values. GCP reuses a function instance across
+    invocations, so an instance of this class lives as long as the warm instance does.
+    Secrets which only change by hand expire after their ttl. Secrets the functions write are kept
+    with the version they were read from instead, and the caller decides whether that version is
+    still current, so a write from another instance is never served stale. Entries are also
+    invalidated whenever we write a new version of the secret ourselves
+ */
+public class SecretCache {
+
+    private final Clock clock;
+    private final Map<String, CachedSecret<?>> cachedSecrets = new ConcurrentHashMap<>();
+
+    public SecretCache() {
+        this(Clock.systemUTC());
+    }
+
+    public SecretCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    /*
+        return the cached value for the secret if it has not expired, otherwise load it
+        with the supplied loader and cache the result for ttl
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String secretName, Duration ttl, Supplier<T> loader) {
+        Instant now = clock.instant();
+        CachedSecret<?> cachedSecret = cachedSecrets.get(secretName);
+        if (cachedSecret != null && now.isBefore(cachedSecret.expiresAt)) {
+            return (T) cachedSecret.value;
+        }
+        T value = loader.get();
+        cachedSecrets.put(secretName, new CachedSecret<>(value, now.plus(ttl)));
+        return value;
+    }
+
+    /*
+        return the cached value for the secret if isCurrent accepts it, otherwise load it with the
+        supplied loader and cache the result, however long it takes for a newer version to appear
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getIfCurrent(String secretName, Predicate<T> isCurrent, Supplier<T> loader) {
+        CachedSecret<?> cachedSecret = cachedSecrets.get(secretName);
+        if (cachedSecret != null && isCurrent.test((T) cachedSecret.value)) {
+            return (T) cachedSecret.value;
+        }
+        T value = loader.get();
+        cachedSecrets.put(secretName, new CachedSecret<>(value, Instant.MAX));
+        return value;
+    }
+
+    public void invalidate(String secretName) {
+        cachedSecrets.remove(secretName);
+    }
+
+    public void invalidateAll() {
+        cachedSecrets.clear();
+    }
+
+    private static final class CachedSecret<T> {
+        private final T value;
+        private final Instant expiresAt;
+
+        private CachedSecret(T value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.redletra.standupsally.utils;
+
+import com.google.api.gax.rpc.UnavailableException;
+import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/*
+    Holds one SecretManagerServiceClient for the lifetime of a function instance, so the gRPC
+    channel, TLS session and credentials are only set up on a cold start. The client is created
+    lazily on first use, recreated if its channel has been shut down, and closed when the JVM exits
+ */
+public class SecretManagerClientHolder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecretManagerClientHolder.class);
+
+    /*
+        SecretManagerServiceClient::create, or a stand-in for testing
+     */
+    public interface ClientFactory {
+        SecretManagerServiceClient create() throws IOException;
+    }
+
+    private final ClientFactory clientFactory;
+    private volatile SecretManagerServiceClient client;
+    private boolean shutdownHookRegistered;
+
+    public SecretManagerClientHolder() {
+        this(SecretManagerServiceClient::create);
+    }
+
+    public SecretManagerClientHolder(ClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    public SecretManagerServiceClient get() throws IOException {
+        SecretManagerServiceClient currentClient = client;
+        if (isUsable(currentClient)) {
+            return currentClient;
+        }
+        synchronized (this) {
+            if (!isUsable(client)) {
+                closeQuietly(client);
+                client = clientFactory.create();
+                if (!shutdownHookRegistered) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(this::close, "secret-manager-client-shutdown"));
+                    shutdownHookRegistered = true;
+                }
+            }
+            return client;
+        }
+    }
+
+    /*
+        drop the client if the failure was caused by its channel being unavailable, so the next
+        call to get() reconnects rather than reusing a broken channel
+     */
+    public void resetIfUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnavailableException) {
+                reset();
+                return;
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        closeQuietly(client);
+        client = null;
+    }
+
+    @Override
+    public void close() {
+        reset();
+    }
+
+    private static boolean isUsable(SecretManagerServiceClient client) {
+        return client != null && !client.isShutdown() && !client.isTerminated();
+    }
+
+    private static void closeQuietly(SecretManagerServiceClient client) {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (RuntimeException e) {
+                logger.warn("failed to close secret manager client: {}", e.getMessage());
+            }
+        }
+    }
+}
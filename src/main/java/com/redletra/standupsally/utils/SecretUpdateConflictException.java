@@ -0,0 +1,14 @@
+package com.redletra.standupsally.utils;
+
+/*
+    thrown when a secret keeps being written by another instance while we try to update it
+ */
+public class SecretUpdateConflictException extends RuntimeException {
+    public SecretUpdateConflictException(String message) {
+        super(message);
+    }
+
+    public SecretUpdateConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,34 +1,182 @@
 package com.redletra.standupsally.utils;
 
+import com.google.api.gax.rpc.AlreadyExistsException;
+import com.google.api.gax.rpc.FailedPreconditionException;
+import com.google.api.gax.rpc.NotFoundException;
 import com.google.cloud.secretmanager.v1.*;
 import com.google.protobuf.ByteString;
+import com.redletra.standupsally.metrics.MetricsRegistry;
 import org.javatuples.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 public class SecretUtils {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecretUtils.class);
+
+    private final SecretCache secretCache;
+    // each public call is timed as secret_utils.<method>, cache hits included
+    private final MetricsRegistry metricsRegistry;
+
+    public SecretUtils() {
+        this(new SecretCache());
+    }
+
     /*
-     Retrieve a string like channeid1=@tom,@steve;channelid2=@dave,@susy,@chris.... and convert it to a map of
+        for testing
+     */
+    public SecretUtils(SecretCache secretCache) {
+        this(secretCache, MetricsRegistry.global());
+    }
+
+    public SecretUtils(SecretCache secretCache, MetricsRegistry metricsRegistry) {
+        this.secretCache = secretCache;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /*
+     Retrieve the roster, binary encoded by RosterCodec or the older string like
+     channeid1=@tom,@steve;channelid2=@dave,@susy,@chris...., and convert it to a map of
      Channel Id to Channel User handles, ie Map<String, List<String>>
      Return a Pair containing
      1) the Map and
      2) secret version (in case old secret version needs to be deleted later)
       */
     public Pair<Map<String, List<String>>, SecretVersion> getChannelIdToUserListMap(SecretManagerServiceClient client) {
-        SecretVersionName slackChannelIdToMemberHandlesSecretVersionName = SecretVersionName.of(Constants.PROJECT_ID, Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME, "latest");
-        SecretVersion slackChannelIdToMemberHandlesSecretVersion = client.getSecretVersion(slackChannelIdToMemberHandlesSecretVersionName);
+        return getChannelIdToUserListMap(client, Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME);
+    }
+
+    /*
+        as above, for the roster held in the named secret (eg one shard of a sharded roster).
+        Checks the latest version first, and only fetches and decodes the roster if it has changed
+     */
+    public Pair<Map<String, List<String>>, SecretVersion> getChannelIdToUserListMap(SecretManagerServiceClient client,
+                                                                                    String secretNameLabel) {
+        return metricsRegistry.time("secret_utils.getChannelIdToUserListMap", () -> {
+            long latestVersionNumber = latestVersionNumber(client, secretNameLabel);
+            return copyOfChannelIdToUserListMap(secretCache.getIfCurrent(secretNameLabel,
+                    cachedPair -> versionNumber(cachedPair.getValue1()) == latestVersionNumber,
+                    () -> loadChannelIdToUserListMap(client, secretNameLabel)));
+        });
+    }
+
+    /*
+        the cached roster whatever its version, for a read-modify-write, which checks the version itself
+     */
+    private Pair<Map<String, List<String>>, SecretVersion> getCachedChannelIdToUserListMap(SecretManagerServiceClient client,
+                                                                                          String secretNameLabel) {
+        return copyOfChannelIdToUserListMap(secretCache.getIfCurrent(secretNameLabel,
+                cachedPair -> true,
+                () -> loadChannelIdToUserListMap(client, secretNameLabel)));
+    }
+
+    /*
+        callers update the map in place before writing it back, so never hand out the cached instance
+     */
+    private static Pair<Map<String, List<String>>, SecretVersion> copyOfChannelIdToUserListMap(Pair<Map<String, List<String>>, SecretVersion> cachedPair) {
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+        cachedPair.getValue0().forEach((channelId, userList) -> channelIdToUserListMap.put(channelId, new ArrayList<>(userList)));
+        return new Pair<>(channelIdToUserListMap, cachedPair.getValue1());
+    }
+
+    private Pair<Map<String, List<String>>, SecretVersion> loadChannelIdToUserListMap(SecretManagerServiceClient client,
+                                                                                      String secretNameLabel) {
+        SecretVersionName slackChannelIdToMemberHandlesSecretVersionName = SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, "latest");
         AccessSecretVersionResponse slackChannelIdToMemberHandlesSecretVersionResponse = client.accessSecretVersion(slackChannelIdToMemberHandlesSecretVersionName);
-        String slackChannelIdToMemberHandlesCommaSepString = slackChannelIdToMemberHandlesSecretVersionResponse.getPayload().getData().toStringUtf8();
-        Map<String, List<String>> channelIdToUserListMap = Utils.convertChannelToUsersStringToMap(slackChannelIdToMemberHandlesCommaSepString);
+        SecretVersion slackChannelIdToMemberHandlesSecretVersion = resolvedSecretVersion(slackChannelIdToMemberHandlesSecretVersionResponse);
+        ByteString slackChannelIdToMemberHandlesData = slackChannelIdToMemberHandlesSecretVersionResponse.getPayload().getData();
+        Map<String, List<String>> channelIdToUserListMap = RosterCodec.decode(slackChannelIdToMemberHandlesData.toByteArray());
         return new Pair<>(channelIdToUserListMap, slackChannelIdToMemberHandlesSecretVersion);
     }
 
+    /*
+        create the named roster secret holding an empty roster, unless it already exists
+     */
+    public void createChannelIdToUserListSecretIfMissing(SecretManagerServiceClient client, String secretNameLabel) {
+        if (!createSecretIfMissing(client, secretNameLabel)) {
+            return;
+        }
+        client.addSecretVersion(SecretName.of(Constants.PROJECT_ID, secretNameLabel),
+                SecretPayload.newBuilder()
+                        .setData(ByteString.copyFrom(RosterCodec.encode(Map.of())))
+                        .build());
+        secretCache.invalidate(secretNameLabel);
+    }
+
+    /*
+        create the named secret, with no versions, unless it already exists. Returns true if it was created
+     */
+    public boolean createSecretIfMissing(SecretManagerServiceClient client, String secretNameLabel) {
+        return metricsRegistry.time("secret_utils.createSecretIfMissing", () -> createSecret(client, secretNameLabel));
+    }
+
+    private boolean createSecret(SecretManagerServiceClient client, String secretNameLabel) {
+        try {
+            client.createSecret(ProjectName.of(Constants.PROJECT_ID),
+                    secretNameLabel,
+                    Secret.newBuilder()
+                            .setReplication(Replication.newBuilder()
+                                    .setAutomatic(Replication.Automatic.newBuilder().build())
+                                    .build())
+                            .build());
+            return true;
+        } catch (AlreadyExistsException e) {
+            logger.debug("secret {} already exists", secretNameLabel);
+            return false;
+        }
+    }
+
+    /*
+        the roster shard layout, eg shards=8 or shards=8;previous=4 while resharding.
+        Empty if the roster has never been sharded
+     */
+    public Optional<String> getRosterShardLayout(SecretManagerServiceClient client) {
+        return metricsRegistry.time("secret_utils.getRosterShardLayout", () ->
+                secretCache.get(Constants.ROSTER_SHARD_LAYOUT_SECRET_NAME, Constants.ROSTER_SHARD_LAYOUT_CACHE_TTL, () -> {
+                    try {
+                        return Optional.of(client.accessSecretVersion(
+                                        SecretVersionName.of(Constants.PROJECT_ID, Constants.ROSTER_SHARD_LAYOUT_SECRET_NAME, "latest"))
+                                .getPayload()
+                                .getData()
+                                .toStringUtf8());
+                    } catch (NotFoundException e) {
+                        return Optional.empty();
+                    }
+                }));
+    }
+
+    /*
+        publish a new roster shard layout. Other warm instances see it once their cached layout expires
+     */
+    public void updateRosterShardLayout(SecretManagerServiceClient client, String rosterShardLayout) {
+        metricsRegistry.time("secret_utils.updateRosterShardLayout", () -> writeRosterShardLayout(client, rosterShardLayout));
+    }
+
+    private void writeRosterShardLayout(SecretManagerServiceClient client, String rosterShardLayout) {
+        SecretName secretName = SecretName.of(Constants.PROJECT_ID, Constants.ROSTER_SHARD_LAYOUT_SECRET_NAME);
+        createSecretIfMissing(client, Constants.ROSTER_SHARD_LAYOUT_SECRET_NAME);
+        client.addSecretVersion(secretName,
+                SecretPayload.newBuilder()
+                        .setData(ByteString.copyFromUtf8(rosterShardLayout))
+                        .build());
+        secretCache.invalidate(Constants.ROSTER_SHARD_LAYOUT_SECRET_NAME);
+    }
+
     /*
         Create a new secret with supplied value and delete the old secret version
      */
@@ -36,7 +184,14 @@ public class SecretUtils {
                                                     SecretManagerServiceClient client,
                                                     SecretVersion oldSecretVersionToDelete,
                                                     String secretNameLabel) {
+        metricsRegistry.time("secret_utils.createNewSecretVersionAndDeleteOld", () ->
+                replaceSecretVersion(newSecretVersionValue, client, oldSecretVersionToDelete, secretNameLabel));
+    }
 
+    private void replaceSecretVersion(String newSecretVersionValue,
+                                      SecretManagerServiceClient client,
+                                      SecretVersion oldSecretVersionToDelete,
+                                      String secretNameLabel) {
         SecretName secretName = SecretName.of(Constants.PROJECT_ID, secretNameLabel);
 
         SecretPayload payload =
@@ -44,8 +199,10 @@ public class SecretUtils {
                         .setData(ByteString.copyFromUtf8(newSecretVersionValue))
                         .build();
         client.addSecretVersion(secretName, payload);
+        // our own write makes the cached value stale
+        secretCache.invalidate(secretNameLabel);
 
-        System.out.println("destroy version " + oldSecretVersionToDelete.getName());
+        logger.debug("destroy version {}", oldSecretVersionToDelete.getName());
         //delete the old version
         DestroySecretVersionRequest destroySecretVersionRequest = DestroySecretVersionRequest.newBuilder()
                 .setName(oldSecretVersionToDelete.getName())
@@ -54,35 +211,242 @@ public class SecretUtils {
         client.destroySecretVersion(destroySecretVersionRequest);
     }
 
+    /*
+        Read-modify-write of the channel id to user list secret. The mutation is given a copy of the
+        current map and returns the updated map, or an empty Optional if nothing needs to change.
+        Returns true if a new version was written. The new version is always binary encoded, so the
+        first write after upgrading migrates a text roster
+     */
+    public boolean updateChannelIdToUserListMap(SecretManagerServiceClient client,
+                                                Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        return updateChannelIdToUserListMap(client, Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME, mutation);
+    }
+
+    /*
+        as above, for the roster held in the named secret
+     */
+    public boolean updateChannelIdToUserListMap(SecretManagerServiceClient client,
+                                                String secretNameLabel,
+                                                Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation) {
+        return metricsRegistry.time("secret_utils.updateChannelIdToUserListMap", () -> compareAndSwap(client,
+                secretNameLabel,
+                getCachedChannelIdToUserListMap(client, secretNameLabel),
+                data -> RosterCodec.decode(data.toByteArray()),
+                channelIdToUserListMap -> ByteString.copyFrom(RosterCodec.encode(channelIdToUserListMap)),
+                mutation));
+    }
+
+    /*
+        Read-modify-write of the channel id to user who last ran standup secret, see updateChannelIdToUserListMap
+     */
+    public boolean updateUserForEachChannelWhoLastRanStandup(SecretManagerServiceClient client,
+                                                             Function<Map<String, String>, Optional<Map<String, String>>> mutation) {
+        return metricsRegistry.time("secret_utils.updateUserForEachChannelWhoLastRanStandup", () -> compareAndSwap(client,
+                Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME,
+                getCachedUserForEachChannelWhoLastRanStandup(client),
+                data -> Utils.convertChannelIdToUserHandleStringToMap(data.toStringUtf8()),
+                channelIdToLastUserMap -> ByteString.copyFromUtf8(Utils.generateSecretStringFromChannelIdToLastUserToRunStandupMap(channelIdToLastUserMap)),
+                mutation));
+    }
+
+    /*
+        Secret Manager has no conditional write, so two instances doing read-modify-write on the same
+        secret can lose each other's updates. Version numbers of a secret are sequential though, so:
+        1) before writing, check our base version is still "latest" (this also catches a stale cached read)
+        2) after writing, our version should be base + 1. If any other version landed in between, our
+           version was computed from stale data: read the newest of those versions, re-apply the mutation,
+           write again on top and check again, backing off between attempts.
+        Once a write succeeds, the base version and any stale versions of ours are destroyed
+     */
+    private <T> boolean compareAndSwap(SecretManagerServiceClient client,
+                                       String secretNameLabel,
+                                       Pair<T, SecretVersion> latestValueAndVersion,
+                                       Function<ByteString, T> decoder,
+                                       Function<T, ByteString> encoder,
+                                       Function<T, Optional<T>> mutation) {
+        T currentValue = latestValueAndVersion.getValue0();
+        long baseVersionNumber = versionNumber(latestValueAndVersion.getValue1());
+        // versions we wrote which turned out to be based on stale data
+        Set<Long> staleVersionNumbers = new HashSet<>();
+
+        for (int attempt = 1; attempt <= Constants.SECRET_UPDATE_MAX_ATTEMPTS; attempt++) {
+            Optional<T> updatedValue = mutation.apply(currentValue);
+            if (updatedValue.isEmpty() && staleVersionNumbers.isEmpty()) {
+                return false;
+            }
+
+            if (staleVersionNumbers.isEmpty()) {
+                long latestVersionNumber = versionNumber(client.getSecretVersion(
+                        SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, "latest")));
+                if (latestVersionNumber != baseVersionNumber) {
+                    logger.info("secret {} changed since it was read, re-read version {}", secretNameLabel, latestVersionNumber);
+                    secretCache.invalidate(secretNameLabel);
+                    backOff(attempt);
+                    currentValue = decoder.apply(accessSecretVersion(client, secretNameLabel, String.valueOf(latestVersionNumber)));
+                    baseVersionNumber = latestVersionNumber;
+                    continue;
+                }
+            }
+
+            // even if there's nothing left to change, a stale version of ours must be superseded
+            ByteString newSecretValue = encoder.apply(updatedValue.orElse(currentValue));
+            SecretVersion addedVersion = client.addSecretVersion(SecretName.of(Constants.PROJECT_ID, secretNameLabel),
+                    SecretPayload.newBuilder()
+                            .setData(newSecretValue)
+                            .build());
+            secretCache.invalidate(secretNameLabel);
+            long addedVersionNumber = versionNumber(addedVersion);
+
+            long base = baseVersionNumber;
+            OptionalLong concurrentVersionNumber = LongStream.range(base + 1, addedVersionNumber)
+                    .filter(versionNumber -> !staleVersionNumbers.contains(versionNumber))
+                    .max();
+            if (concurrentVersionNumber.isEmpty()) {
+                destroySupersededVersion(client, secretNameLabel, baseVersionNumber);
+                staleVersionNumbers.forEach(staleVersionNumber ->
+                        destroySupersededVersion(client, secretNameLabel, staleVersionNumber));
+                return true;
+            }
+
+            logger.info("secret {} version {} was written concurrently, re-apply update on top of it",
+                    secretNameLabel, concurrentVersionNumber.getAsLong());
+            staleVersionNumbers.add(addedVersionNumber);
+            backOff(attempt);
+            try {
+                currentValue = decoder.apply(accessSecretVersion(client, secretNameLabel, String.valueOf(concurrentVersionNumber.getAsLong())));
+                baseVersionNumber = concurrentVersionNumber.getAsLong();
+            } catch (FailedPreconditionException | NotFoundException e) {
+                // already superseded and destroyed by its writer, whose newer version is now latest
+                AccessSecretVersionResponse latestResponse = client.accessSecretVersion(
+                        SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, "latest"));
+                currentValue = decoder.apply(latestResponse.getPayload().getData());
+                baseVersionNumber = versionNumber(resolvedSecretVersion(latestResponse));
+            }
+        }
+        throw new SecretUpdateConflictException("gave up updating secret " + secretNameLabel + " after "
+                + Constants.SECRET_UPDATE_MAX_ATTEMPTS + " attempts");
+    }
+
+    private ByteString accessSecretVersion(SecretManagerServiceClient client, String secretNameLabel, String version) {
+        return client.accessSecretVersion(SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, version))
+                .getPayload()
+                .getData();
+    }
+
+    /*
+        the version may already have been destroyed by another instance which superseded it too
+     */
+    private void destroySupersededVersion(SecretManagerServiceClient client, String secretNameLabel, long versionNumber) {
+        try {
+            client.destroySecretVersion(DestroySecretVersionRequest.newBuilder()
+                    .setName(SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, String.valueOf(versionNumber)).toString())
+                    .build());
+        } catch (FailedPreconditionException | NotFoundException e) {
+            logger.debug("version {} of {} already destroyed", versionNumber, secretNameLabel);
+        }
+    }
+
+    /*
+        the number of the secret's latest version, from its metadata rather than its payload
+     */
+    private long latestVersionNumber(SecretManagerServiceClient client, String secretNameLabel) {
+        return versionNumber(client.getSecretVersion(SecretVersionName.of(Constants.PROJECT_ID, secretNameLabel, "latest")));
+    }
+
+    private long versionNumber(SecretVersion secretVersion) {
+        return Long.parseLong(SecretVersionName.parse(secretVersion.getName()).getSecretVersion());
+    }
+
+    /*
+        exponential back off with full jitter, so competing instances don't retry in lock step
+     */
+    private void backOff(int attempt) {
+        long maxBackOffMillis = Constants.SECRET_UPDATE_BASE_BACKOFF.toMillis() << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackOffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SecretUpdateConflictException("interrupted while backing off", e);
+        }
+    }
+
     /*
         get the slack token from secret
          */
     public String getSlackToken(SecretManagerServiceClient client) {
-        SecretVersionName slackOauthTokenSecretVersionName = SecretVersionName.of(Constants.PROJECT_ID, Constants.SLACK_OAUTH_TOKEN_SECRET_NAME, "latest");
-        AccessSecretVersionResponse slackOauthTokenSecretVersionResponse = client.accessSecretVersion(slackOauthTokenSecretVersionName);
-        return slackOauthTokenSecretVersionResponse.getPayload().getData().toStringUtf8();
+        return metricsRegistry.time("secret_utils.getSlackToken", () ->
+                secretCache.get(Constants.SLACK_OAUTH_TOKEN_SECRET_NAME, Constants.SLACK_CREDENTIALS_CACHE_TTL, () -> {
+                    SecretVersionName slackOauthTokenSecretVersionName = SecretVersionName.of(Constants.PROJECT_ID, Constants.SLACK_OAUTH_TOKEN_SECRET_NAME, "latest");
+                    AccessSecretVersionResponse slackOauthTokenSecretVersionResponse = client.accessSecretVersion(slackOauthTokenSecretVersionName);
+                    return slackOauthTokenSecretVersionResponse.getPayload().getData().toStringUtf8();
+                }));
+    }
+
+    /*
+        get the signing secret used to calculate the slack request signature
+     */
+    public String getSlackSigningSecret(SecretManagerServiceClient client) {
+        return metricsRegistry.time("secret_utils.getSlackSigningSecret", () ->
+                secretCache.get(Constants.SLACK_SIGNING_SECRET_NAME, Constants.SLACK_CREDENTIALS_CACHE_TTL, () -> {
+                    SecretVersionName signingSecretSecretVersionName = SecretVersionName.of(Constants.PROJECT_ID, Constants.SLACK_SIGNING_SECRET_NAME, "latest");
+                    AccessSecretVersionResponse signingSecretSecretVersionResponse = client.accessSecretVersion(signingSecretSecretVersionName);
+                    return signingSecretSecretVersionResponse.getPayload().getData().toStringUtf8();
+                }));
     }
 
+    /*
+        checks the latest version first, like getChannelIdToUserListMap, so the daily run never
+        rotates on from a last runner another instance has since moved on
+     */
     public Pair<Map<String,String>, SecretVersion> getUserForEachChannelWhoLastRanStandup(SecretManagerServiceClient client) {
+        Pair<Map<String, String>, SecretVersion> cachedPair = metricsRegistry.time("secret_utils.getUserForEachChannelWhoLastRanStandup", () -> {
+            long latestVersionNumber = latestVersionNumber(client, Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME);
+            return secretCache.getIfCurrent(Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME,
+                    pair -> versionNumber(pair.getValue1()) == latestVersionNumber,
+                    () -> loadUserForEachChannelWhoLastRanStandup(client));
+        });
+        return new Pair<>(new HashMap<>(cachedPair.getValue0()), cachedPair.getValue1());
+    }
+
+    private Pair<Map<String,String>, SecretVersion> getCachedUserForEachChannelWhoLastRanStandup(SecretManagerServiceClient client) {
+        Pair<Map<String, String>, SecretVersion> cachedPair = secretCache.getIfCurrent(Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME,
+                pair -> true,
+                () -> loadUserForEachChannelWhoLastRanStandup(client));
+        return new Pair<>(new HashMap<>(cachedPair.getValue0()), cachedPair.getValue1());
+    }
+
+    private Pair<Map<String,String>, SecretVersion> loadUserForEachChannelWhoLastRanStandup(SecretManagerServiceClient client) {
         SecretVersionName lastUserForEachChannelToRunStandupSecretVersionName =
                 SecretVersionName.of(Constants.PROJECT_ID, Constants.LAST_USER_FOR_EACH_CHANNEL_TO_RUN_STANDUP_SECRET_NAME, "latest");
-        SecretVersion lastUserForEachChannelToRunStandupSecretVersion = client.getSecretVersion(lastUserForEachChannelToRunStandupSecretVersionName);
-
         AccessSecretVersionResponse lastUserForEachChannelToRunStandupSecretVersionResponse =
                 client.accessSecretVersion(lastUserForEachChannelToRunStandupSecretVersionName);
+        SecretVersion lastUserForEachChannelToRunStandupSecretVersion = resolvedSecretVersion(lastUserForEachChannelToRunStandupSecretVersionResponse);
         String lastUserHandleForEachChannelToRunStandup = lastUserForEachChannelToRunStandupSecretVersionResponse.getPayload().getData().toStringUtf8();
         Map<String, String> channelIdToUserWhoLastRanStandupMap = Utils.convertChannelIdToUserHandleStringToMap(lastUserHandleForEachChannelToRunStandup);
         return new Pair<>(channelIdToUserWhoLastRanStandupMap, lastUserForEachChannelToRunStandupSecretVersion);
     }
 
     public LocalDate getSprintStartDate(SecretManagerServiceClient client) {
-        SecretVersionName sprintStartDateForChannelsName =
-                SecretVersionName.of(Constants.PROJECT_ID, Constants.CHANNEL_TO_SPRINT_START_DATE, "latest");
+        return metricsRegistry.time("secret_utils.getSprintStartDate", () ->
+                secretCache.get(Constants.CHANNEL_TO_SPRINT_START_DATE, Constants.SPRINT_START_DATE_CACHE_TTL, () -> {
+                    SecretVersionName sprintStartDateForChannelsName =
+                            SecretVersionName.of(Constants.PROJECT_ID, Constants.CHANNEL_TO_SPRINT_START_DATE, "latest");
 
-        AccessSecretVersionResponse sprintStartDateForChannelsSecretVersionResponse =
-                client.accessSecretVersion(sprintStartDateForChannelsName);
-        return convertToLocalDate(sprintStartDateForChannelsSecretVersionResponse.getPayload().getData().toStringUtf8());
+                    AccessSecretVersionResponse sprintStartDateForChannelsSecretVersionResponse =
+                            client.accessSecretVersion(sprintStartDateForChannelsName);
+                    return convertToLocalDate(sprintStartDateForChannelsSecretVersionResponse.getPayload().getData().toStringUtf8());
+                }));
+    }
 
+    /*
+        the access response carries the name of the version "latest" resolved to, which is all
+        we need to destroy it later. This saves a separate getSecretVersion round trip, and
+        guarantees the version matches the payload we read
+     */
+    private SecretVersion resolvedSecretVersion(AccessSecretVersionResponse accessSecretVersionResponse) {
+        return SecretVersion.newBuilder()
+                .setName(accessSecretVersionResponse.getName())
+                .build();
     }
 
     /*
@@ -0,0 +1,14 @@
+package com.redletra.standupsally.utils;
+
+/*
+    thrown when a call to the slack web api fails, either at the http level or with "ok": false
+ */
+public class SlackApiCallException extends RuntimeException {
+    public SlackApiCallException(String message) {
+        super(message);
+    }
+
+    public SlackApiCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
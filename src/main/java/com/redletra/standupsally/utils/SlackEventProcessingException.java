@@ -0,0 +1,14 @@
+package com.redletra.standupsally.utils;
+
+/*
+    thrown when a slack event could not be processed, so slack is answered with an error and retries it
+ */
+public class SlackEventProcessingException extends RuntimeException {
+    public SlackEventProcessingException(String message) {
+        super(message);
+    }
+
+    public SlackEventProcessingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
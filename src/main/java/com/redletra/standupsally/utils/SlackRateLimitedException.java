@@ -0,0 +1,19 @@
+package com.redletra.standupsally.utils;
+
+import java.time.Duration;
+
+/*
+    thrown when slack answers a call with http 429, carrying how long its Retry-After header asked us to wait
+ */
+public class SlackRateLimitedException extends SlackApiCallException {
+    private final Duration retryAfter;
+
+    public SlackRateLimitedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,64 @@
+package com.redletra.standupsally.utils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Cheap checks on an event request, made before anything touches Secret Manager: the signature
+    and timestamp headers are well formed, the timestamp is recent, and the body is an event of a
+    type we handle. Anything failing these could never be processed, so it is shed without fetching
+    the signing secret. A recent timestamp also stops captured requests being replayed later, as it
+    is covered by the signature checked afterwards
+ */
+public class SlackRequestPreValidator {
+
+    private final Set<String> handledEventTypes;
+    private final Duration maxRequestAge;
+    private final Clock clock;
+
+    public SlackRequestPreValidator(Set<String> handledEventTypes) {
+        this(handledEventTypes, Constants.SLACK_REQUEST_MAX_AGE, Clock.systemUTC());
+    }
+
+    public SlackRequestPreValidator(Set<String> handledEventTypes, Duration maxRequestAge, Clock clock) {
+        this.handledEventTypes = handledEventTypes;
+        this.maxRequestAge = maxRequestAge;
+        this.clock = clock;
+    }
+
+    /*
+        why the request should be rejected, or empty if it is worth verifying its signature
+     */
+    public Optional<String> rejectionReason(JsonObject body,
+                                            String slackSignatureHeader,
+                                            String slackRequestTimestampHeader) {
+        if (SlackSignatureVerifier.decodeSignatureHeader(slackSignatureHeader) == null) {
+            return Optional.of("malformed slack signature");
+        }
+
+        long requestEpochSecond;
+        try {
+            requestEpochSecond = Long.parseLong(slackRequestTimestampHeader);
+        } catch (NumberFormatException e) {
+            return Optional.of("malformed slack request timestamp " + slackRequestTimestampHeader);
+        }
+        long ageSeconds = Math.abs(clock.instant().getEpochSecond() - requestEpochSecond);
+        if (ageSeconds > maxRequestAge.getSeconds()) {
+            return Optional.of("slack request timestamp " + slackRequestTimestampHeader + " is outside the allowed window");
+        }
+
+        if (body == null || !body.has("event") || !body.get("event").isJsonObject()) {
+            return Optional.of("request has no event");
+        }
+        JsonElement eventType = body.getAsJsonObject("event").get("type");
+        if (eventType == null || !eventType.isJsonPrimitive() || !handledEventTypes.contains(eventType.getAsString())) {
+            return Optional.of("unhandled event type " + eventType);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.redletra.standupsally.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/*
+    Checks the x-slack-signature header of a request: v0= followed by the hex HMAC-SHA256 of
+    "v0:<timestamp>:<raw request body>" keyed with the signing secret.
+
+    The HMAC is computed over the bytes Slack sent, not a re-serialisation of the parsed JSON, which
+    can differ (key order, escaping, whitespace) and then fails to match. Keying a Mac is comparatively
+    expensive, so one is keyed per signing secret and cloned once per thread. The expected signature is
+    decoded from the header and compared in constant time, rather than hex encoding ours to compare strings
+ */
+public class SlackSignatureVerifier {
+
+    private static final String SIGNATURE_PREFIX = Constants.SLACK_VERSION_NUMBER + "=";
+    private static final int SIGNATURE_BYTES = 32;
+
+    private final String slackSigningSecret;
+    private final Mac keyedMac;
+    private final ThreadLocal<Mac> threadMac = ThreadLocal.withInitial(this::newKeyedMac);
+
+    public SlackSignatureVerifier(String slackSigningSecret) {
+        this.slackSigningSecret = slackSigningSecret;
+        this.keyedMac = createKeyedMac(slackSigningSecret);
+    }
+
+    public String getSlackSigningSecret() {
+        return slackSigningSecret;
+    }
+
+    public boolean verify(byte[] rawBody,
+                          String slackRequestTimestamp,
+                          String slackSignatureHeader) {
+        byte[] expectedSignature = decodeSignatureHeader(slackSignatureHeader);
+        if (expectedSignature == null) {
+            return false;
+        }
+
+        Mac mac = threadMac.get();
+        // doFinal resets the mac, but a previous call may have failed part way through
+        mac.reset();
+        mac.update((Constants.SLACK_VERSION_NUMBER + ":" + slackRequestTimestamp + ":").getBytes(StandardCharsets.UTF_8));
+        mac.update(rawBody);
+        return MessageDigest.isEqual(mac.doFinal(), expectedSignature);
+    }
+
+    /*
+        the signature bytes from "v0=<64 hex digits>", or null if the header isn't in that form
+     */
+    static byte[] decodeSignatureHeader(String slackSignatureHeader) {
+        if (slackSignatureHeader == null ||
+                slackSignatureHeader.length() != SIGNATURE_PREFIX.length() + SIGNATURE_BYTES * 2 ||
+                !slackSignatureHeader.startsWith(SIGNATURE_PREFIX)) {
+            return null;
+        }
+        byte[] signature = new byte[SIGNATURE_BYTES];
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            int position = SIGNATURE_PREFIX.length() + i * 2;
+            int high = Character.digit(slackSignatureHeader.charAt(position), 16);
+            int low = Character.digit(slackSignatureHeader.charAt(position + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            signature[i] = (byte) ((high << 4) | low);
+        }
+        return signature;
+    }
+
+    private Mac newKeyedMac() {
+        try {
+            return (Mac) keyedMac.clone();
+        } catch (CloneNotSupportedException e) {
+            // not every provider's Mac can be cloned, key a new one instead
+            return createKeyedMac(slackSigningSecret);
+        }
+    }
+
+    private static Mac createKeyedMac(String slackSigningSecret) {
+        try {
+            Mac mac = Mac.getInstance(Constants.HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(slackSigningSecret.getBytes(StandardCharsets.UTF_8), Constants.HMAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("unable to create " + Constants.HMAC_ALGORITHM + " mac", e);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.redletra.standupsally.utils;
 
 import com.google.cloud.functions.HttpRequest;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -9,35 +11,144 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class Utils {
 
+    private static final Logger logger = LoggerFactory.getLogger(Utils.class);
+
     public static final Pattern userFromAppMentionEventPattern =
             Pattern.compile("<.*?>", Pattern.CASE_INSENSITIVE);
 
+    private static final char ROTATION_POSITION_SEPARATOR = ':';
+
 
     /*
        convert channeid1=@tom,@steve;channelid2=@dave,@susy,@chris....
        to a Map<String, List<String>>
+
+       Parsed in one pass straight into a pre-sized map, giving the same result as splitting on ";", then "="
+       then ",": empty channels (channel2=) get an empty list, empty users (@tom,,@steve) are kept, trailing
+       ";" are ignored and a repeated channel id is an error
      */
     public static Map<String, List<String>> convertChannelToUsersStringToMap(String channelToUsersString) {
+        int end = channelToUsersString.length();
+        while (end > 0 && channelToUsersString.charAt(end - 1) == ';') {
+            end--;
+        }
+        if (end == 0 && !channelToUsersString.isEmpty()) {
+            // nothing but separators
+            return new HashMap<>();
+        }
 
-        return Arrays.stream(channelToUsersString.split(";"))
-            .map(entry -> entry.split("="))
-            .collect(Collectors.toMap(entry -> entry[0], entry ->
-                   entry.length > 1 ?
-                        Stream.of(entry[1]
-                                        .split(",", -1))
-                                .collect(Collectors.toList()) :
-                        new ArrayList<>()
-            ));
+        Map<String, List<String>> channelToUsersMap = new HashMap<>(mapCapacity(count(channelToUsersString, ';', 0, end) + 1));
+        int entryStart = 0;
+        while (true) {
+            int entryEnd = indexOf(channelToUsersString, ';', entryStart, end);
+            int equals = indexOf(channelToUsersString, '=', entryStart, entryEnd);
+            String channelId = channelToUsersString.substring(entryStart, equals);
+            List<String> users = equals < entryEnd ?
+                    parseUsers(channelToUsersString, equals + 1, entryEnd) :
+                    new ArrayList<>();
+            if (channelToUsersMap.put(channelId, users) != null) {
+                throw new IllegalStateException("Duplicate key " + channelId);
+            }
+            if (entryEnd == end) {
+                return channelToUsersMap;
+            }
+            entryStart = entryEnd + 1;
+        }
     }
 
+    /*
+        the users between a channel's "=" and the end of its entry. Like the split it replaces, anything
+        after a second "=" is ignored
+     */
+    private static List<String> parseUsers(String channelToUsersString, int usersStart, int entryEnd) {
+        int usersEnd = indexOf(channelToUsersString, '=', usersStart, entryEnd);
+        if (usersStart == usersEnd && !hasContentAfterEquals(channelToUsersString, usersEnd, entryEnd)) {
+            return new ArrayList<>();
+        }
+        List<String> users = new ArrayList<>(count(channelToUsersString, ',', usersStart, usersEnd) + 1);
+        int userStart = usersStart;
+        while (true) {
+            int userEnd = indexOf(channelToUsersString, ',', userStart, usersEnd);
+            users.add(channelToUsersString.substring(userStart, userEnd));
+            if (userEnd == usersEnd) {
+                return users;
+            }
+            userStart = userEnd + 1;
+        }
+    }
+
+    private static boolean hasContentAfterEquals(String string, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (string.charAt(i) != '=') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+        convert channelid1=@tom,channelid2=@dave.... to a Map<String, String>, in one pass
+     */
     public static Map<String, String> convertChannelIdToUserHandleStringToMap(String channelIdToUserHandleString ) {
-        return Arrays.stream(channelIdToUserHandleString.split(","))
-                .map(entry -> entry.split("="))
-                .collect(Collectors.toMap(entry -> entry[0], entry -> entry[1]));
+        int end = channelIdToUserHandleString.length();
+        while (end > 0 && channelIdToUserHandleString.charAt(end - 1) == ',') {
+            end--;
+        }
+        Map<String, String> channelIdToUserHandleMap = new HashMap<>(mapCapacity(count(channelIdToUserHandleString, ',', 0, end) + 1));
+        if (end == 0) {
+            return channelIdToUserHandleMap;
+        }
+
+        int entryStart = 0;
+        while (true) {
+            int entryEnd = indexOf(channelIdToUserHandleString, ',', entryStart, end);
+            int equals = indexOf(channelIdToUserHandleString, '=', entryStart, entryEnd);
+            if (equals == entryEnd || !hasContentAfterEquals(channelIdToUserHandleString, equals, entryEnd)) {
+                throw new IllegalArgumentException("no user handle for channel " + channelIdToUserHandleString.substring(entryStart, entryEnd));
+            }
+            String channelId = channelIdToUserHandleString.substring(entryStart, equals);
+            String userHandle = channelIdToUserHandleString.substring(equals + 1,
+                    indexOf(channelIdToUserHandleString, '=', equals + 1, entryEnd));
+            if (channelIdToUserHandleMap.put(channelId, userHandle) != null) {
+                throw new IllegalStateException("Duplicate key " + channelId);
+            }
+            if (entryEnd == end) {
+                return channelIdToUserHandleMap;
+            }
+            entryStart = entryEnd + 1;
+        }
+    }
+
+    /*
+        index of the character in [from, to), or to if it isn't there
+     */
+    private static int indexOf(String string, char character, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (string.charAt(i) == character) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int count(String string, char character, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (string.charAt(i) == character) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+        a HashMap capacity which holds the given number of entries without resizing
+     */
+    private static int mapCapacity(int entries) {
+        return (int) (entries / 0.75f) + 1;
     }
 
     /*
@@ -46,47 +157,118 @@ public class Utils {
      */
     public static Map<String, String> getNextUserHandles(Map<String, List<String>> channelIdToMemberHandlesMap,
                                                    Map<String, String> channelIdToUserThatLastRanStandup) {
+        Map<String, String> channelIdToUserHandleWhoWillRunStandupMap = getNextRotationEntries(channelIdToMemberHandlesMap,
+                channelIdToUserThatLastRanStandup);
+        channelIdToUserHandleWhoWillRunStandupMap.replaceAll((channelId, rotationEntry) -> userHandleFromRotationEntry(rotationEntry));
+        return channelIdToUserHandleWhoWillRunStandupMap;
+    }
 
-        Map<String, String> channelIdToUserHandleWhoWillRunStandupMap = new HashMap<>();
-
-        channelIdToUserThatLastRanStandup.forEach((channelId, userHandleToLastRunStandup) -> {
+    /*
+    find the next user to run standup in each channel, as rotation entries (handle:position) to store as
+    the new last users. Channels with no members are skipped
+    @Return Map of channelId to the rotation entry of the next user to run standup
+     */
+    public static Map<String, String> getNextRotationEntries(Map<String, List<String>> channelIdToMemberHandlesMap,
+                                                             Map<String, String> channelIdToUserThatLastRanStandup) {
+        Map<String, String> channelIdToNextRotationEntryMap = new HashMap<>(mapCapacity(channelIdToUserThatLastRanStandup.size()));
+        channelIdToUserThatLastRanStandup.forEach((channelId, lastRotationEntry) -> {
             List<String> userHandlesInChannel = channelIdToMemberHandlesMap.get(channelId);
-            if(userHandlesInChannel != null) {
-                int userHandleIndex = userHandlesInChannel.indexOf(userHandleToLastRunStandup);
-
-                int newUserHandleIndex = 0;
-                // if the last user isn't in the list anymore then just start the list again
-                if (userHandleIndex != -1) {
-                    newUserHandleIndex = (userHandleIndex == userHandlesInChannel.size()-1) ? 0: userHandleIndex + 1;
-                }
-
-                String newUserHandle = userHandlesInChannel.get(newUserHandleIndex);
-                channelIdToUserHandleWhoWillRunStandupMap.put(channelId, newUserHandle);
+            if (userHandlesInChannel != null && !userHandlesInChannel.isEmpty()) {
+                int nextUserHandleIndex = nextUserHandleIndex(userHandlesInChannel, lastRotationEntry);
+                channelIdToNextRotationEntryMap.put(channelId,
+                        rotationEntry(userHandlesInChannel.get(nextUserHandleIndex), nextUserHandleIndex));
             }
         });
-        return channelIdToUserHandleWhoWillRunStandupMap;
+        return channelIdToNextRotationEntryMap;
+    }
+
+    /*
+        New users are added to the end of a channel's list, so a runner's position only changes when
+        someone before them leaves. That makes the stored position right nearly every day, and the next
+        runner is found in constant time rather than searching the list
+     */
+    private static int nextUserHandleIndex(List<String> userHandlesInChannel, String lastRotationEntry) {
+        String lastUserHandle = userHandleFromRotationEntry(lastRotationEntry);
+        int lastPosition = positionFromRotationEntry(lastRotationEntry);
+        int channelSize = userHandlesInChannel.size();
+        if (lastPosition >= 0 && lastPosition < channelSize && userHandlesInChannel.get(lastPosition).equals(lastUserHandle)) {
+            return (lastPosition + 1) % channelSize;
+        }
+
+        // someone before the last runner left, or the entry was stored without a position
+        int lastUserHandleIndex = userHandlesInChannel.indexOf(lastUserHandle);
+        if (lastUserHandleIndex != -1) {
+            return (lastUserHandleIndex + 1) % channelSize;
+        }
+        // the last runner has left. Whoever moved up into their position is next, rather than
+        // starting the list again. Without a position there is nothing to go on, so start again
+        return lastPosition >= 0 ? lastPosition % channelSize : 0;
+    }
+
+    /*
+        The user who last ran standup in a channel is stored as handle:position, position being their
+        index in the channel's list when they were picked. Entries stored before positions were added
+        are just the handle, which still works
+     */
+    public static String rotationEntry(String userHandle, int position) {
+        return userHandle + ROTATION_POSITION_SEPARATOR + position;
+    }
+
+    public static String userHandleFromRotationEntry(String rotationEntry) {
+        int separator = rotationEntry.lastIndexOf(ROTATION_POSITION_SEPARATOR);
+        return separator == -1 ? rotationEntry : rotationEntry.substring(0, separator);
+    }
+
+    /*
+        -1 if the entry has no position
+     */
+    private static int positionFromRotationEntry(String rotationEntry) {
+        int separator = rotationEntry.lastIndexOf(ROTATION_POSITION_SEPARATOR);
+        if (separator == -1) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(rotationEntry, separator + 1, rotationEntry.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     /*
         This converts the ChannelIdToLastUserToRunStandupMap into a string of format we want to save to a secret
      */
     public static String generateSecretStringFromChannelIdToLastUserToRunStandupMap(Map<String, String> channelIdToNextUserHandleToRunStandupMap) {
-        return channelIdToNextUserHandleToRunStandupMap.entrySet()
-            .stream()
-            .map(entry -> entry.getKey() + "=" + entry.getValue())
-            .collect(Collectors.joining(","));
-
+        StringBuilder secretString = new StringBuilder(channelIdToNextUserHandleToRunStandupMap.size() * 24);
+        for (Map.Entry<String, String> entry : channelIdToNextUserHandleToRunStandupMap.entrySet()) {
+            if (secretString.length() > 0) {
+                secretString.append(',');
+            }
+            secretString.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return secretString.toString();
     }
 
     /*
     This converts the ChannelIdToUserHandlesListMap into a string of format we want to save to a secret
  */
     public static String generateSecretStringFromChannelIdToUserHandlesListMap(Map<String, List<String>> channelIdToUserHandlesListMap) {
-        return channelIdToUserHandlesListMap.entrySet()
-                .stream()
-                .map(entry -> entry.getKey() + "=" + (entry.getValue().stream().map(user -> user ).collect(Collectors.joining(","))))
-                .collect(Collectors.joining(";"));
-
+        StringBuilder secretString = new StringBuilder(channelIdToUserHandlesListMap.size() * 64);
+        boolean firstChannel = true;
+        for (Map.Entry<String, List<String>> entry : channelIdToUserHandlesListMap.entrySet()) {
+            if (!firstChannel) {
+                secretString.append(';');
+            }
+            firstChannel = false;
+            secretString.append(entry.getKey()).append('=');
+            List<String> users = entry.getValue();
+            for (int i = 0; i < users.size(); i++) {
+                if (i > 0) {
+                    secretString.append(',');
+                }
+                secretString.append(users.get(i));
+            }
+        }
+        return secretString.toString();
     }
 
     public static boolean notFirstMondayOfSprint (LocalDate mondaySprintLocalDate, LocalDate today) {
@@ -125,9 +307,15 @@ public class Utils {
                 collect(Collectors.joining(","));
     }
 
+    /*
+        log the request headers, only at debug level
+     */
     public static void debugHeaders(HttpRequest httpRequest) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         for (Map.Entry<String, List<String>> header :httpRequest.getHeaders().entrySet()) {
-            System.out.println("key: " + header.getKey() + header.getValue().stream().collect(Collectors.joining(",")));
+            logger.debug("header {}: {}", header.getKey(), String.join(",", header.getValue()));
         }
     }
 
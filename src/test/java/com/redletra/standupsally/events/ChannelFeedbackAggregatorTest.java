@@ -0,0 +1,76 @@
+package com.redletra.standupsally.events;
+
+import com.redletra.standupsally.events.ChannelFeedbackAggregator.Feedback;
+import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChannelFeedbackAggregatorTest {
+
+    @Test
+    void flushPostsOneMessagePerChannelTest() {
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        ChannelFeedbackAggregator channelFeedbackAggregator = new ChannelFeedbackAggregator(standupSallySlackApiInvokerMock,
+                20);
+
+        channelFeedbackAggregator.submit("channel1", "U1", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel1", "U2", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel1", "U3", Feedback.BYE, "token");
+        channelFeedbackAggregator.submit("channel2", "U4", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.flush();
+
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@U1>, <@U2>\nStandup Sally says bye bye <@U3>", "token", "channel1");
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@U4>", "token", "channel2");
+
+        // nothing left to post
+        channelFeedbackAggregator.flush();
+        verifyNoMoreInteractions(standupSallySlackApiInvokerMock);
+    }
+
+    @Test
+    void fullChannelIsPostedAsSeveralMessagesTest() {
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        ChannelFeedbackAggregator channelFeedbackAggregator = new ChannelFeedbackAggregator(standupSallySlackApiInvokerMock,
+                2);
+
+        channelFeedbackAggregator.submit("channel1", "U1", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel1", "U2", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel1", "U3", Feedback.WELCOME, "token");
+        // nothing is posted until the batch is flushed
+        verifyNoInteractions(standupSallySlackApiInvokerMock);
+        channelFeedbackAggregator.flush();
+
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@U1>, <@U2>", "token", "channel1");
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@U3>", "token", "channel1");
+    }
+
+    @Test
+    void joinAndLeaveCancelOutTest() {
+        Map<String, Feedback> userIdToFeedback = new LinkedHashMap<>();
+        userIdToFeedback.put("U1", Feedback.BYE);
+        assertEquals("Standup Sally says bye bye <@U1>", ChannelFeedbackAggregator.message(userIdToFeedback));
+
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        ChannelFeedbackAggregator channelFeedbackAggregator = new ChannelFeedbackAggregator(standupSallySlackApiInvokerMock,
+                20);
+        channelFeedbackAggregator.submit("channel1", "U1", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel1", "U1", Feedback.BYE, "token");
+        channelFeedbackAggregator.submit("channel2", "U2", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.submit("channel2", "U3", Feedback.BYE, "token");
+        channelFeedbackAggregator.submit("channel2", "U3", Feedback.WELCOME, "token");
+        channelFeedbackAggregator.flush();
+
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@U2>", "token", "channel2");
+        verifyNoMoreInteractions(standupSallySlackApiInvokerMock);
+    }
+}
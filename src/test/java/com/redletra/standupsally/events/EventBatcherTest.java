@@ -0,0 +1,100 @@
+package com.redletra.standupsally.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBatcherTest {
+
+    @Test
+    void concurrentEventsAreProcessedAsOneBatchTest() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        EventBatcher<String> eventBatcher = new EventBatcher<>(Duration.ofMillis(500), 10, batch -> {
+            batches.add(batch);
+            return Map.of();
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> submissions = new ArrayList<>();
+            for (String event : List.of("Ev01", "Ev02", "Ev03")) {
+                submissions.add(executorService.submit(() -> eventBatcher.submit(event)));
+            }
+            for (Future<?> submission : submissions) {
+                submission.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(Set.of("Ev01", "Ev02", "Ev03"), new HashSet<>(batches.get(0)));
+
+        // the window has closed, so the next event starts a batch of its own
+        eventBatcher.submit("Ev04");
+        assertEquals(List.of("Ev04"), batches.get(1));
+    }
+
+    @Test
+    void fullBatchIsProcessedWithoutWaitingOutTheWindowTest() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        EventBatcher<String> eventBatcher = new EventBatcher<>(Duration.ofMinutes(1), 2, batch -> {
+            batches.add(batch);
+            return Map.of();
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executorService.submit(() -> eventBatcher.submit("Ev01"));
+            Future<?> second = executorService.submit(() -> eventBatcher.submit("Ev02"));
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(Set.of("Ev01", "Ev02"), new HashSet<>(batches.get(0)));
+    }
+
+    @Test
+    void failureIsOnlyThrownToItsOwnRequestTest() throws Exception {
+        EventBatcher<String> eventBatcher = new EventBatcher<>(Duration.ofMillis(500), 10, batch -> {
+            Map<String, RuntimeException> failures = new IdentityHashMap<>();
+            batch.stream()
+                    .filter("Ev02"::equals)
+                    .forEach(event -> failures.put(event, new IllegalStateException("secret manager unavailable")));
+            return failures;
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> succeeded = executorService.submit(() -> eventBatcher.submit("Ev01"));
+            Future<?> failed = executorService.submit(() -> eventBatcher.submit("Ev02"));
+
+            succeeded.get();
+            ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+            assertEquals("secret manager unavailable", e.getCause().getMessage());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void processorThrowingFailsEveryEventTest() {
+        EventBatcher<String> eventBatcher = new EventBatcher<>(Duration.ZERO, 10, batch -> {
+            throw new IllegalStateException("secret manager unavailable");
+        });
+
+        assertThrows(IllegalStateException.class, () -> eventBatcher.submit("Ev01"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.redletra.standupsally.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSlackEventDeduplicationStoreTest {
+
+    @Test
+    void markProcessedTest() throws Exception {
+        Path file = Files.createTempDirectory("slack-event-ids").resolve("event-ids");
+        FileSlackEventDeduplicationStore store = new FileSlackEventDeduplicationStore(file, 10);
+
+        assertFalse(store.isProcessed("Ev01"));
+        // looking doesn't record the id
+        assertFalse(store.isProcessed("Ev01"));
+        store.markProcessed(List.of("Ev01"));
+        assertTrue(store.isProcessed("Ev01"));
+        assertFalse(store.isProcessed("Ev02"));
+    }
+
+    @Test
+    void eventIdsSurviveRestartTest() throws Exception {
+        Path file = Files.createTempDirectory("slack-event-ids").resolve("event-ids");
+        FileSlackEventDeduplicationStore store = new FileSlackEventDeduplicationStore(file, 2);
+        store.markProcessed(List.of("Ev01"));
+        store.markProcessed(List.of("Ev02"));
+        store.markProcessed(List.of("Ev03"));
+
+        FileSlackEventDeduplicationStore restartedStore = new FileSlackEventDeduplicationStore(file, 2);
+        assertTrue(restartedStore.isProcessed("Ev03"));
+        assertTrue(restartedStore.isProcessed("Ev02"));
+        // only the most recent ids are kept
+        assertFalse(restartedStore.isProcessed("Ev01"));
+    }
+
+    @Test
+    void markProcessedBatchTest() throws Exception {
+        Path file = Files.createTempDirectory("slack-event-ids").resolve("event-ids");
+        FileSlackEventDeduplicationStore store = new FileSlackEventDeduplicationStore(file, 10);
+        store.markProcessed(List.of("Ev01", "Ev02"));
+        // already recorded ids aren't written again
+        store.markProcessed(List.of("Ev02", "Ev03"));
+
+        assertEquals(List.of("Ev01", "Ev02", "Ev03"), Files.readAllLines(file));
+        FileSlackEventDeduplicationStore restartedStore = new FileSlackEventDeduplicationStore(file, 10);
+        assertTrue(restartedStore.isProcessed("Ev01"));
+        assertTrue(restartedStore.isProcessed("Ev03"));
+    }
+
+    @Test
+    void fileIsCompactedTest() throws Exception {
+        Path file = Files.createTempDirectory("slack-event-ids").resolve("event-ids");
+        FileSlackEventDeduplicationStore store = new FileSlackEventDeduplicationStore(file, 2);
+        for (int i = 0; i < 10; i++) {
+            store.markProcessed(List.of("Ev" + i));
+        }
+        assertTrue(Files.readAllLines(file).size() <= 4);
+        assertTrue(new FileSlackEventDeduplicationStore(file, 2).isProcessed("Ev9"));
+    }
+}
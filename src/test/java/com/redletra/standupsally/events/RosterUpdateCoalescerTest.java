@@ -0,0 +1,73 @@
+package com.redletra.standupsally.events;
+
+import com.redletra.standupsally.events.RosterUpdateCoalescer.RosterChange;
+import com.redletra.standupsally.state.InMemoryStateStore;
+import com.redletra.standupsally.state.StateStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RosterUpdateCoalescerTest {
+
+    @Test
+    void flushWritesAllChangesAsOneUpdateTest() {
+        StateStore stateStore = spy(new InMemoryStateStore(Map.of(
+                "channel1", List.of("U0"),
+                "channel2", List.of("U3", "U4")), Map.of(), LocalDate.now()));
+        RosterUpdateCoalescer rosterUpdateCoalescer = new RosterUpdateCoalescer(stateStore);
+
+        rosterUpdateCoalescer.submit("channel1", "U1", RosterChange.ADD);
+        rosterUpdateCoalescer.submit("channel1", "U2", RosterChange.ADD);
+        rosterUpdateCoalescer.submit("channel2", "U3", RosterChange.REMOVE);
+        rosterUpdateCoalescer.flush();
+
+        verify(stateStore, times(1)).updateChannelIdToUserListMap(any());
+        Map<String, List<String>> updatedMap = stateStore.getChannelIdToUserListMap();
+        assertEquals(List.of("U0", "U1", "U2"), updatedMap.get("channel1"));
+        assertEquals(List.of("U4"), updatedMap.get("channel2"));
+
+        // nothing left to write
+        rosterUpdateCoalescer.flush();
+        verify(stateStore, times(1)).updateChannelIdToUserListMap(any());
+    }
+
+    @Test
+    void failedWriteIsNotRetriedByTheNextFlushTest() {
+        StateStore stateStore = spy(new InMemoryStateStore(Map.of("channel1", List.of("U0")), Map.of(), LocalDate.now()));
+        doThrow(new IllegalStateException("secret manager unavailable"))
+                .doCallRealMethod()
+                .when(stateStore).updateChannelUserLists(any(), any());
+        RosterUpdateCoalescer rosterUpdateCoalescer = new RosterUpdateCoalescer(stateStore);
+
+        rosterUpdateCoalescer.submit("channel1", "U1", RosterChange.ADD);
+        assertThrows(IllegalStateException.class, rosterUpdateCoalescer::flush);
+
+        // the failed batch is left to slack's retry, the next batch only writes its own changes
+        rosterUpdateCoalescer.submit("channel1", "U2", RosterChange.ADD);
+        rosterUpdateCoalescer.flush();
+        assertEquals(List.of("U0", "U2"), stateStore.getChannelIdToUserListMap().get("channel1"));
+    }
+
+    @Test
+    void joinThenLeaveCancelsOutTest() {
+        Map<String, Map<String, RosterChange>> changes = new LinkedHashMap<>();
+        changes.put("channel1", new LinkedHashMap<>());
+        changes.get("channel1").put("U1", RosterChange.ADD);
+        // the later change for the same user replaces the earlier one
+        changes.get("channel1").put("U1", RosterChange.REMOVE);
+
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>(Map.of("channel1", new ArrayList<>(List.of("U0"))));
+        assertEquals(Optional.empty(), RosterUpdateCoalescer.applyChanges(channelIdToUserListMap, changes));
+    }
+
+    @Test
+    void unknownChannelIsIgnoredTest() {
+        Map<String, Map<String, RosterChange>> changes = Map.of("channel9", Map.of("U1", RosterChange.ADD));
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>(Map.of("channel1", new ArrayList<>(List.of("U0"))));
+        assertEquals(Optional.empty(), RosterUpdateCoalescer.applyChanges(channelIdToUserListMap, changes));
+    }
+}
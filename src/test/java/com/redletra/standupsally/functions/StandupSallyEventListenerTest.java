@@ -5,27 +5,43 @@ import com.google.cloud.functions.HttpResponse;
 import com.google.cloud.secretmanager.v1.*;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.protobuf.ByteString;
+import com.redletra.standupsally.events.LruSlackEventDeduplicationStore;
 import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
+import com.redletra.standupsally.state.InMemoryStateStore;
 import com.redletra.standupsally.utils.InvalidAppRequestException;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
 import com.redletra.standupsally.utils.SecretUtils;
-import org.javatuples.Pair;
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.redletra.standupsally.utils.SlackEventProcessingException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static com.redletra.standupsally.utils.Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME;
+import static com.redletra.standupsally.utils.Utils.generateSecretStringFromChannelIdToUserHandlesListMap;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class StandupSallyEventListenerTest {
 
+    private static final String WELL_FORMED_SIGNATURE = "v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad";
+    private static final String APP_MENTION_REQUEST = "{\"type\": \"event_callback\", \"event_id\": \"Ev02\"," +
+            " \"event\": {\"type\": \"app_mention\", \"text\": \"hello\", \"channel\": \"channel1\"}}";
+
     @Test
     void processMemberJoinedEventTest() {
         SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
@@ -33,15 +49,15 @@ public class StandupSallyEventListenerTest {
 
         StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
         Map<String, List<String>> channelToUserList = new HashMap<String, List<String>>(Map.of("channel1", new ArrayList<String>(List.of("123345", "333333"))));
-        SecretVersion versionWhichWillBeDeleted = SecretVersion.newBuilder().build();
-        Pair<Map<String, List<String>>, SecretVersion> pair = new Pair(channelToUserList, versionWhichWillBeDeleted);
-
-        when(mockSecretUtils.getChannelIdToUserListMap(mockSecretManagerServiceClient)).thenReturn(pair);
 
         when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("secret");
 
-        StandupSallyEventListener standupSallyEventListener = new
-                StandupSallyEventListener(mockSecretUtils, standupSallySlackApiInvokerMock);
+        InMemoryStateStore stateStore = new InMemoryStateStore(channelToUserList, Map.of(), LocalDate.now());
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                new SecretManagerClientHolder(),
+                stateStore,
+                new LruSlackEventDeduplicationStore(10));
 
         String memberJoinedEvent = "{\"user\": \"W010SG2LC7K\",\"channel\": \"channel1\"}";
         Gson gson = new Gson();
@@ -49,13 +65,10 @@ public class StandupSallyEventListenerTest {
 
         // test method
         standupSallyEventListener.processMemberJoinedEvent(jsonObject, mockSecretManagerServiceClient);
+        standupSallyEventListener.flushRosterUpdates();
 
         String newSecretValue = "channel1=123345,333333,W010SG2LC7K";
-        verify(mockSecretUtils, times(1)).createNewSecretVersionAndDeleteOld(
-                newSecretValue,
-                mockSecretManagerServiceClient,
-                versionWhichWillBeDeleted,
-                CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME);
+        assertEquals(newSecretValue, generateSecretStringFromChannelIdToUserHandlesListMap(stateStore.getChannelIdToUserListMap()));
 
         verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
                 anyString(),
@@ -71,14 +84,6 @@ public class StandupSallyEventListenerTest {
 
         SecretUtils secretUtilsMock = mock(SecretUtils.class);
         when(secretUtilsMock.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
-        List<String> users = new ArrayList<>();
-        users.add("123456");
-        users.add("343434");
-        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
-        channelIdToUserListMap.put("channel1", users);
-        SecretVersion secretVersion = mock(SecretVersion.class);
-        when(secretUtilsMock.getChannelIdToUserListMap(mockSecretManagerServiceClient))
-                .thenReturn(new Pair(channelIdToUserListMap, secretVersion));
 
         StandupSallyEventListener standupSallyEventListener = new
                 StandupSallyEventListener(secretUtilsMock, standupSallySlackApiInvokerMock);
@@ -138,14 +143,6 @@ public class StandupSallyEventListenerTest {
 
         SecretUtils secretUtilsMock = mock(SecretUtils.class);
         when(secretUtilsMock.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
-        List<String> users = new ArrayList<>();
-        users.add("123456");
-        users.add("343434");
-        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
-        channelIdToUserListMap.put("channel1", users);
-        SecretVersion secretVersion = mock(SecretVersion.class);
-        when(secretUtilsMock.getChannelIdToUserListMap(mockSecretManagerServiceClient))
-                .thenReturn(new Pair(channelIdToUserListMap, secretVersion));
 
         StandupSallyEventListener standupSallyEventListener = new
                 StandupSallyEventListener(secretUtilsMock, standupSallySlackApiInvokerMock);
@@ -181,21 +178,12 @@ public class StandupSallyEventListenerTest {
         SecretUtils secretUtilsMock = mock(SecretUtils.class);
         when(secretUtilsMock.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
 
-        List<String> users = new ArrayList<>();
-        users.add("123456");
-        users.add("343434");
-        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
-        channelIdToUserListMap.put("channel1", users);
-        SecretVersion secretVersion = mock(SecretVersion.class);
-        when(secretUtilsMock.getChannelIdToUserListMap(mockSecretManagerServiceClient))
-                .thenReturn(new Pair(channelIdToUserListMap, secretVersion));
-
-
-        when(secretUtilsMock.getUserForEachChannelWhoLastRanStandup(mockSecretManagerServiceClient)).
-                thenReturn(new Pair(new HashMap<>(), secretVersion));
 
-        StandupSallyEventListener standupSallyEventListener = new
-                StandupSallyEventListener(secretUtilsMock, standupSallySlackApiInvokerMock);
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(secretUtilsMock,
+                standupSallySlackApiInvokerMock,
+                new SecretManagerClientHolder(),
+                new InMemoryStateStore(Map.of(), Map.of(), LocalDate.now()),
+                new LruSlackEventDeduplicationStore(10));
         StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
 
         String file ="src/test/resources/fixtures/app-mention-add-us.json";
@@ -212,6 +200,32 @@ public class StandupSallyEventListenerTest {
 
     }
 
+    @Test
+    void addChannelUsersToSallyLookupFailureTest() {
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "slack-token"))
+                .thenThrow(new SlackApiCallException("conversations.members failed: ratelimited"));
+        SecretUtils secretUtilsMock = mock(SecretUtils.class);
+        when(secretUtilsMock.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+
+        InMemoryStateStore stateStore = new InMemoryStateStore(Map.of(), Map.of(), LocalDate.now());
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(secretUtilsMock,
+                standupSallySlackApiInvokerMock,
+                new SecretManagerClientHolder(),
+                stateStore,
+                new LruSlackEventDeduplicationStore(10));
+
+        standupSallyEventListener.addChannelUsersToSally("channel1", mockSecretManagerServiceClient, "<@U0LAN0Z89>");
+
+        // nothing registered, and the channel is told
+        assertTrue(stateStore.getChannelIdToUserListMap().isEmpty());
+        assertTrue(stateStore.getUserForEachChannelWhoLastRanStandup().isEmpty());
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(anyString(),
+                eq("slack-token"),
+                eq("channel1"));
+    }
+
     @Test
     void processChallengeSlackEvent() throws Exception {
         SecretUtils mockSecretUtils = mock(SecretUtils.class);
@@ -224,9 +238,8 @@ public class StandupSallyEventListenerTest {
         HttpRequest httpRequestMock = mock(HttpRequest.class);
         HttpResponse httpResponseMock = mock(HttpResponse.class);
 
-        Reader reader = new StringReader("{\"challenge\": \"asDQiWVn3xDllsXB8U3G1V5VImFPwNTTPGmFxXx2WOjXI85BNbAX\"}");
-        BufferedReader br = new BufferedReader(reader);
-        when(httpRequestMock.getReader()).thenReturn(br);
+        when(httpRequestMock.getInputStream()).thenReturn(new ByteArrayInputStream(
+                "{\"challenge\": \"asDQiWVn3xDllsXB8U3G1V5VImFPwNTTPGmFxXx2WOjXI85BNbAX\"}".getBytes(StandardCharsets.UTF_8)));
 
         Writer writer = new StringWriter();
         BufferedWriter bwriterMock = mock(BufferedWriter.class);
@@ -249,27 +262,25 @@ public class StandupSallyEventListenerTest {
         StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
 
         Map<String, List<String>> channelToUserList = new HashMap<String, List<String>>(Map.of("channel1", new ArrayList<String>(List.of("123345", "333333"))));
-        SecretVersion versionWhichWillBeDeleted = SecretVersion.newBuilder().build();
-        Pair<Map<String, List<String>>, SecretVersion> pair = new Pair(channelToUserList, versionWhichWillBeDeleted);
 
-        when(mockSecretUtils.getChannelIdToUserListMap(mockSecretManagerServiceClient)).thenReturn(pair);
         when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("secret");
 
-        StandupSallyEventListener standupSallyEventListener = new
-                StandupSallyEventListener(mockSecretUtils, standupSallySlackApiInvokerMock);
+        InMemoryStateStore stateStore = new InMemoryStateStore(channelToUserList, Map.of(), LocalDate.now());
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                new SecretManagerClientHolder(),
+                stateStore,
+                new LruSlackEventDeduplicationStore(10));
 
         String memberLeftEvent = "{\"user\": \"123345\",\"channel\": \"channel1\"}";
         Gson gson = new Gson();
         JsonObject jsonObject = gson.fromJson(memberLeftEvent, JsonObject.class);
 
         standupSallyEventListener.processMemberLeftEvent(jsonObject, mockSecretManagerServiceClient);
+        standupSallyEventListener.flushRosterUpdates();
 
         String newSecretValue = "channel1=333333";
-        verify(mockSecretUtils, times(1)).createNewSecretVersionAndDeleteOld(
-                newSecretValue,
-                mockSecretManagerServiceClient,
-                versionWhichWillBeDeleted,
-                CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME);
+        assertEquals(newSecretValue, generateSecretStringFromChannelIdToUserHandlesListMap(stateStore.getChannelIdToUserListMap()));
 
         verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
                 anyString(),
@@ -289,14 +300,10 @@ public class StandupSallyEventListenerTest {
         try (MockedStatic<SecretManagerServiceClient> client = Mockito.mockStatic(SecretManagerServiceClient.class)) {
             SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
             client.when(SecretManagerServiceClient::create).thenReturn(mockSecretManagerServiceClient);
-            AccessSecretVersionResponse signingSecretSecretVersionResponseMock = mock(AccessSecretVersionResponse.class);
-            SecretPayload secretPayloadMock = mock(SecretPayload.class);
-            when(secretPayloadMock.getData()).thenReturn(ByteString.copyFrom("12345".getBytes()));
-            when(signingSecretSecretVersionResponseMock.getPayload()).thenReturn(secretPayloadMock);
-            when(mockSecretManagerServiceClient.accessSecretVersion(any(SecretVersionName.class))).thenReturn(signingSecretSecretVersionResponseMock);
+            when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
 
             StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
-            doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(JsonObject.class),
+            doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
                     anyString(),
                     anyString(),
                     anyString());
@@ -305,12 +312,10 @@ public class StandupSallyEventListenerTest {
             HttpResponse httpResponseMock = mock(HttpResponse.class);
 
             when(httpRequestMock.getFirstHeader("x-slack-retry-num")).thenReturn(Optional.empty());
-            when(httpRequestMock.getFirstHeader("x-slack-signature")).thenReturn(Optional.of("slack-sig"));
-            when(httpRequestMock.getFirstHeader("x-slack-request-timestamp")).thenReturn(Optional.of("121211212"));
+            when(httpRequestMock.getFirstHeader("x-slack-signature")).thenReturn(Optional.of(WELL_FORMED_SIGNATURE));
+            when(httpRequestMock.getFirstHeader("x-slack-request-timestamp")).thenReturn(Optional.of(String.valueOf(Instant.now().getEpochSecond())));
 
-            Reader reader = new StringReader("{}");
-            BufferedReader br = new BufferedReader(reader);
-            when(httpRequestMock.getReader()).thenReturn(br);
+            when(httpRequestMock.getInputStream()).thenReturn(new ByteArrayInputStream(APP_MENTION_REQUEST.getBytes(StandardCharsets.UTF_8)));
 
             Writer writer = new StringWriter();
             when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(writer));
@@ -318,7 +323,7 @@ public class StandupSallyEventListenerTest {
             standupSallyEventListenerSpy.service(httpRequestMock, httpResponseMock);
 
             // attempt is made to validate the request
-            verify(standupSallyEventListenerSpy, times(1)).validateRequest(any(JsonObject.class),
+            verify(standupSallyEventListenerSpy, times(1)).validateRequest(any(byte[].class),
                     anyString(),
                     anyString(),
                     anyString());
@@ -339,14 +344,10 @@ public class StandupSallyEventListenerTest {
         try (MockedStatic<SecretManagerServiceClient> client = Mockito.mockStatic(SecretManagerServiceClient.class)) {
             SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
             client.when(SecretManagerServiceClient::create).thenReturn(mockSecretManagerServiceClient);
-            AccessSecretVersionResponse signingSecretSecretVersionResponseMock = mock(AccessSecretVersionResponse.class);
-            SecretPayload secretPayloadMock = mock(SecretPayload.class);
-            when(secretPayloadMock.getData()).thenReturn(ByteString.copyFrom("12345".getBytes()));
-            when(signingSecretSecretVersionResponseMock.getPayload()).thenReturn(secretPayloadMock);
-            when(mockSecretManagerServiceClient.accessSecretVersion(any(SecretVersionName.class))).thenReturn(signingSecretSecretVersionResponseMock);
+            when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
 
             StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
-            doReturn(false).when(standupSallyEventListenerSpy).validateRequest(any(JsonObject.class),
+            doReturn(false).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
                     anyString(),
                     anyString(),
                     anyString());
@@ -355,11 +356,9 @@ public class StandupSallyEventListenerTest {
             HttpResponse httpResponseMock = mock(HttpResponse.class);
 
             when(httpRequestMock.getFirstHeader("x-slack-retry-num")).thenReturn(Optional.empty());
-            when(httpRequestMock.getFirstHeader("x-slack-signature")).thenReturn(Optional.of("slack-sig"));
-            when(httpRequestMock.getFirstHeader("x-slack-request-timestamp")).thenReturn(Optional.of("121211212"));
-             Reader reader = new StringReader("{}");
-            BufferedReader br = new BufferedReader(reader);
-            when(httpRequestMock.getReader()).thenReturn(br);
+            when(httpRequestMock.getFirstHeader("x-slack-signature")).thenReturn(Optional.of(WELL_FORMED_SIGNATURE));
+            when(httpRequestMock.getFirstHeader("x-slack-request-timestamp")).thenReturn(Optional.of(String.valueOf(Instant.now().getEpochSecond())));
+             when(httpRequestMock.getInputStream()).thenReturn(new ByteArrayInputStream(APP_MENTION_REQUEST.getBytes(StandardCharsets.UTF_8)));
 
             Writer writer = new StringWriter();
             when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(writer));
@@ -370,7 +369,7 @@ public class StandupSallyEventListenerTest {
                 assertNotNull(in);
             }
             // attempt is made to validate the request
-            verify(standupSallyEventListenerSpy, times(1)).validateRequest(any(JsonObject.class),
+            verify(standupSallyEventListenerSpy, times(1)).validateRequest(any(byte[].class),
                     anyString(),
                     anyString(),
                     anyString());
@@ -379,15 +378,270 @@ public class StandupSallyEventListenerTest {
         }
     }
 
+    @Test
+    void staleRequestIsRejectedWithoutSecretManagerTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                mock(StandupSallySlackApiInvoker.class),
+                secretManagerClientHolderMock,
+                new InMemoryStateStore(Map.of(), Map.of(), LocalDate.now()),
+                new LruSlackEventDeduplicationStore(10));
+
+        HttpRequest httpRequestMock = mock(HttpRequest.class);
+        HttpResponse httpResponseMock = mock(HttpResponse.class);
+        // no retry header, in either case
+        when(httpRequestMock.getFirstHeader(anyString())).thenReturn(Optional.empty());
+        when(httpRequestMock.getFirstHeader("x-slack-signature")).thenReturn(Optional.of(WELL_FORMED_SIGNATURE));
+        // an hour old
+        when(httpRequestMock.getFirstHeader("x-slack-request-timestamp"))
+                .thenReturn(Optional.of(String.valueOf(Instant.now().minusSeconds(3600).getEpochSecond())));
+        when(httpRequestMock.getInputStream()).thenReturn(new ByteArrayInputStream(APP_MENTION_REQUEST.getBytes(StandardCharsets.UTF_8)));
+        when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(new StringWriter()));
+
+        standupSallyEventListener.service(httpRequestMock, httpResponseMock);
+
+        verifyNoInteractions(secretManagerClientHolderMock, mockSecretUtils);
+        verify(httpResponseMock, times(1)).setStatusCode(200);
+    }
+
+    @Test
+    void processRequestProcessesEventBeforeReturningTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(mockSecretManagerServiceClient);
+        when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
+        when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "slack-token"))
+                .thenReturn(List.of("U032VM4S54Z", "123345", "333333"));
+        InMemoryStateStore stateStore = new InMemoryStateStore(Map.of(), Map.of(), LocalDate.now());
+
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStore,
+                new LruSlackEventDeduplicationStore(10));
+        StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
+        doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
+                anyString(),
+                anyString(),
+                anyString());
+
+        String rawBody = "{\"event_id\": \"Ev01\", \"event\": {\"type\": \"app_mention\"," +
+                " \"text\": \"<@U032VM4S54Z> add us\", \"channel\": \"channel1\"}}";
+        JsonObject body = new Gson().fromJson(rawBody, JsonObject.class);
+        standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+
+        // done by the time the request returns, nothing is left for after the response
+        assertEquals(Map.of("channel1", List.of("123345", "333333")), stateStore.getChannelIdToUserListMap());
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(anyString(),
+                eq("slack-token"),
+                eq("channel1"));
+
+        // a slack retry of the same event is not processed again
+        standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+        verify(standupSallySlackApiInvokerMock, times(1)).getSlackUsersForChannel(anyString(), anyString());
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(anyString(),
+                anyString(),
+                anyString());
+    }
+
+    @Test
+    void failedEventIsProcessedAgainOnRetryTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(mockSecretManagerServiceClient);
+        when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
+        when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+        // slack is down the first time round
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "slack-token"))
+                .thenThrow(new IllegalStateException("slack unavailable"))
+                .thenReturn(List.of("U032VM4S54Z", "123345", "333333"));
+        InMemoryStateStore stateStore = new InMemoryStateStore(Map.of(), Map.of(), LocalDate.now());
+        LruSlackEventDeduplicationStore slackEventDeduplicationStore = new LruSlackEventDeduplicationStore(10);
+
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStore,
+                slackEventDeduplicationStore);
+        StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
+        doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
+                anyString(),
+                anyString(),
+                anyString());
+
+        String rawBody = "{\"event_id\": \"Ev01\", \"event\": {\"type\": \"app_mention\"," +
+                " \"text\": \"<@U032VM4S54Z> add us\", \"channel\": \"channel1\"}}";
+        JsonObject body = new Gson().fromJson(rawBody, JsonObject.class);
+        // answered with an error, so slack retries
+        assertThrows(SlackEventProcessingException.class, () ->
+                standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212"));
+        assertFalse(slackEventDeduplicationStore.isProcessed("Ev01"));
+
+        standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+        assertTrue(slackEventDeduplicationStore.isProcessed("Ev01"));
+        assertEquals(Map.of("channel1", List.of("123345", "333333")), stateStore.getChannelIdToUserListMap());
+    }
+
+    @Test
+    void memberJoinedIsWrittenBeforeTheWelcomeIsPostedTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(mockSecretManagerServiceClient);
+        when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
+        when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+        InMemoryStateStore stateStore = spy(new InMemoryStateStore(Map.of("channel1", List.of("123345")), Map.of(), LocalDate.now()));
+        // the first roster write fails
+        doThrow(new IllegalStateException("secret manager unavailable"))
+                .doCallRealMethod()
+                .when(stateStore).updateChannelUserLists(any(), any());
+        LruSlackEventDeduplicationStore slackEventDeduplicationStore = new LruSlackEventDeduplicationStore(10);
+
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStore,
+                slackEventDeduplicationStore);
+        StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
+        doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
+                anyString(),
+                anyString(),
+                anyString());
+
+        String rawBody = "{\"event_id\": \"Ev01\", \"event\": {\"type\": \"member_joined_channel\"," +
+                " \"user\": \"W010SG2LC7K\", \"channel\": \"channel1\"}}";
+        JsonObject body = new Gson().fromJson(rawBody, JsonObject.class);
+        assertThrows(SlackEventProcessingException.class, () ->
+                standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212"));
+        // nobody is welcomed to a roster they aren't on
+        verify(standupSallySlackApiInvokerMock, never()).appMentionActionFeedback(anyString(), anyString(), anyString());
+
+        standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+        assertEquals(List.of("123345", "W010SG2LC7K"), stateStore.getChannelIdToUserListMap().get("channel1"));
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                "Standup Sally says welcome <@W010SG2LC7K>", "slack-token", "channel1");
+        assertTrue(slackEventDeduplicationStore.isProcessed("Ev01"));
+    }
+
+    @Test
+    void concurrentRequestsAreWrittenAsOneRosterUpdateTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(mockSecretManagerServiceClient);
+        when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
+        when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+        InMemoryStateStore stateStore = spy(new InMemoryStateStore(Map.of("channel1", List.of("123345")), Map.of(), LocalDate.now()));
+        LruSlackEventDeduplicationStore slackEventDeduplicationStore = new LruSlackEventDeduplicationStore(10);
+
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStore,
+                slackEventDeduplicationStore,
+                Duration.ofMillis(500));
+        StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
+        doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
+                anyString(),
+                anyString(),
+                anyString());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (String userId : List.of("U1", "U2")) {
+                String rawBody = "{\"event_id\": \"Ev" + userId + "\", \"event\": {\"type\": \"member_joined_channel\"," +
+                        " \"user\": \"" + userId + "\", \"channel\": \"channel1\"}}";
+                JsonObject body = new Gson().fromJson(rawBody, JsonObject.class);
+                requests.add(executorService.submit(() -> {
+                    standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+                    // written by the time each request returns
+                    assertTrue(stateStore.getChannelIdToUserListMap().get("channel1").contains(userId));
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // both joins in one write
+        verify(stateStore, times(1)).updateChannelUserLists(any(), any());
+        assertEquals(Set.of("123345", "U1", "U2"), new HashSet<>(stateStore.getChannelIdToUserListMap().get("channel1")));
+        assertTrue(slackEventDeduplicationStore.isProcessed("EvU1"));
+        assertTrue(slackEventDeduplicationStore.isProcessed("EvU2"));
+    }
+
+    @Test
+    void concurrentJoinsAreWelcomedInOneMessageTest() throws Exception {
+        SecretUtils mockSecretUtils = mock(SecretUtils.class);
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient mockSecretManagerServiceClient = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(mockSecretManagerServiceClient);
+        when(mockSecretUtils.getSlackSigningSecret(mockSecretManagerServiceClient)).thenReturn("12345");
+        when(mockSecretUtils.getSlackToken(mockSecretManagerServiceClient)).thenReturn("slack-token");
+        InMemoryStateStore stateStore = new InMemoryStateStore(Map.of("channel1", List.of("123345")), Map.of(), LocalDate.now());
+
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mockSecretUtils,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStore,
+                new LruSlackEventDeduplicationStore(10),
+                Duration.ofMillis(500));
+        StandupSallyEventListener standupSallyEventListenerSpy = spy(standupSallyEventListener);
+        doReturn(true).when(standupSallyEventListenerSpy).validateRequest(any(byte[].class),
+                anyString(),
+                anyString(),
+                anyString());
+
+        List<String> userIds = List.of("U1", "U2", "U3");
+        ExecutorService executorService = Executors.newFixedThreadPool(userIds.size());
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (String userId : userIds) {
+                String rawBody = "{\"event_id\": \"Ev" + userId + "\", \"event\": {\"type\": \"member_joined_channel\"," +
+                        " \"user\": \"" + userId + "\", \"channel\": \"channel1\"}}";
+                JsonObject body = new Gson().fromJson(rawBody, JsonObject.class);
+                requests.add(executorService.submit(() -> {
+                    standupSallyEventListenerSpy.processRequest(rawBody.getBytes(StandardCharsets.UTF_8), body, "slack-sig", "121211212");
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // one message for the three requests, posted before any of them returned
+        verify(standupSallySlackApiInvokerMock, times(1)).appMentionActionFeedback(
+                argThat(message -> message.startsWith("Standup Sally says welcome ") &&
+                        userIds.stream().allMatch(userId -> message.contains("<@" + userId + ">"))),
+                eq("slack-token"),
+                eq("channel1"));
+        verifyNoMoreInteractions(standupSallySlackApiInvokerMock);
+    }
+
     @Test
     void validateRequestTest() {
         SecretUtils mockSecretUtils = mock(SecretUtils.class);
         StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
         StandupSallyEventListener standupSallyEventListener = new
                 StandupSallyEventListener(mockSecretUtils, standupSallySlackApiInvokerMock);
-        JsonObject jsonObject = new Gson().fromJson("{}", JsonObject.class);
         boolean result = new StandupSallyEventListener().validateRequest(
-                jsonObject,
+                "{}".getBytes(StandardCharsets.UTF_8),
                 "11111111111111111111111111111111",
                 "v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad",
                 "32123123");
@@ -395,6 +649,37 @@ public class StandupSallyEventListenerTest {
 
     }
 
+    @Test
+    void validateRequestUsesRawBodyTest() {
+        StandupSallyEventListener standupSallyEventListener = new StandupSallyEventListener(mock(SecretUtils.class),
+                mock(StandupSallySlackApiInvoker.class));
+        String signingSecret = "11111111111111111111111111111111";
+        // whitespace and escapes gson would not reproduce when re-serialising the parsed body
+        String rawBody = "{ \"text\": \"caf\\u00e9\" }";
+        String signature = "v0=" + hmacHex(signingSecret, "v0:32123123:" + rawBody);
+
+        assertTrue(standupSallyEventListener.validateRequest(rawBody.getBytes(StandardCharsets.UTF_8),
+                signingSecret, signature, "32123123"));
+        assertFalse(standupSallyEventListener.validateRequest(rawBody.getBytes(StandardCharsets.UTF_8),
+                signingSecret, signature, "32123124"));
+        assertFalse(standupSallyEventListener.validateRequest(rawBody.getBytes(StandardCharsets.UTF_8),
+                "22222222222222222222222222222222", signature, "32123123"));
+    }
+
+    private static String hmacHex(String key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : mac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 //    @Test
 //    void addChannelUsersToSallyTest() {
 //       todo
@@ -4,7 +4,10 @@ import com.google.cloud.functions.HttpRequest;
 import com.google.cloud.functions.HttpResponse;
 import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
 import com.google.cloud.secretmanager.v1.SecretVersion;
+import com.redletra.standupsally.slack.StandupAnnouncementResult;
 import com.redletra.standupsally.slack.StandupSallySlackApiInvoker;
+import com.redletra.standupsally.state.StateStore;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
 import com.redletra.standupsally.utils.SecretUtils;
 import org.javatuples.Pair;
 import org.junit.jupiter.api.Test;
@@ -13,13 +16,19 @@ import org.mockito.Mockito;
 
 import java.io.BufferedWriter;
 import java.io.StringWriter;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAmount;
 import java.time.temporal.TemporalUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class StandupSallyTest {
@@ -64,9 +73,8 @@ public class StandupSallyTest {
 
             standupSallySpy.service(httpRequestMock, httpResponseMock);
 
-            verify(standupSallySpy, times(1)).updateLastUserSecret(any(SecretManagerServiceClient.class),
-                    anyMap(),
-                    any(SecretVersion.class));
+            verify(standupSallySpy, times(1)).updateLastUserSecret(
+                    anyMap());
 
             verify(standupSallySlackApiInvokerMock, times(1)).informStandupRunner(anyMap(),
                     anyString());
@@ -114,8 +122,106 @@ public class StandupSallyTest {
 
             standupSallySpy.service(httpRequestMock, httpResponseMock);
 
-            verify(standupSallySpy, times(0)).updateLastUserSecret(any(SecretManagerServiceClient.class), anyMap(), any(SecretVersion.class));
+            verify(standupSallySpy, times(0)).updateLastUserSecret(anyMap());
             verify(standupSallySlackApiInvokerMock, times(0)).informStandupRunner(anyMap(), anyString());
         }
     }
+
+    @Test
+    void secretsArePrefetchedConcurrentlyTest() throws Exception {
+        HttpResponse httpResponseMock = mock(HttpResponse.class);
+        when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(new StringWriter()));
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretUtils secretUtilsMock = mock(SecretUtils.class);
+        StateStore stateStoreMock = mock(StateStore.class);
+        // each read waits for the other three, so the run only completes if all four are in flight at once
+        CyclicBarrier allReadsInFlight = new CyclicBarrier(4);
+        when(secretUtilsMock.getSlackToken(any())).thenAnswer(invocation -> {
+            allReadsInFlight.await(5, TimeUnit.SECONDS);
+            return "slack-token";
+        });
+        when(stateStoreMock.getChannelIdToUserListMap()).thenAnswer(invocation -> {
+            allReadsInFlight.await(5, TimeUnit.SECONDS);
+            return Map.of("channel1", List.of("123456", "343434"));
+        });
+        when(stateStoreMock.getUserForEachChannelWhoLastRanStandup()).thenAnswer(invocation -> {
+            allReadsInFlight.await(5, TimeUnit.SECONDS);
+            return Map.of("channel1", "123456");
+        });
+        when(stateStoreMock.getSprintStartDate()).thenAnswer(invocation -> {
+            allReadsInFlight.await(5, TimeUnit.SECONDS);
+            return LocalDate.now().minus(13, ChronoUnit.DAYS);
+        });
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+
+        new StandupSally(secretUtilsMock,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStoreMock,
+                Duration.ofSeconds(10)).service(mock(HttpRequest.class), httpResponseMock);
+
+        verify(standupSallySlackApiInvokerMock, times(1)).informStandupRunner(eq(Map.of("channel1", "343434")),
+                eq("slack-token"));
+    }
+
+    @Test
+    void secretPrefetchTimeoutCancelsOutstandingReadsTest() throws Exception {
+        HttpResponse httpResponseMock = mock(HttpResponse.class);
+        when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(new StringWriter()));
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretUtils secretUtilsMock = mock(SecretUtils.class);
+        when(secretUtilsMock.getSlackToken(any())).thenReturn("slack-token");
+        StateStore stateStoreMock = mock(StateStore.class);
+        when(stateStoreMock.getChannelIdToUserListMap()).thenReturn(Map.of());
+        when(stateStoreMock.getUserForEachChannelWhoLastRanStandup()).thenReturn(Map.of());
+        CountDownLatch readInterrupted = new CountDownLatch(1);
+        // a read which never comes back
+        when(stateStoreMock.getSprintStartDate()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                readInterrupted.countDown();
+            }
+            return LocalDate.now();
+        });
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+
+        StandupSally standupSally = new StandupSally(secretUtilsMock,
+                standupSallySlackApiInvokerMock,
+                secretManagerClientHolderMock,
+                stateStoreMock,
+                Duration.ofMillis(100));
+
+        assertThrows(TimeoutException.class, () -> standupSally.service(mock(HttpRequest.class), httpResponseMock));
+        // the outstanding read is interrupted rather than left running on the prefetch executor
+        assertTrue(readInterrupted.await(5, TimeUnit.SECONDS));
+        verifyNoInteractions(standupSallySlackApiInvokerMock);
+    }
+
+    @Test
+    void failedAnnouncementsAreReportedTest() throws Exception {
+        StringWriter responseBody = new StringWriter();
+        HttpResponse httpResponseMock = mock(HttpResponse.class);
+        when(httpResponseMock.getWriter()).thenReturn(new BufferedWriter(responseBody));
+        SecretUtils secretUtilsMock = mock(SecretUtils.class);
+        when(secretUtilsMock.getSlackToken(any())).thenReturn("slack-token");
+        StateStore stateStoreMock = mock(StateStore.class);
+        when(stateStoreMock.getChannelIdToUserListMap()).thenReturn(Map.of("channel1", List.of("123456", "343434"),
+                "channel2", List.of("555555", "666666")));
+        when(stateStoreMock.getUserForEachChannelWhoLastRanStandup()).thenReturn(Map.of());
+        when(stateStoreMock.getSprintStartDate()).thenReturn(LocalDate.now().minus(13, ChronoUnit.DAYS));
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        when(standupSallySlackApiInvokerMock.informStandupRunner(anyMap(), eq("slack-token"))).thenReturn(Map.of(
+                "channel1", StandupAnnouncementResult.success("channel1", "123456"),
+                "channel2", StandupAnnouncementResult.failure("channel2", "555555", "channel_not_found")));
+
+        new StandupSally(secretUtilsMock,
+                standupSallySlackApiInvokerMock,
+                mock(SecretManagerClientHolder.class),
+                stateStoreMock).service(mock(HttpRequest.class), httpResponseMock);
+        httpResponseMock.getWriter().flush();
+
+        assertTrue(responseBody.toString().contains("channel2=channel_not_found"));
+        assertFalse(responseBody.toString().contains("channel1"));
+    }
 }
@@ -0,0 +1,106 @@
+package com.redletra.standupsally.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MetricsRegistryTest {
+
+    private static final Gson gson = new Gson();
+
+    @Test
+    void bucketBoundsTest() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int index = Timer.bucketIndex(micros);
+            assertTrue(micros <= Timer.bucketUpperBoundMicros(index), "upper bound of " + micros);
+            assertTrue(index == 0 || micros > Timer.bucketUpperBoundMicros(index - 1), "lower bound of " + micros);
+        }
+        // within 25% of the true value
+        assertEquals(1279, Timer.bucketUpperBoundMicros(Timer.bucketIndex(1024)));
+    }
+
+    @Test
+    void percentilesTest() {
+        Timer timer = new Timer();
+        for (int millis = 1; millis <= 100; millis++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        Timer.Snapshot snapshot = timer.snapshotThenReset();
+        assertEquals(100, snapshot.count);
+        assertEquals(5_050_000, snapshot.sumMicros);
+        assertEquals(100_000, snapshot.maxMicros);
+        assertBetween(50_000, 62_500, snapshot.percentileMicros(50));
+        assertBetween(99_000, 100_000, snapshot.percentileMicros(99));
+        assertEquals(100_000, snapshot.percentileMicros(100));
+
+        // reset for the next interval
+        assertEquals(0, timer.snapshotThenReset().count);
+    }
+
+    @Test
+    void reportIfDueWritesOnceAnIntervalTest() {
+        AtomicLong millis = new AtomicLong();
+        Clock clockMock = mock(Clock.class);
+        when(clockMock.millis()).thenAnswer(invocation -> millis.get());
+        when(clockMock.instant()).thenAnswer(invocation -> Instant.ofEpochMilli(millis.get()));
+        List<String> reportLines = new ArrayList<>();
+        MetricsRegistry metricsRegistry = new MetricsRegistry(Duration.ofMinutes(1), clockMock, reportLines::add);
+
+        metricsRegistry.time("listener.body_parse", () -> {});
+        metricsRegistry.counter("listener.rejected").add(3);
+        metricsRegistry.counter("listener.events_queued");
+        metricsRegistry.gauge("slack.queue_depth", () -> 7);
+
+        metricsRegistry.reportIfDue();
+        assertTrue(reportLines.isEmpty());
+
+        millis.addAndGet(Duration.ofMinutes(1).toMillis());
+        metricsRegistry.reportIfDue();
+        // untouched counters are left out
+        assertEquals(3, reportLines.size());
+        JsonObject timerLine = gson.fromJson(reportLines.get(0), JsonObject.class);
+        assertEquals("listener.body_parse", timerLine.get("metric").getAsString());
+        assertEquals("timer", timerLine.get("type").getAsString());
+        assertEquals(1, timerLine.get("count").getAsLong());
+        assertTrue(timerLine.has("p99_us"));
+        JsonObject counterLine = gson.fromJson(reportLines.get(1), JsonObject.class);
+        assertEquals("listener.rejected", counterLine.get("metric").getAsString());
+        assertEquals(3, counterLine.get("count").getAsLong());
+        JsonObject gaugeLine = gson.fromJson(reportLines.get(2), JsonObject.class);
+        assertEquals(7, gaugeLine.get("value").getAsLong());
+
+        // nothing recorded since, only the gauge is reported
+        reportLines.clear();
+        millis.addAndGet(Duration.ofMinutes(1).toMillis());
+        metricsRegistry.reportIfDue();
+        assertEquals(1, reportLines.size());
+    }
+
+    @Test
+    void timeRecordsFailuresTest() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry(Duration.ofMinutes(1), Clock.systemUTC(), line -> {});
+
+        assertThrows(IllegalStateException.class, () -> metricsRegistry.time("secret_utils.getSlackToken", () -> {
+            throw new IllegalStateException("unavailable");
+        }));
+        assertEquals("token", metricsRegistry.time("secret_utils.getSlackToken", () -> "token"));
+
+        assertEquals(2, metricsRegistry.timer("secret_utils.getSlackToken").snapshotThenReset().count);
+    }
+
+    private static void assertBetween(long lower, long upper, long actual) {
+        assertTrue(actual >= lower && actual <= upper, actual + " not between " + lower + " and " + upper);
+    }
+}
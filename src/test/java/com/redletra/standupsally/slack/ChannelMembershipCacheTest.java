@@ -0,0 +1,83 @@
+package com.redletra.standupsally.slack;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChannelMembershipCacheTest {
+
+    @Test
+    void joinsAndLeavesAreAppliedToCachedMembersTest() {
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "token"))
+                .thenReturn(List.of("U1", "U2"));
+        ChannelMembershipCache channelMembershipCache = new ChannelMembershipCache(standupSallySlackApiInvokerMock);
+
+        assertEquals(List.of("U1", "U2"), channelMembershipCache.getMembers("channel1", "token"));
+        assertEquals(List.of("U1", "U2"), channelMembershipCache.getMembers("channel1", "token"));
+
+        channelMembershipCache.memberJoined("channel1", "U3");
+        channelMembershipCache.memberLeft("channel1", "U1");
+        assertEquals(List.of("U2", "U3"), channelMembershipCache.getMembers("channel1", "token"));
+        // without fetching the channel again
+        verify(standupSallySlackApiInvokerMock, times(1)).getSlackUsersForChannel("channel1", "token");
+    }
+
+    @Test
+    void changesToChannelsNotYetFetchedAreLeftToTheFetchTest() {
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "token"))
+                .thenReturn(List.of("U1", "U3"));
+        ChannelMembershipCache channelMembershipCache = new ChannelMembershipCache(standupSallySlackApiInvokerMock);
+
+        channelMembershipCache.memberJoined("channel1", "U3");
+        assertEquals(List.of("U1", "U3"), channelMembershipCache.getMembers("channel1", "token"));
+    }
+
+    @Test
+    void fetchOverlappingAJoinIsNotCachedTest() {
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        ChannelMembershipCache channelMembershipCache = new ChannelMembershipCache(standupSallySlackApiInvokerMock);
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "token"))
+                .thenAnswer(invocation -> {
+                    // U3 joins while the members are being fetched, they may not be in the list
+                    channelMembershipCache.memberJoined("channel1", "U3");
+                    return List.of("U1", "U2");
+                })
+                .thenReturn(List.of("U1", "U2", "U3"));
+
+        assertEquals(List.of("U1", "U2"), channelMembershipCache.getMembers("channel1", "token"));
+        assertEquals(List.of("U1", "U2", "U3"), channelMembershipCache.getMembers("channel1", "token"));
+        assertEquals(List.of("U1", "U2", "U3"), channelMembershipCache.getMembers("channel1", "token"));
+        verify(standupSallySlackApiInvokerMock, times(2)).getSlackUsersForChannel("channel1", "token");
+    }
+
+    @Test
+    void membersAreFetchedAgainAfterReconcileIntervalTest() {
+        Clock clockMock = mock(Clock.class);
+        Instant start = Instant.parse("2022-03-28T09:00:00Z");
+        when(clockMock.instant()).thenReturn(start,
+                start.plusSeconds(60),
+                start.plusSeconds(901),
+                start.plusSeconds(901));
+        StandupSallySlackApiInvoker standupSallySlackApiInvokerMock = mock(StandupSallySlackApiInvoker.class);
+        when(standupSallySlackApiInvokerMock.getSlackUsersForChannel("channel1", "token"))
+                .thenReturn(List.of("U1"), List.of("U1", "U9"));
+        ChannelMembershipCache channelMembershipCache = new ChannelMembershipCache(standupSallySlackApiInvokerMock,
+                Duration.ofMinutes(15),
+                clockMock);
+
+        assertEquals(List.of("U1"), channelMembershipCache.getMembers("channel1", "token"));
+        // within the interval
+        assertEquals(List.of("U1"), channelMembershipCache.getMembers("channel1", "token"));
+        // U9 joined through an event another instance handled
+        assertEquals(List.of("U1", "U9"), channelMembershipCache.getMembers("channel1", "token"));
+        verify(standupSallySlackApiInvokerMock, times(2)).getSlackUsersForChannel("channel1", "token");
+    }
+}
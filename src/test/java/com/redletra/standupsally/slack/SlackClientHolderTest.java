@@ -0,0 +1,36 @@
+package com.redletra.standupsally.slack;
+
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SlackClientHolderTest {
+
+    @Test
+    void clientsAreReusedTest() {
+        SlackClientHolder.HttpClientFactory httpClientFactoryMock = mock(SlackClientHolder.HttpClientFactory.class);
+        when(httpClientFactoryMock.create()).thenReturn(new OkHttpClient.Builder().build());
+
+        SlackClientHolder slackClientHolder = new SlackClientHolder(httpClientFactoryMock);
+
+        assertSame(slackClientHolder.httpClient(), slackClientHolder.httpClient());
+        assertSame(slackClientHolder.methods(), slackClientHolder.methods());
+        verify(httpClientFactoryMock, times(1)).create();
+    }
+
+    @Test
+    void closeReleasesClientTest() {
+        SlackClientHolder.HttpClientFactory httpClientFactoryMock = mock(SlackClientHolder.HttpClientFactory.class);
+        when(httpClientFactoryMock.create()).thenReturn(new OkHttpClient.Builder().build(), new OkHttpClient.Builder().build());
+
+        SlackClientHolder slackClientHolder = new SlackClientHolder(httpClientFactoryMock);
+        OkHttpClient closedHttpClient = slackClientHolder.httpClient();
+        slackClientHolder.close();
+
+        assertTrue(closedHttpClient.dispatcher().executorService().isShutdown());
+        assertNotSame(closedHttpClient, slackClientHolder.httpClient());
+        verify(httpClientFactoryMock, times(2)).create();
+    }
+}
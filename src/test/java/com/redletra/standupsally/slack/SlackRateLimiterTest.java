@@ -0,0 +1,186 @@
+package com.redletra.standupsally.slack;
+
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.redletra.standupsally.utils.SlackRateLimitedException;
+import com.slack.api.methods.SlackApiException;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SlackRateLimiterTest {
+
+    private final Instant farDeadline = Instant.now().plusSeconds(60);
+
+    @Test
+    void rateLimitedCallIsRetriedTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new SlackRateLimitedException("rate limited", Duration.ZERO);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertEquals(0, slackRateLimiter.getQueueDepth());
+    }
+
+    @Test
+    void slackApiExceptionsTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+        Response tooManyRequests = mock(Response.class);
+        when(tooManyRequests.code()).thenReturn(429);
+        when(tooManyRequests.header("Retry-After")).thenReturn("0");
+        Response forbidden = mock(Response.class);
+        when(forbidden.code()).thenReturn(403);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("ok", slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new SlackApiException(tooManyRequests, "{\"ok\": false, \"error\": \"ratelimited\"}");
+            }
+            return "ok";
+        }));
+
+        // client errors are not retried
+        attempts.set(0);
+        assertThrows(SlackApiCallException.class, () -> slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            attempts.incrementAndGet();
+            throw new SlackApiException(forbidden, "{\"ok\": false, \"error\": \"not_allowed\"}");
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(SlackApiCallException.class, () -> slackRateLimiter.call(SlackRateLimiter.Tier.TIER_4, farDeadline, "test call", () -> {
+            attempts.incrementAndGet();
+            throw new IOException("connection reset");
+        }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void postMessageIsOnlyRetriedWhenNeverSentTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+        Response serverError = mock(Response.class);
+        when(serverError.code()).thenReturn(503);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // the message may have been posted before the 5xx or the dropped connection
+        assertThrows(SlackApiCallException.class, () -> slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            attempts.incrementAndGet();
+            throw new SlackApiException(serverError, "");
+        }));
+        assertEquals(1, attempts.get());
+        attempts.set(0);
+        assertThrows(SlackApiCallException.class, () -> slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            attempts.incrementAndGet();
+            throw new SocketTimeoutException("timeout");
+        }));
+        assertEquals(1, attempts.get());
+
+        // a connection which was never made is safe to retry
+        attempts.set(0);
+        assertEquals("ok", slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ConnectException("connection refused");
+            }
+            return "ok";
+        }));
+        assertEquals(2, attempts.get());
+
+        // reads are retried on a 5xx
+        attempts.set(0);
+        assertEquals("ok", slackRateLimiter.call(SlackRateLimiter.Tier.TIER_2, farDeadline, "test call", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new SlackApiException(serverError, "");
+            }
+            return "ok";
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void givesUpRatherThanMissDeadlineTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+
+        SlackApiCallException exception = assertThrows(SlackApiCallException.class, () ->
+                slackRateLimiter.call(SlackRateLimiter.Tier.TIER_2, Instant.now().plusSeconds(1), "test call", () -> {
+                    throw new SlackRateLimitedException("rate limited", Duration.ofSeconds(30));
+                }));
+        assertTrue(exception.getMessage().contains("deadline"));
+    }
+
+    @Test
+    void callGivingUpOnItsDeadlineGivesBackItsTokenTest() {
+        SlackRateLimiter slackRateLimiter = new SlackRateLimiter(3, Duration.ofMillis(1));
+        // the burst, after which a call is allowed every 200ms
+        for (int i = 0; i < 20; i++) {
+            slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE, farDeadline, "test call", () -> "ok");
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThrows(SlackApiCallException.class, () -> slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE,
+                    Instant.now().plusMillis(100), "test call", () -> "ok"));
+        }
+
+        // not queued behind the calls which were never made
+        assertEquals("ok", slackRateLimiter.call(SlackRateLimiter.Tier.POST_MESSAGE,
+                Instant.now().plusMillis(500), "test call", () -> "ok"));
+    }
+
+    @Test
+    void tokenBucketRefundTest() {
+        AtomicLong nanoTime = new AtomicLong();
+        TokenBucket tokenBucket = new TokenBucket(60, 1, nanoTime::get);
+
+        // never fills beyond the burst
+        tokenBucket.refund();
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), tokenBucket.reserve());
+        // that call gave up, so the next one takes its turn rather than queueing behind it
+        tokenBucket.refund();
+        assertEquals(TimeUnit.SECONDS.toNanos(1), tokenBucket.reserve());
+    }
+
+    @Test
+    void tokenBucketPacesCallsTest() {
+        AtomicLong nanoTime = new AtomicLong();
+        // one a second, with a burst of two
+        TokenBucket tokenBucket = new TokenBucket(60, 2, nanoTime::get);
+
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), tokenBucket.reserve());
+        // reservations queue up behind each other
+        assertEquals(TimeUnit.SECONDS.toNanos(2), tokenBucket.reserve());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        tokenBucket.pauseFor(Duration.ofSeconds(5));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), tokenBucket.reserve());
+    }
+
+    @Test
+    void retryAfterTest() {
+        assertEquals(Duration.ofSeconds(30), SlackRateLimiter.retryAfter("30"));
+        assertEquals(Duration.ofSeconds(1), SlackRateLimiter.retryAfter(null));
+        assertEquals(Duration.ofSeconds(1), SlackRateLimiter.retryAfter("soon"));
+    }
+}
@@ -0,0 +1,230 @@
+package com.redletra.standupsally.slack;
+
+import com.redletra.standupsally.utils.SlackApiCallException;
+import com.slack.api.RequestConfigurator;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.request.chat.ChatPostMessageRequest;
+import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class StandupSallySlackApiInvokerTest {
+
+    @Test
+    void readConversationMembersPageTest() throws IOException {
+        List<String> members = new ArrayList<>();
+
+        String nextCursor = StandupSallySlackApiInvoker.readConversationMembersPage(new StringReader(
+                "{\"ok\": true, \"members\": [\"U023BECGF\", \"U061F7AUR\"], \"warning\": {\"detail\": \"ignored\"}," +
+                        " \"response_metadata\": {\"next_cursor\": \"e3VzZXJfaWQ6IFcxMjM0NTY3fQ==\"}}"), members);
+        assertEquals("e3VzZXJfaWQ6IFcxMjM0NTY3fQ==", nextCursor);
+
+        nextCursor = StandupSallySlackApiInvoker.readConversationMembersPage(new StringReader(
+                "{\"ok\": true, \"members\": [\"W012A3CDE\"], \"response_metadata\": {\"next_cursor\": \"\"}}"), members);
+        assertEquals("", nextCursor);
+        assertEquals(List.of("U023BECGF", "U061F7AUR", "W012A3CDE"), members);
+    }
+
+    @Test
+    void readConversationMembersPageErrorTest() {
+        SlackApiCallException exception = assertThrows(SlackApiCallException.class, () ->
+                StandupSallySlackApiInvoker.readConversationMembersPage(
+                        new StringReader("{\"ok\": false, \"error\": \"channel_not_found\"}"), new ArrayList<>()));
+        assertTrue(exception.getMessage().contains("channel_not_found"));
+    }
+
+    @Test
+    void getSlackUsersForChannelFollowsCursorTest() throws IOException {
+        OkHttpClient httpClientMock = mock(OkHttpClient.class);
+        Call firstPageCall = pageCall("{\"ok\": true, \"members\": [\"U1\", \"U2\"], \"response_metadata\": {\"next_cursor\": \"abc=\"}}");
+        Call lastPageCall = pageCall("{\"ok\": true, \"members\": [\"U3\"], \"response_metadata\": {\"next_cursor\": \"\"}}");
+        when(httpClientMock.newCall(any(Request.class))).thenReturn(firstPageCall, lastPageCall);
+
+        StandupSallySlackApiInvoker standupSallySlackApiInvoker = new StandupSallySlackApiInvoker(1,
+                new SlackClientHolder(() -> httpClientMock));
+
+        assertEquals(List.of("U1", "U2", "U3"), standupSallySlackApiInvoker.getSlackUsersForChannel("channel1", "token", 2));
+        verify(httpClientMock, times(2)).newCall(any(Request.class));
+    }
+
+    @Test
+    void getSlackUsersForChannelHttpErrorTest() throws IOException {
+        OkHttpClient httpClientMock = mock(OkHttpClient.class);
+        Call call = mock(Call.class);
+        Response response = mock(Response.class);
+        when(response.isSuccessful()).thenReturn(false);
+        when(response.code()).thenReturn(403);
+        when(call.execute()).thenReturn(response);
+        when(httpClientMock.newCall(any(Request.class))).thenReturn(call);
+
+        StandupSallySlackApiInvoker standupSallySlackApiInvoker = new StandupSallySlackApiInvoker(1,
+                new SlackClientHolder(() -> httpClientMock));
+
+        assertThrows(SlackApiCallException.class, () -> standupSallySlackApiInvoker.getSlackUsersForChannel("channel1", "token"));
+        // not worth retrying
+        verify(httpClientMock, times(1)).newCall(any(Request.class));
+    }
+
+    @Test
+    void getSlackUsersForChannelRetriesRateLimitedPageTest() throws IOException {
+        OkHttpClient httpClientMock = mock(OkHttpClient.class);
+        Call rateLimitedCall = mock(Call.class);
+        Response rateLimitedResponse = mock(Response.class);
+        when(rateLimitedResponse.code()).thenReturn(429);
+        when(rateLimitedResponse.header("Retry-After")).thenReturn("0");
+        when(rateLimitedCall.execute()).thenReturn(rateLimitedResponse);
+        Call pageCall = pageCall("{\"ok\": true, \"members\": [\"U1\"], \"response_metadata\": {\"next_cursor\": \"\"}}");
+        when(httpClientMock.newCall(any(Request.class))).thenReturn(rateLimitedCall, pageCall);
+
+        StandupSallySlackApiInvoker standupSallySlackApiInvoker = new StandupSallySlackApiInvoker(1,
+                new SlackClientHolder(() -> httpClientMock),
+                new SlackRateLimiter(3, Duration.ofMillis(1)));
+
+        assertEquals(List.of("U1"), standupSallySlackApiInvoker.getSlackUsersForChannel("channel1", "token"));
+        verify(httpClientMock, times(2)).newCall(any(Request.class));
+    }
+
+    private static Call pageCall(String page) throws IOException {
+        Call call = mock(Call.class);
+        Response response = mock(Response.class);
+        ResponseBody responseBody = mock(ResponseBody.class);
+        when(responseBody.charStream()).thenReturn(new StringReader(page));
+        when(response.isSuccessful()).thenReturn(true);
+        when(response.body()).thenReturn(responseBody);
+        when(call.execute()).thenReturn(response);
+        return call;
+    }
+
+    @Test
+    void informStandupRunnerDoesNotWaitOnSlowChannelTest() throws Exception {
+        CountDownLatch fastChannelsAnnounced = new CountDownLatch(2);
+        MethodsClient methodsClientMock = methodsClient(channelId -> {
+            if (channelId.equals("slow")) {
+                // only finishes once both other channels have been announced, so they can't be queued behind it
+                assertTrue(fastChannelsAnnounced.await(5, TimeUnit.SECONDS));
+            } else {
+                fastChannelsAnnounced.countDown();
+            }
+            return okResponse();
+        });
+
+        Map<String, StandupAnnouncementResult> channelIdToResult = invoker(methodsClientMock, 2, Duration.ofSeconds(10))
+                .informStandupRunner(Map.of("slow", "U1", "fast1", "U2", "fast2", "U3"), "token");
+
+        assertEquals(3, channelIdToResult.size());
+        assertTrue(channelIdToResult.values().stream().allMatch(StandupAnnouncementResult::isSuccess));
+    }
+
+    @Test
+    void informStandupRunnerCollectsFailuresTest() throws Exception {
+        MethodsClient methodsClientMock = methodsClient(channelId -> {
+            if (channelId.equals("archived")) {
+                ChatPostMessageResponse response = new ChatPostMessageResponse();
+                response.setOk(false);
+                response.setError("is_archived");
+                return response;
+            }
+            if (channelId.equals("broken")) {
+                throw new IllegalStateException("unexpected");
+            }
+            return okResponse();
+        });
+
+        Map<String, StandupAnnouncementResult> channelIdToResult = invoker(methodsClientMock, 2, Duration.ofSeconds(10))
+                .informStandupRunner(Map.of("archived", "U1", "broken", "U2", "ok", "U3"), "token");
+
+        assertTrue(channelIdToResult.get("ok").isSuccess());
+        assertEquals("is_archived", channelIdToResult.get("archived").getError().get());
+        assertEquals("U1", channelIdToResult.get("archived").getUserId());
+        // an unexpected exception fails its own channel, not the whole run
+        assertTrue(channelIdToResult.get("broken").getError().get().contains("unexpected"));
+    }
+
+    @Test
+    void appMentionActionFeedbackChecksTheResponseTest() throws Exception {
+        MethodsClient methodsClientMock = methodsClient(channelId -> {
+            if (channelId.equals("archived")) {
+                ChatPostMessageResponse response = new ChatPostMessageResponse();
+                response.setOk(false);
+                response.setError("is_archived");
+                return response;
+            }
+            return okResponse();
+        });
+        StandupSallySlackApiInvoker invoker = invoker(methodsClientMock, 1, Duration.ofSeconds(10));
+
+        assertTrue(invoker.appMentionActionFeedback("Standup Sally says welcome <@U1>", "token", "ok"));
+        // slack answers, but didn't post it
+        assertFalse(invoker.appMentionActionFeedback("Standup Sally says welcome <@U1>", "token", "archived"));
+    }
+
+    @Test
+    void informStandupRunnerTimesOutHungChannelTest() throws Exception {
+        CountDownLatch hungCallInterrupted = new CountDownLatch(1);
+        MethodsClient methodsClientMock = methodsClient(channelId -> {
+            if (channelId.equals("hung")) {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    hungCallInterrupted.countDown();
+                    throw e;
+                }
+            }
+            return okResponse();
+        });
+
+        Map<String, StandupAnnouncementResult> channelIdToResult = invoker(methodsClientMock, 2, Duration.ofMillis(200))
+                .informStandupRunner(Map.of("hung", "U1", "ok", "U2"), "token");
+
+        assertTrue(channelIdToResult.get("ok").isSuccess());
+        assertEquals("timed out", channelIdToResult.get("hung").getError().get());
+        // the hung call doesn't keep holding one of the announcement threads
+        assertTrue(hungCallInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private interface ChannelPost {
+        ChatPostMessageResponse post(String channelId) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MethodsClient methodsClient(ChannelPost channelPost) throws Exception {
+        MethodsClient methodsClientMock = mock(MethodsClient.class);
+        when(methodsClientMock.chatPostMessage(any(RequestConfigurator.class))).thenAnswer(invocation -> {
+            RequestConfigurator<ChatPostMessageRequest.ChatPostMessageRequestBuilder> configurator = invocation.getArgument(0);
+            return channelPost.post(configurator.configure(ChatPostMessageRequest.builder()).build().getChannel());
+        });
+        return methodsClientMock;
+    }
+
+    private static StandupSallySlackApiInvoker invoker(MethodsClient methodsClient, int concurrency, Duration timeout) {
+        SlackClientHolder slackClientHolderMock = mock(SlackClientHolder.class);
+        when(slackClientHolderMock.methods()).thenReturn(methodsClient);
+        return new StandupSallySlackApiInvoker(concurrency,
+                slackClientHolderMock,
+                new SlackRateLimiter(1, Duration.ofMillis(1)),
+                timeout);
+    }
+
+    private static ChatPostMessageResponse okResponse() {
+        ChatPostMessageResponse response = new ChatPostMessageResponse();
+        response.setOk(true);
+        return response;
+    }
+}
@@ -0,0 +1,31 @@
+package com.redletra.standupsally.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    void addingAShardOnlyMovesChannelsToItTest() {
+        ConsistentHashRing fourShards = new ConsistentHashRing(4, 64);
+        ConsistentHashRing fiveShards = new ConsistentHashRing(5, 64);
+
+        long moved = IntStream.range(0, 10_000)
+                .mapToObj(channel -> "C" + channel)
+                .filter(channelId -> fourShards.shardFor(channelId) != fiveShards.shardFor(channelId))
+                .peek(channelId -> assertEquals(4, fiveShards.shardFor(channelId)))
+                .count();
+
+        // about a fifth of the channels move, rather than most of them as with hash modulo shard count
+        assertTrue(moved > 1_000 && moved < 3_000, "moved " + moved);
+    }
+
+    @Test
+    void singleShardOwnsEverythingTest() {
+        ConsistentHashRing oneShard = new ConsistentHashRing(1, 64);
+        IntStream.range(0, 100).forEach(channel -> assertEquals(0, oneShard.shardFor("C" + channel)));
+    }
+}
@@ -0,0 +1,177 @@
+package com.redletra.standupsally.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStructuredStateStoreTest {
+
+    private static final LocalDate SPRINT_START_DATE = LocalDate.of(2022, 1, 3);
+
+    @Test
+    void stateIsRebuiltFromTheLogAfterReopeningTest() throws Exception {
+        Path directory = Files.createTempDirectory("standup-state-log");
+
+        LogStructuredStateStore stateStore = new LogStructuredStateStore(new FileMutationLog(directory), () -> SPRINT_START_DATE);
+        assertTrue(stateStore.getChannelIdToUserListMap().isEmpty());
+        assertTrue(stateStore.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.put("channel1", new ArrayList<>(List.of("U1", "U2")));
+            return Optional.of(channelIdToUserList);
+        }));
+        assertTrue(stateStore.updateUserForEachChannelWhoLastRanStandup(lastUserMap -> {
+            lastUserMap.put("channel1", "U2:1");
+            return Optional.of(lastUserMap);
+        }));
+        // nothing to write, and a mutation which changes nothing writes nothing either
+        assertFalse(stateStore.updateUserForEachChannelWhoLastRanStandup(lastUserMap -> Optional.empty()));
+        assertFalse(stateStore.updateUserForEachChannelWhoLastRanStandup(Optional::of));
+
+        LogStructuredStateStore reopenedStateStore = new LogStructuredStateStore(new FileMutationLog(directory), () -> SPRINT_START_DATE);
+        assertEquals(Map.of("channel1", List.of("U1", "U2")), reopenedStateStore.getChannelIdToUserListMap());
+        assertEquals(Map.of("channel1", "U2:1"), reopenedStateStore.getUserForEachChannelWhoLastRanStandup());
+        assertEquals(SPRINT_START_DATE, reopenedStateStore.getSprintStartDate());
+        assertEquals(2, reopenedStateStore.replay(1).size());
+    }
+
+    @Test
+    void compactionSnapshotsTheStateAndTruncatesTheLogTest() throws Exception {
+        Path directory = Files.createTempDirectory("standup-state-log");
+        FileMutationLog mutationLog = new FileMutationLog(directory);
+        LogStructuredStateStore stateStore = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE, 3);
+
+        for (int i = 0; i < 5; i++) {
+            String userId = "U" + i;
+            stateStore.updateChannelIdToUserListMap(channelIdToUserList -> {
+                channelIdToUserList.computeIfAbsent("channel1", key -> new ArrayList<>()).add(userId);
+                return Optional.of(channelIdToUserList);
+            });
+        }
+
+        assertTrue(mutationLog.readSnapshot().isPresent());
+        assertTrue(mutationLog.read(1).isEmpty());
+        assertTrue(mutationLog.read(3).isEmpty());
+        assertEquals(5, mutationLog.latestSequence());
+
+        // numbering carries on after the snapshot when reopened
+        FileMutationLog reopenedMutationLog = new FileMutationLog(directory);
+        assertEquals(5, reopenedMutationLog.latestSequence());
+        LogStructuredStateStore reopenedStateStore = new LogStructuredStateStore(reopenedMutationLog, () -> SPRINT_START_DATE);
+        assertEquals(Map.of("channel1", List.of("U0", "U1", "U2", "U3", "U4")), reopenedStateStore.getChannelIdToUserListMap());
+        assertTrue(reopenedStateStore.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.get("channel1").remove("U0");
+            return Optional.of(channelIdToUserList);
+        }));
+        assertEquals(6, reopenedMutationLog.latestSequence());
+    }
+
+    @Test
+    void concurrentWritersBothKeepTheirChangesTest() throws Exception {
+        FileMutationLog mutationLog = new FileMutationLog(Files.createTempDirectory("standup-state-log"));
+        LogStructuredStateStore firstInstance = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE, 2);
+        LogStructuredStateStore secondInstance = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE, 2);
+
+        firstInstance.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.put("channel1", new ArrayList<>(List.of("U1")));
+            return Optional.of(channelIdToUserList);
+        });
+        // both instances see the same roster, then each adds a different user
+        assertEquals(firstInstance.getChannelIdToUserListMap(), secondInstance.getChannelIdToUserListMap());
+        firstInstance.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.get("channel1").add("U2");
+            return Optional.of(channelIdToUserList);
+        });
+        secondInstance.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.get("channel1").add("U3");
+            return Optional.of(channelIdToUserList);
+        });
+
+        // the first instance's next read catches up past the second's compaction
+        assertEquals(Map.of("channel1", List.of("U1", "U2", "U3")), firstInstance.getChannelIdToUserListMap());
+        assertEquals(Map.of("channel1", List.of("U1", "U2", "U3")), secondInstance.getChannelIdToUserListMap());
+    }
+
+    @Test
+    void emptyLogIsSeededOnceTest() throws Exception {
+        FileMutationLog mutationLog = new FileMutationLog(Files.createTempDirectory("standup-state-log"));
+        InMemoryStateStore existingState = new InMemoryStateStore(
+                Map.of("channel1", List.of("U1", "U2")), Map.of("channel1", "U1:0"), SPRINT_START_DATE);
+        LogStructuredStateStore stateStore = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE, existingState);
+
+        assertEquals(Map.of("channel1", List.of("U1", "U2")), stateStore.getChannelIdToUserListMap());
+        assertEquals(Map.of("channel1", "U1:0"), stateStore.getUserForEachChannelWhoLastRanStandup());
+        assertEquals(1, mutationLog.latestSequence());
+
+        // another instance starting later finds the log already has state
+        InMemoryStateStore staleState = new InMemoryStateStore(Map.of("channel1", List.of("U9")), Map.of(), SPRINT_START_DATE);
+        LogStructuredStateStore laterInstance = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE, staleState);
+        assertEquals(Map.of("channel1", List.of("U1", "U2")), laterInstance.getChannelIdToUserListMap());
+        assertEquals(1, mutationLog.latestSequence());
+    }
+
+    @Test
+    void onlyTheFirstSeedIsAppliedTest() throws Exception {
+        FileMutationLog mutationLog = new FileMutationLog(Files.createTempDirectory("standup-state-log"));
+        LogStructuredStateStore firstInstance = new LogStructuredStateStore(mutationLog, () -> SPRINT_START_DATE,
+                new InMemoryStateStore(Map.of("channel1", List.of("U1")), Map.of(), SPRINT_START_DATE));
+        assertEquals(Map.of("channel1", List.of("U1")), firstInstance.getChannelIdToUserListMap());
+
+        // the second instance found the log empty just before the first seeded it, and seeds it again from older state
+        LogStructuredStateStore secondInstance = new LogStructuredStateStore(laggingView(mutationLog), () -> SPRINT_START_DATE,
+                new InMemoryStateStore(Map.of("channel1", List.of("U9")), Map.of(), SPRINT_START_DATE));
+        assertEquals(Map.of("channel1", List.of("U1")), secondInstance.getChannelIdToUserListMap());
+        assertEquals(2, mutationLog.latestSequence());
+
+        assertTrue(firstInstance.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.get("channel1").add("U2");
+            return Optional.of(channelIdToUserList);
+        }));
+        assertEquals(Map.of("channel1", List.of("U1", "U2")), firstInstance.getChannelIdToUserListMap());
+        assertEquals(Map.of("channel1", List.of("U1", "U2")), secondInstance.getChannelIdToUserListMap());
+    }
+
+    /*
+        the log, except the first latestSequence call says it is empty
+     */
+    private static MutationLog laggingView(MutationLog mutationLog) {
+        return new MutationLog() {
+            private boolean lagging = true;
+
+            @Override
+            public long append(String record) {
+                return mutationLog.append(record);
+            }
+
+            @Override
+            public long latestSequence() {
+                if (lagging) {
+                    lagging = false;
+                    return 0;
+                }
+                return mutationLog.latestSequence();
+            }
+
+            @Override
+            public Optional<String> read(long sequence) {
+                return mutationLog.read(sequence);
+            }
+
+            @Override
+            public Optional<String> readSnapshot() {
+                return mutationLog.readSnapshot();
+            }
+
+            @Override
+            public void compact(String snapshot, long throughSequence) {
+                mutationLog.compact(snapshot, throughSequence);
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.redletra.standupsally.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileStateStoreTest {
+
+    @Test
+    void updatesAreVisibleAfterReopeningTest() throws Exception {
+        Path file = Files.createTempDirectory("standup-state").resolve("state.bin");
+        LocalDate sprintStartDate = LocalDate.of(2022, 1, 3);
+
+        try (MappedFileStateStore stateStore = new MappedFileStateStore(file, sprintStartDate)) {
+            assertTrue(stateStore.getChannelIdToUserListMap().isEmpty());
+            assertTrue(stateStore.updateChannelIdToUserListMap(channelIdToUserList -> {
+                channelIdToUserList.put("channel1", List.of("U1", "U2"));
+                return Optional.of(channelIdToUserList);
+            }));
+            assertTrue(stateStore.updateUserForEachChannelWhoLastRanStandup(lastUserMap -> {
+                lastUserMap.put("channel1", "U2");
+                return Optional.of(lastUserMap);
+            }));
+            // nothing to write
+            assertFalse(stateStore.updateUserForEachChannelWhoLastRanStandup(lastUserMap -> Optional.empty()));
+        }
+
+        try (MappedFileStateStore stateStore = new MappedFileStateStore(file, sprintStartDate)) {
+            assertEquals(Map.of("channel1", List.of("U1", "U2")), stateStore.getChannelIdToUserListMap());
+            assertEquals(Map.of("channel1", "U2"), stateStore.getUserForEachChannelWhoLastRanStandup());
+            assertEquals(sprintStartDate, stateStore.getSprintStartDate());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.redletra.standupsally.state;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.FailedPreconditionException;
+import com.google.api.gax.rpc.NotFoundException;
+import com.google.cloud.secretmanager.v1.*;
+import com.google.protobuf.ByteString;
+import com.redletra.standupsally.utils.Constants;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SecretManagerMutationLogTest {
+
+    private static final LocalDate SPRINT_START_DATE = LocalDate.of(2022, 1, 3);
+
+    @Test
+    void lateCompactionDoesNotDestroyASnapshotCoveringMoreTest() throws Exception {
+        FakeSecretManager secretManager = new FakeSecretManager();
+        SecretManagerMutationLog mutationLog = secretManager.mutationLog();
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, mutationLog.append("record" + i));
+        }
+
+        // the instance which caught up furthest compacts first, one which read less compacts after it
+        mutationLog.compact("through 5", 5);
+        mutationLog.compact("through 3", 3);
+
+        // the newest snapshot version covers less, so it isn't the one read
+        assertEquals(Optional.of("through 5"), mutationLog.readSnapshot());
+        assertEquals(Optional.empty(), mutationLog.read(5));
+        assertEquals(5, mutationLog.latestSequence());
+        assertEquals(6, mutationLog.append("record6"));
+        assertEquals(Optional.of("record6"), mutationLog.read(6));
+
+        // the next compaction covers both, and clears them away
+        mutationLog.compact("through 6", 6);
+        assertEquals(Optional.of("through 6"), mutationLog.readSnapshot());
+        assertEquals(1, secretManager.enabledVersions(Constants.STATE_SNAPSHOT_SECRET_NAME).size());
+        assertTrue(secretManager.enabledVersions(Constants.STATE_LOG_SECRET_NAME).isEmpty());
+    }
+
+    @Test
+    void compactionOnlyDestroysRecordsItsSnapshotCoversTest() throws Exception {
+        FakeSecretManager secretManager = new FakeSecretManager();
+        SecretManagerMutationLog mutationLog = secretManager.mutationLog();
+        for (int i = 1; i <= 4; i++) {
+            mutationLog.append("record" + i);
+        }
+
+        mutationLog.compact("through 2", 2);
+
+        assertEquals(Optional.empty(), mutationLog.read(2));
+        assertEquals(Optional.of("record3"), mutationLog.read(3));
+        assertEquals(List.of(3L, 4L), secretManager.enabledVersions(Constants.STATE_LOG_SECRET_NAME));
+    }
+
+    @Test
+    void instancesCompactingConcurrentlyRecoverTheSameStateTest() throws Exception {
+        FakeSecretManager secretManager = new FakeSecretManager();
+        LogStructuredStateStore firstInstance = new LogStructuredStateStore(secretManager.mutationLog(), () -> SPRINT_START_DATE, 2);
+        LogStructuredStateStore secondInstance = new LogStructuredStateStore(secretManager.mutationLog(), () -> SPRINT_START_DATE, 3);
+
+        firstInstance.updateChannelIdToUserListMap(channelIdToUserList -> {
+            channelIdToUserList.put("channel1", new ArrayList<>(List.of("U0")));
+            return Optional.of(channelIdToUserList);
+        });
+        // each instance adds users and compacts on its own schedule, reading what the other compacted away
+        for (int i = 1; i <= 6; i++) {
+            String userId = "U" + i;
+            LogStructuredStateStore instance = i % 2 == 0 ? firstInstance : secondInstance;
+            instance.updateChannelIdToUserListMap(channelIdToUserList -> {
+                channelIdToUserList.get("channel1").add(userId);
+                return Optional.of(channelIdToUserList);
+            });
+        }
+
+        Map<String, List<String>> expected = Map.of("channel1", List.of("U0", "U1", "U2", "U3", "U4", "U5", "U6"));
+        assertEquals(expected, firstInstance.getChannelIdToUserListMap());
+        assertEquals(expected, secondInstance.getChannelIdToUserListMap());
+        // a new instance recovers from the snapshot plus whatever records follow it
+        assertEquals(expected, new LogStructuredStateStore(secretManager.mutationLog(), () -> SPRINT_START_DATE)
+                .getChannelIdToUserListMap());
+        assertTrue(secretManager.enabledVersions(Constants.STATE_LOG_SECRET_NAME).size() < 7);
+    }
+
+    /*
+        the few Secret Manager calls the mutation log makes, over versions kept in memory
+     */
+    private static class FakeSecretManager {
+
+        private final Map<String, TreeMap<Long, ByteString>> secretIdToVersions = new HashMap<>();
+        private final Set<String> destroyedVersions = new HashSet<>();
+        private final SecretManagerServiceClient client = mock(SecretManagerServiceClient.class);
+        private final SecretUtils secretUtils = mock(SecretUtils.class);
+
+        private FakeSecretManager() {
+            when(secretUtils.createSecretIfMissing(any(), anyString())).thenAnswer(invocation ->
+                    secretIdToVersions.putIfAbsent(invocation.getArgument(1), new TreeMap<>()) == null);
+            when(client.addSecretVersion(any(SecretName.class), any(SecretPayload.class))).thenAnswer(invocation -> {
+                TreeMap<Long, ByteString> versions = versions(invocation.getArgument(0, SecretName.class).getSecret());
+                long versionNumber = versions.isEmpty() ? 1 : versions.lastKey() + 1;
+                versions.put(versionNumber, invocation.getArgument(1, SecretPayload.class).getData());
+                return secretVersion(invocation.getArgument(0, SecretName.class).getSecret(), versionNumber);
+            });
+            when(client.getSecretVersion(any(SecretVersionName.class))).thenAnswer(invocation -> {
+                SecretVersionName secretVersionName = invocation.getArgument(0);
+                TreeMap<Long, ByteString> versions = versions(secretVersionName.getSecret());
+                if (versions.isEmpty()) {
+                    throw notFound();
+                }
+                return secretVersion(secretVersionName.getSecret(), versions.lastKey());
+            });
+            when(client.accessSecretVersion(any(SecretVersionName.class))).thenAnswer(invocation -> {
+                SecretVersionName secretVersionName = invocation.getArgument(0);
+                TreeMap<Long, ByteString> versions = versions(secretVersionName.getSecret());
+                ByteString data = versions.get(Long.parseLong(secretVersionName.getSecretVersion()));
+                if (data == null) {
+                    throw notFound();
+                }
+                if (destroyedVersions.contains(secretVersionName.toString())) {
+                    throw new FailedPreconditionException(new RuntimeException("destroyed"), GrpcStatusCode.of(Status.Code.FAILED_PRECONDITION), false);
+                }
+                return AccessSecretVersionResponse.newBuilder()
+                        .setName(secretVersionName.toString())
+                        .setPayload(SecretPayload.newBuilder().setData(data).build())
+                        .build();
+            });
+            when(client.listSecretVersions(any(ListSecretVersionsRequest.class))).thenAnswer(invocation -> {
+                String secretId = SecretName.parse(invocation.getArgument(0, ListSecretVersionsRequest.class).getParent()).getSecret();
+                List<SecretVersion> enabledVersions = enabledVersions(secretId)
+                        .stream()
+                        .map(versionNumber -> secretVersion(secretId, versionNumber))
+                        .collect(Collectors.toList());
+                SecretManagerServiceClient.ListSecretVersionsPagedResponse pagedResponse =
+                        mock(SecretManagerServiceClient.ListSecretVersionsPagedResponse.class);
+                when(pagedResponse.iterateAll()).thenReturn(enabledVersions);
+                return pagedResponse;
+            });
+            when(client.destroySecretVersion(any(DestroySecretVersionRequest.class))).thenAnswer(invocation -> {
+                if (!destroyedVersions.add(invocation.getArgument(0, DestroySecretVersionRequest.class).getName())) {
+                    throw new FailedPreconditionException(new RuntimeException("already destroyed"), GrpcStatusCode.of(Status.Code.FAILED_PRECONDITION), false);
+                }
+                return SecretVersion.getDefaultInstance();
+            });
+        }
+
+        /*
+            each call is a separate instance of the log, as on separate function instances
+         */
+        private SecretManagerMutationLog mutationLog() throws Exception {
+            SecretManagerClientHolder secretManagerClientHolder = mock(SecretManagerClientHolder.class);
+            when(secretManagerClientHolder.get()).thenReturn(client);
+            return new SecretManagerMutationLog(secretUtils, secretManagerClientHolder);
+        }
+
+        private List<Long> enabledVersions(String secretId) {
+            return versions(secretId).keySet()
+                    .stream()
+                    .filter(versionNumber -> !destroyedVersions.contains(secretVersion(secretId, versionNumber).getName()))
+                    .collect(Collectors.toList());
+        }
+
+        private TreeMap<Long, ByteString> versions(String secretId) {
+            TreeMap<Long, ByteString> versions = secretIdToVersions.get(secretId);
+            if (versions == null) {
+                throw notFound();
+            }
+            return versions;
+        }
+
+        private static SecretVersion secretVersion(String secretId, long versionNumber) {
+            return SecretVersion.newBuilder()
+                    .setName(SecretVersionName.of(Constants.PROJECT_ID, secretId, String.valueOf(versionNumber)).toString())
+                    .build();
+        }
+
+        private static NotFoundException notFound() {
+            return new NotFoundException(new RuntimeException("not found"), GrpcStatusCode.of(Status.Code.NOT_FOUND), false);
+        }
+    }
+}
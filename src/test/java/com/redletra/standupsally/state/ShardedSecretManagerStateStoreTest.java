@@ -0,0 +1,90 @@
+package com.redletra.standupsally.state;
+
+import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
+import com.google.cloud.secretmanager.v1.SecretVersion;
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+import org.javatuples.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ShardedSecretManagerStateStoreTest {
+
+    // secret name -> roster held in that secret
+    private final Map<String, Map<String, List<String>>> secrets = new HashMap<>();
+    private final SecretUtils secretUtilsMock = mock(SecretUtils.class);
+    private Optional<String> rosterShardLayout = Optional.empty();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reshardMovesChannelsAndUpdatesOnlyTouchTheirShardTest() throws Exception {
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(secretManagerClientHolderMock.get()).thenReturn(clientMock);
+        fakeSecrets(clientMock);
+
+        Map<String, List<String>> roster = IntStream.range(0, 50)
+                .boxed()
+                .collect(Collectors.toMap(channel -> "C" + channel, channel -> List.of("U" + channel, "U" + (channel + 1))));
+        secrets.put(ShardedSecretManagerStateStore.shardSecretName(0), new HashMap<>(roster));
+
+        ShardedSecretManagerStateStore stateStore = new ShardedSecretManagerStateStore(secretUtilsMock,
+                secretManagerClientHolderMock,
+                Duration.ZERO);
+        stateStore.reshard(4);
+
+        assertEquals(Optional.of("shards=4"), rosterShardLayout);
+        ConsistentHashRing ring = new ConsistentHashRing(4, 64);
+        for (int shard = 0; shard < 4; shard++) {
+            int currentShard = shard;
+            Map<String, List<String>> shardMap = secrets.get(ShardedSecretManagerStateStore.shardSecretName(shard));
+            assertFalse(shardMap.isEmpty());
+            shardMap.keySet().forEach(channelId -> assertEquals(currentShard, ring.shardFor(channelId)));
+        }
+        assertEquals(roster, stateStore.getChannelIdToUserListMap());
+
+        // a join only rewrites the channel's own shard
+        clearInvocations(secretUtilsMock);
+        stateStore.updateChannelUserLists(Set.of("C7"), channels -> {
+            channels.get("C7").add("U99");
+            return Optional.of(channels);
+        });
+        verify(secretUtilsMock, times(1)).updateChannelIdToUserListMap(eq(clientMock),
+                eq(ShardedSecretManagerStateStore.shardSecretName(ring.shardFor("C7"))),
+                any(Function.class));
+        assertEquals(List.of("U7", "U8", "U99"), stateStore.getChannelIdToUserListMap().get("C7"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fakeSecrets(SecretManagerServiceClient clientMock) {
+        when(secretUtilsMock.getRosterShardLayout(clientMock)).thenAnswer(invocation -> rosterShardLayout);
+        doAnswer(invocation -> rosterShardLayout = Optional.of(invocation.getArgument(1)))
+                .when(secretUtilsMock).updateRosterShardLayout(eq(clientMock), anyString());
+        doAnswer(invocation -> secrets.putIfAbsent(invocation.getArgument(1), new HashMap<>()))
+                .when(secretUtilsMock).createChannelIdToUserListSecretIfMissing(eq(clientMock), anyString());
+        when(secretUtilsMock.getChannelIdToUserListMap(eq(clientMock), anyString())).thenAnswer(invocation ->
+                new Pair<>(copyOf(secrets.get(invocation.getArgument(1, String.class))), SecretVersion.getDefaultInstance()));
+        when(secretUtilsMock.updateChannelIdToUserListMap(eq(clientMock), anyString(), any(Function.class))).thenAnswer(invocation -> {
+            String secretName = invocation.getArgument(1);
+            Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> mutation = invocation.getArgument(2);
+            Optional<Map<String, List<String>>> updatedMap = mutation.apply(copyOf(secrets.get(secretName)));
+            updatedMap.ifPresent(map -> secrets.put(secretName, copyOf(map)));
+            return updatedMap.isPresent();
+        });
+    }
+
+    private static Map<String, List<String>> copyOf(Map<String, List<String>> channelIdToUserListMap) {
+        Map<String, List<String>> copy = new HashMap<>();
+        channelIdToUserListMap.forEach((channelId, userList) -> copy.put(channelId, new ArrayList<>(userList)));
+        return copy;
+    }
+}
@@ -0,0 +1,28 @@
+package com.redletra.standupsally.state;
+
+import com.redletra.standupsally.utils.SecretManagerClientHolder;
+import com.redletra.standupsally.utils.SecretUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StateStoresTest {
+
+    @Test
+    void stateStoreIsChosenByNameTest() {
+        SecretUtils secretUtilsMock = mock(SecretUtils.class);
+        SecretManagerClientHolder secretManagerClientHolderMock = mock(SecretManagerClientHolder.class);
+
+        assertTrue(StateStores.forDeployment(Optional.empty(), secretUtilsMock, secretManagerClientHolderMock)
+                instanceof ShardedSecretManagerStateStore);
+        assertTrue(StateStores.forDeployment(Optional.of(StateStores.SECRET_MANAGER), secretUtilsMock, secretManagerClientHolderMock)
+                instanceof ShardedSecretManagerStateStore);
+        assertTrue(StateStores.forDeployment(Optional.of(StateStores.MUTATION_LOG), secretUtilsMock, secretManagerClientHolderMock)
+                instanceof LogStructuredStateStore);
+        assertThrows(IllegalArgumentException.class, () ->
+                StateStores.forDeployment(Optional.of("mapped-file"), secretUtilsMock, secretManagerClientHolderMock));
+    }
+}
@@ -0,0 +1,57 @@
+package com.redletra.standupsally.utils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CloudLoggingLayoutTest {
+
+    private static final Gson gson = new Gson();
+
+    @Test
+    void doLayoutTest() {
+        ILoggingEvent loggingEvent = mock(ILoggingEvent.class);
+        when(loggingEvent.getLevel()).thenReturn(Level.WARN);
+        when(loggingEvent.getFormattedMessage()).thenReturn("failed to look up members of channel \"C1\"");
+        when(loggingEvent.getTimeStamp()).thenReturn(1648425600000L);
+        when(loggingEvent.getLoggerName()).thenReturn("com.redletra.standupsally.functions.StandupSallyEventListener");
+        when(loggingEvent.getThreadName()).thenReturn("slack-event-consumer");
+
+        String line = new CloudLoggingLayout().doLayout(loggingEvent);
+
+        // one entry per line
+        assertEquals(1, line.split("\n").length);
+        JsonObject entry = gson.fromJson(line, JsonObject.class);
+        assertEquals("WARNING", entry.get("severity").getAsString());
+        assertEquals("failed to look up members of channel \"C1\"", entry.get("message").getAsString());
+        assertEquals("2022-03-28T00:00:00Z", entry.get("time").getAsString());
+        assertEquals("slack-event-consumer", entry.get("thread").getAsString());
+    }
+
+    @Test
+    void stackTraceInMessageTest() {
+        ILoggingEvent loggingEvent = mock(ILoggingEvent.class);
+        when(loggingEvent.getLevel()).thenReturn(Level.ERROR);
+        when(loggingEvent.getFormattedMessage()).thenReturn("event consumer caught exception");
+        when(loggingEvent.getThrowableProxy()).thenReturn(new ThrowableProxy(new IllegalStateException("unavailable")));
+
+        JsonObject entry = gson.fromJson(new CloudLoggingLayout().doLayout(loggingEvent), JsonObject.class);
+
+        assertEquals("ERROR", entry.get("severity").getAsString());
+        assertTrue(entry.get("message").getAsString().startsWith("event consumer caught exception"));
+        assertTrue(entry.get("message").getAsString().contains("java.lang.IllegalStateException: unavailable"));
+    }
+
+    @Test
+    void severityTest() {
+        assertEquals("INFO", CloudLoggingLayout.severity(Level.INFO));
+        assertEquals("DEBUG", CloudLoggingLayout.severity(Level.DEBUG));
+        assertEquals("DEBUG", CloudLoggingLayout.severity(Level.TRACE));
+    }
+}
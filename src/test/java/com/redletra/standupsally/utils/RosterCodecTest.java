@@ -0,0 +1,56 @@
+package com.redletra.standupsally.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RosterCodecTest {
+
+    @Test
+    void roundTripTest() {
+        Map<String, List<String>> channelIdToUserListMap = Map.of(
+                "channel1", List.of("U1", "U2", "U3"),
+                "channel2", List.of("U2", "U4"),
+                "channel3", List.of());
+
+        byte[] encoded = RosterCodec.encode(channelIdToUserListMap);
+
+        assertTrue(RosterCodec.isBinary(encoded));
+        assertEquals(channelIdToUserListMap, RosterCodec.decode(encoded));
+    }
+
+    @Test
+    void decodesTextFormatTest() {
+        byte[] text = "channel1=U1,U2;channel2=U3".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(RosterCodec.isBinary(text));
+        assertEquals(Map.of("channel1", List.of("U1", "U2"), "channel2", List.of("U3")), RosterCodec.decode(text));
+    }
+
+    @Test
+    void largeRosterIsCompressedAndSmallerThanTextTest() {
+        // the same members in many channels, as when a team is in all its project channels
+        Map<String, List<String>> channelIdToUserListMap = new HashMap<>();
+        for (int channel = 0; channel < 200; channel++) {
+            channelIdToUserListMap.put(String.format("C%010d", channel),
+                    List.of("U012AB3CDE", "U022AB3CDE", "U032AB3CDE", "U042AB3CDE", "U052AB3CDE"));
+        }
+
+        byte[] encoded = RosterCodec.encode(channelIdToUserListMap);
+        int textLength = Utils.generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUserListMap)
+                .getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(encoded.length * 10 < textLength, "encoded " + encoded.length + " bytes, text " + textLength);
+        assertEquals(channelIdToUserListMap, RosterCodec.decode(encoded));
+    }
+
+    @Test
+    void unknownFormatVersionIsRejectedTest() {
+        assertThrows(IllegalArgumentException.class, () -> RosterCodec.decode(new byte[]{0x00, 0x7F, 0x00, 0x00}));
+    }
+}
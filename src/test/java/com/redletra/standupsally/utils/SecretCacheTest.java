@@ -0,0 +1,57 @@
+package com.redletra.standupsally.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SecretCacheTest {
+
+    @Test
+    void getCachesUntilTtlExpiresTest() {
+        Clock clockMock = mock(Clock.class);
+        Instant start = Instant.parse("2022-03-28T00:00:00Z");
+        when(clockMock.instant()).thenReturn(start,
+                start.plusSeconds(10),
+                start.plusSeconds(61));
+
+        SecretCache secretCache = new SecretCache(clockMock);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("value1", secretCache.get("secret", Duration.ofMinutes(1), () -> "value" + loads.incrementAndGet()));
+        // still within ttl
+        assertEquals("value1", secretCache.get("secret", Duration.ofMinutes(1), () -> "value" + loads.incrementAndGet()));
+        // expired
+        assertEquals("value2", secretCache.get("secret", Duration.ofMinutes(1), () -> "value" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getIfCurrentReloadsOnceNotCurrentTest() {
+        SecretCache secretCache = new SecretCache(Clock.fixed(Instant.parse("2022-03-28T00:00:00Z"), ZoneOffset.UTC));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("value1", secretCache.getIfCurrent("secret", value -> true, () -> "value" + loads.incrementAndGet()));
+        assertEquals("value1", secretCache.getIfCurrent("secret", value -> value.equals("value1"), () -> "value" + loads.incrementAndGet()));
+        // a newer version was written elsewhere
+        assertEquals("value2", secretCache.getIfCurrent("secret", value -> false, () -> "value" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateForcesReloadTest() {
+        SecretCache secretCache = new SecretCache(Clock.fixed(Instant.parse("2022-03-28T00:00:00Z"), ZoneOffset.UTC));
+        AtomicInteger loads = new AtomicInteger();
+
+        secretCache.get("secret", Duration.ofMinutes(1), () -> "value" + loads.incrementAndGet());
+        secretCache.invalidate("secret");
+        assertEquals("value2", secretCache.get("secret", Duration.ofMinutes(1), () -> "value" + loads.incrementAndGet()));
+    }
+}
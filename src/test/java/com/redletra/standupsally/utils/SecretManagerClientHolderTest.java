@@ -0,0 +1,65 @@
+package com.redletra.standupsally.utils;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.UnavailableException;
+import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SecretManagerClientHolderTest {
+
+    @Test
+    void getReusesClientTest() throws Exception {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        SecretManagerClientHolder.ClientFactory clientFactoryMock = mock(SecretManagerClientHolder.ClientFactory.class);
+        when(clientFactoryMock.create()).thenReturn(clientMock);
+
+        SecretManagerClientHolder secretManagerClientHolder = new SecretManagerClientHolder(clientFactoryMock);
+
+        assertSame(clientMock, secretManagerClientHolder.get());
+        assertSame(clientMock, secretManagerClientHolder.get());
+        verify(clientFactoryMock, times(1)).create();
+    }
+
+    @Test
+    void getRecreatesShutdownClientTest() throws Exception {
+        SecretManagerServiceClient shutdownClientMock = mock(SecretManagerServiceClient.class);
+        SecretManagerServiceClient newClientMock = mock(SecretManagerServiceClient.class);
+        SecretManagerClientHolder.ClientFactory clientFactoryMock = mock(SecretManagerClientHolder.ClientFactory.class);
+        when(clientFactoryMock.create()).thenReturn(shutdownClientMock, newClientMock);
+
+        SecretManagerClientHolder secretManagerClientHolder = new SecretManagerClientHolder(clientFactoryMock);
+        assertSame(shutdownClientMock, secretManagerClientHolder.get());
+
+        when(shutdownClientMock.isShutdown()).thenReturn(true);
+        assertSame(newClientMock, secretManagerClientHolder.get());
+        verify(shutdownClientMock, times(1)).close();
+    }
+
+    @Test
+    void resetIfUnavailableTest() throws Exception {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        SecretManagerClientHolder.ClientFactory clientFactoryMock = mock(SecretManagerClientHolder.ClientFactory.class);
+        when(clientFactoryMock.create()).thenReturn(clientMock);
+
+        SecretManagerClientHolder secretManagerClientHolder = new SecretManagerClientHolder(clientFactoryMock);
+        secretManagerClientHolder.get();
+
+        // other failures keep the client
+        secretManagerClientHolder.resetIfUnavailable(new IllegalStateException("not a channel failure"));
+        verify(clientMock, never()).close();
+
+        UnavailableException unavailable = new UnavailableException("channel down", null,
+                GrpcStatusCode.of(Status.Code.UNAVAILABLE), true);
+        secretManagerClientHolder.resetIfUnavailable(new ExecutionException(unavailable));
+        verify(clientMock, times(1)).close();
+
+        secretManagerClientHolder.get();
+        verify(clientFactoryMock, times(2)).create();
+    }
+}
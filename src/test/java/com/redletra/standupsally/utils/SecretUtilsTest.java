@@ -0,0 +1,133 @@
+package com.redletra.standupsally.utils;
+
+import com.google.cloud.secretmanager.v1.*;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SecretUtilsTest {
+
+    private static final String SECRET = Constants.CHANNEL_ID_TO_MEMBER_HANDLES_SECRET_NAME;
+
+    @Test
+    void updateChannelIdToUserListMapTest() {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(clientMock.accessSecretVersion(versionName("latest"))).thenReturn(accessResponse(3, "channel1=123,456"));
+        when(clientMock.getSecretVersion(versionName("latest"))).thenReturn(secretVersion(3));
+        when(clientMock.addSecretVersion(any(SecretName.class), any(SecretPayload.class))).thenReturn(secretVersion(4));
+
+        boolean updated = new SecretUtils().updateChannelIdToUserListMap(clientMock, channelIdToUserListMap -> {
+            channelIdToUserListMap.get("channel1").add("789");
+            return Optional.of(channelIdToUserListMap);
+        });
+
+        assertTrue(updated);
+        verify(clientMock, times(1)).addSecretVersion(SecretName.of(Constants.PROJECT_ID, SECRET), rosterPayload("channel1=123,456,789"));
+        verify(clientMock, times(1)).destroySecretVersion(destroyRequest(3));
+    }
+
+    @Test
+    void updateChannelIdToUserListMapNoChangeTest() {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(clientMock.accessSecretVersion(versionName("latest"))).thenReturn(accessResponse(3, "channel1=123,456"));
+
+        assertFalse(new SecretUtils().updateChannelIdToUserListMap(clientMock, channelIdToUserListMap -> Optional.empty()));
+        verify(clientMock, never()).addSecretVersion(any(SecretName.class), any(SecretPayload.class));
+    }
+
+    @Test
+    void updateChannelIdToUserListMapRereadsWhenLatestChangedBeforeWriteTest() {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(clientMock.accessSecretVersion(versionName("latest"))).thenReturn(accessResponse(3, "channel1=123"));
+        // another instance wrote version 4 after we read version 3
+        when(clientMock.getSecretVersion(versionName("latest"))).thenReturn(secretVersion(4));
+        when(clientMock.accessSecretVersion(versionName("4"))).thenReturn(accessResponse(4, "channel1=123,456"));
+        when(clientMock.addSecretVersion(any(SecretName.class), any(SecretPayload.class))).thenReturn(secretVersion(5));
+
+        new SecretUtils().updateChannelIdToUserListMap(clientMock, addUser("789"));
+
+        verify(clientMock, times(1)).addSecretVersion(SecretName.of(Constants.PROJECT_ID, SECRET), rosterPayload("channel1=123,456,789"));
+        verify(clientMock, times(1)).destroySecretVersion(destroyRequest(4));
+    }
+
+    @Test
+    void updateChannelIdToUserListMapReappliesOnConcurrentWriteTest() {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(clientMock.accessSecretVersion(versionName("latest"))).thenReturn(accessResponse(3, "channel1=123"));
+        when(clientMock.getSecretVersion(versionName("latest"))).thenReturn(secretVersion(3));
+        // version 4 was written by another instance between our check and our write
+        when(clientMock.addSecretVersion(any(SecretName.class), any(SecretPayload.class))).thenReturn(secretVersion(5), secretVersion(6));
+        when(clientMock.accessSecretVersion(versionName("4"))).thenReturn(accessResponse(4, "channel1=123,456"));
+
+        new SecretUtils().updateChannelIdToUserListMap(clientMock, addUser("789"));
+
+        verify(clientMock, times(1)).addSecretVersion(SecretName.of(Constants.PROJECT_ID, SECRET), rosterPayload("channel1=123,789"));
+        verify(clientMock, times(1)).addSecretVersion(SecretName.of(Constants.PROJECT_ID, SECRET), rosterPayload("channel1=123,456,789"));
+        // the concurrent version and our stale version are both superseded by version 6
+        verify(clientMock, times(1)).destroySecretVersion(destroyRequest(4));
+        verify(clientMock, times(1)).destroySecretVersion(destroyRequest(5));
+        verify(clientMock, never()).destroySecretVersion(destroyRequest(6));
+    }
+
+    @Test
+    void getChannelIdToUserListMapRereadsAVersionWrittenElsewhereTest() {
+        SecretManagerServiceClient clientMock = mock(SecretManagerServiceClient.class);
+        when(clientMock.getSecretVersion(versionName("latest"))).thenReturn(secretVersion(3), secretVersion(3), secretVersion(4));
+        when(clientMock.accessSecretVersion(versionName("latest"))).thenReturn(accessResponse(3, "channel1=123"),
+                accessResponse(4, "channel1=123,456"));
+        SecretUtils secretUtils = new SecretUtils();
+
+        assertEquals(Map.of("channel1", List.of("123")), secretUtils.getChannelIdToUserListMap(clientMock).getValue0());
+        // still version 3, so served from the cache
+        assertEquals(Map.of("channel1", List.of("123")), secretUtils.getChannelIdToUserListMap(clientMock).getValue0());
+        verify(clientMock, times(1)).accessSecretVersion(versionName("latest"));
+        // another instance wrote version 4
+        assertEquals(Map.of("channel1", List.of("123", "456")), secretUtils.getChannelIdToUserListMap(clientMock).getValue0());
+        verify(clientMock, times(2)).accessSecretVersion(versionName("latest"));
+    }
+
+    private java.util.function.Function<Map<String, List<String>>, Optional<Map<String, List<String>>>> addUser(String user) {
+        return channelIdToUserListMap -> {
+            channelIdToUserListMap.get("channel1").add(user);
+            return Optional.of(channelIdToUserListMap);
+        };
+    }
+
+    private SecretVersionName versionName(String version) {
+        return SecretVersionName.of(Constants.PROJECT_ID, SECRET, version);
+    }
+
+    private SecretVersion secretVersion(long versionNumber) {
+        return SecretVersion.newBuilder().setName(versionName(String.valueOf(versionNumber)).toString()).build();
+    }
+
+    private AccessSecretVersionResponse accessResponse(long versionNumber, String value) {
+        return AccessSecretVersionResponse.newBuilder()
+                .setName(versionName(String.valueOf(versionNumber)).toString())
+                .setPayload(payload(value))
+                .build();
+    }
+
+    private SecretPayload payload(String value) {
+        return SecretPayload.newBuilder().setData(ByteString.copyFromUtf8(value)).build();
+    }
+
+    /*
+        the roster is written binary encoded, whatever format it was read in
+     */
+    private SecretPayload rosterPayload(String value) {
+        return SecretPayload.newBuilder()
+                .setData(ByteString.copyFrom(RosterCodec.encode(Utils.convertChannelToUsersStringToMap(value))))
+                .build();
+    }
+
+    private DestroySecretVersionRequest destroyRequest(long versionNumber) {
+        return DestroySecretVersionRequest.newBuilder().setName(versionName(String.valueOf(versionNumber)).toString()).build();
+    }
+}
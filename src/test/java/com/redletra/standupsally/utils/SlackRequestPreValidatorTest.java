@@ -0,0 +1,57 @@
+package com.redletra.standupsally.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlackRequestPreValidatorTest {
+
+    private static final String SIGNATURE = "v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad";
+    private static final Instant NOW = Instant.parse("2022-03-28T09:00:00Z");
+
+    private final SlackRequestPreValidator preValidator = new SlackRequestPreValidator(Set.of("app_mention"),
+            Duration.ofMinutes(5),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void plausibleRequestIsAcceptedTest() {
+        assertTrue(preValidator.rejectionReason(event("app_mention"), SIGNATURE, timestamp(NOW.minusSeconds(60))).isEmpty());
+        // a little clock skew the other way is fine too
+        assertTrue(preValidator.rejectionReason(event("app_mention"), SIGNATURE, timestamp(NOW.plusSeconds(60))).isEmpty());
+    }
+
+    @Test
+    void staleAndMalformedTimestampsAreRejectedTest() {
+        assertTrue(preValidator.rejectionReason(event("app_mention"), SIGNATURE, timestamp(NOW.minusSeconds(301))).isPresent());
+        assertTrue(preValidator.rejectionReason(event("app_mention"), SIGNATURE, timestamp(NOW.plusSeconds(301))).isPresent());
+        assertTrue(preValidator.rejectionReason(event("app_mention"), SIGNATURE, "yesterday").isPresent());
+    }
+
+    @Test
+    void malformedSignatureIsRejectedTest() {
+        assertTrue(preValidator.rejectionReason(event("app_mention"), "slack-sig", timestamp(NOW)).isPresent());
+    }
+
+    @Test
+    void unhandledEventsAreRejectedTest() {
+        assertTrue(preValidator.rejectionReason(event("reaction_added"), SIGNATURE, timestamp(NOW)).isPresent());
+        assertTrue(preValidator.rejectionReason(new Gson().fromJson("{}", JsonObject.class), SIGNATURE, timestamp(NOW)).isPresent());
+        assertTrue(preValidator.rejectionReason(null, SIGNATURE, timestamp(NOW)).isPresent());
+    }
+
+    private static JsonObject event(String type) {
+        return new Gson().fromJson("{\"type\": \"event_callback\", \"event\": {\"type\": \"" + type + "\"}}", JsonObject.class);
+    }
+
+    private static String timestamp(Instant instant) {
+        return String.valueOf(instant.getEpochSecond());
+    }
+}
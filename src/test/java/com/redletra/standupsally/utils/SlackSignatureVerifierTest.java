@@ -0,0 +1,45 @@
+package com.redletra.standupsally.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlackSignatureVerifierTest {
+
+    private static final String SIGNING_SECRET = "11111111111111111111111111111111";
+    private static final String SIGNATURE = "v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad";
+
+    @Test
+    void verifyTest() {
+        SlackSignatureVerifier verifier = new SlackSignatureVerifier(SIGNING_SECRET);
+        byte[] rawBody = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(verifier.verify(rawBody, "32123123", SIGNATURE));
+        // the mac is reused, so a failed check must not affect the next one
+        assertFalse(verifier.verify("{ }".getBytes(StandardCharsets.UTF_8), "32123123", SIGNATURE));
+        assertTrue(verifier.verify(rawBody, "32123123", SIGNATURE));
+        // hex digits are accepted in either case
+        assertTrue(verifier.verify(rawBody, "32123123", "v0=" + SIGNATURE.substring(3).toUpperCase()));
+    }
+
+    @Test
+    void verifyOnOtherThreadsTest() {
+        SlackSignatureVerifier verifier = new SlackSignatureVerifier(SIGNING_SECRET);
+        byte[] rawBody = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(CompletableFuture.supplyAsync(() -> verifier.verify(rawBody, "32123123", SIGNATURE)).join());
+        assertTrue(verifier.verify(rawBody, "32123123", SIGNATURE));
+    }
+
+    @Test
+    void malformedSignatureHeaderTest() {
+        assertNull(SlackSignatureVerifier.decodeSignatureHeader(null));
+        assertNull(SlackSignatureVerifier.decodeSignatureHeader("v0=849e78"));
+        assertNull(SlackSignatureVerifier.decodeSignatureHeader("v1=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417ad"));
+        assertNull(SlackSignatureVerifier.decodeSignatureHeader("v0=849e78a96bfc51f106f548b93da581a9625deaae4fffea334db6af6cdb1417zz"));
+        assertEquals(32, SlackSignatureVerifier.decodeSignatureHeader(SIGNATURE).length);
+    }
+}
@@ -6,10 +6,14 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.redletra.standupsally.utils.Utils.notFirstMondayOfSprint;
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,6 +48,28 @@ public class UtilsTest {
         assertTrue(channelToUserMap.get("channel2").isEmpty());
     }
 
+    @Test
+    void convertChannelToUsersStringToMapMatchesSplitTest() {
+        List<String> channelToUserStrings = List.of("",
+                "channel1=",
+                "channel1",
+                "channel1=@tom,,@steve",
+                "channel1=@tom,",
+                "channel1=@tom;",
+                "channel1=@tom;;channel2=@dave",
+                ";channel1=@tom",
+                "channel1=@tom=@steve",
+                "channel1==@tom",
+                "channel1==");
+        for (String channelToUserString : channelToUserStrings) {
+            assertEquals(splitChannelToUsersString(channelToUserString),
+                    Utils.convertChannelToUsersStringToMap(channelToUserString),
+                    channelToUserString);
+        }
+        assertTrue(Utils.convertChannelToUsersStringToMap(";;").isEmpty());
+        assertThrows(IllegalStateException.class, () -> Utils.convertChannelToUsersStringToMap("channel1=@tom;channel1=@steve"));
+    }
+
     @Test
     void convertChannelIdToUserHandleStringToMapTest() {
         String channelIdToUserHandleString = "channelId1=handleX,channelId2=handleA";
@@ -53,6 +79,23 @@ public class UtilsTest {
         assertEquals(2, channelIdToUserHandleMap.size());
     }
 
+    @Test
+    void convertChannelIdToUserHandleStringToMapEdgeCasesTest() {
+        assertTrue(Utils.convertChannelIdToUserHandleStringToMap("").isEmpty());
+        assertEquals(Map.of("channelId1", "handleX"), Utils.convertChannelIdToUserHandleStringToMap("channelId1=handleX,"));
+        assertEquals(Map.of("channelId1", "handleX"), Utils.convertChannelIdToUserHandleStringToMap("channelId1=handleX=handleY"));
+        assertThrows(IllegalArgumentException.class, () -> Utils.convertChannelIdToUserHandleStringToMap("channelId1="));
+    }
+
+    @Test
+    void secretStringsRoundTripTest() {
+        Map<String, List<String>> channelIdToUsersListMap = Map.of("channel1", List.of("@tom", "@steve"), "channel2", List.of());
+        assertEquals(channelIdToUsersListMap, Utils.convertChannelToUsersStringToMap(
+                Utils.generateSecretStringFromChannelIdToUserHandlesListMap(channelIdToUsersListMap)));
+        assertEquals("", Utils.generateSecretStringFromChannelIdToUserHandlesListMap(Map.of()));
+        assertEquals("", Utils.generateSecretStringFromChannelIdToLastUserToRunStandupMap(Map.of()));
+    }
+
     @Test
     void getNextUserHandlesTest() {
         List<String> userHandlesForChannel1 = List.of("@tom", "@steve", "@felix");
@@ -84,6 +127,35 @@ public class UtilsTest {
 
     }
 
+    @Test
+    void getNextRotationEntriesTest() {
+        List<String> userHandlesForChannel1 = List.of("@tom", "@steve", "@felix");
+        Map<String, List<String>> channelIdToMemberHandlesMap = Map.of("channel1", userHandlesForChannel1);
+
+        // position still right
+        assertEquals(Map.of("channel1", "@felix:2"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@steve:1")));
+        assertEquals(Map.of("channel1", "@tom:0"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@felix:2")));
+
+        // stored without a position, as before positions were added
+        assertEquals(Map.of("channel1", "@felix:2"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@steve")));
+
+        // someone before the last runner left, so @steve moved from position 2 to 1
+        assertEquals(Map.of("channel1", "@felix:2"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@steve:2")));
+
+        // the last runner left from position 1, the rotation carries on with whoever moved into it
+        assertEquals(Map.of("channel1", "@steve:1"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@john:1")));
+        assertEquals(Map.of("channel1", "@tom:0"),
+                Utils.getNextRotationEntries(channelIdToMemberHandlesMap, Map.of("channel1", "@john:3")));
+
+        // channels with nobody in them are skipped
+        assertTrue(Utils.getNextRotationEntries(Map.of("channel1", List.of()), Map.of("channel1", "@john:0")).isEmpty());
+    }
+
     @Test
     void notFirstMondayOfSprintTest() {
         LocalDate today = LocalDate.parse("27/03/2022", DateTimeFormatter.ofPattern("dd/MM/yyyy"));
@@ -161,4 +233,16 @@ public class UtilsTest {
         Assertions.assertEquals(Optional.of("retryNum"), Utils.getSlackRetryNumHeader(mock));
     }
 
+    /*
+        the split based parser convertChannelToUsersStringToMap replaced
+     */
+    private static Map<String, List<String>> splitChannelToUsersString(String channelToUsersString) {
+        return Arrays.stream(channelToUsersString.split(";"))
+                .map(entry -> entry.split("="))
+                .collect(Collectors.toMap(entry -> entry[0], entry ->
+                        entry.length > 1 ?
+                                Stream.of(entry[1].split(",", -1)).collect(Collectors.toList()) :
+                                new ArrayList<>()));
+    }
+
 }